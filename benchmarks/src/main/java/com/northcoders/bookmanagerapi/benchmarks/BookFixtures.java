@@ -0,0 +1,31 @@
+package com.northcoders.bookmanagerapi.benchmarks;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BookFixtures {
+
+    private static final Genre[] GENRES = Genre.values();
+
+    private BookFixtures() {
+    }
+
+    // Ids are left null so the books can be inserted; pass withIds for pure in-memory use
+    static List<Book> books(int count, boolean withIds) {
+        List<Book> books = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            books.add(new Book(
+                    withIds ? (long) i + 1 : null,
+                    "Book " + i,
+                    "This is the description for Book " + i + ", long enough to look like a real blurb.",
+                    "Author " + (i % 1000),
+                    GENRES[i % GENRES.length]));
+        }
+
+        return books;
+    }
+}
@@ -0,0 +1,84 @@
+package com.northcoders.bookmanagerapi.benchmarks;
+
+import com.northcoders.bookmanagerapi.BookmanagerapiApplication;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.service.BookManagerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Service methods through the real Spring proxies (transactions, cache) against an in-memory H2 database
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookManagerServiceBenchmark {
+
+    static final int SEEDED_BOOKS = 10_000;
+
+    static final int INSERT_BATCH = 500;
+
+    private ConfigurableApplicationContext context;
+
+    private BookManagerService bookManagerService;
+
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(BookmanagerapiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.profiles.active=",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run();
+        bookManagerService = context.getBean(BookManagerService.class);
+
+        firstId = bookManagerService.insertBooks(BookFixtures.books(SEEDED_BOOKS, false).iterator()).getFirst().getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book getBookById() {
+        return bookManagerService.getBookById(firstId + ThreadLocalRandom.current().nextInt(SEEDED_BOOKS));
+    }
+
+    @Benchmark
+    public List<Book> getBooksByGenre() {
+        return bookManagerService.getBooksByGenre(Genre.Fantasy);
+    }
+
+    @Benchmark
+    public List<Book> getBooksAfter() {
+        long after = firstId + ThreadLocalRandom.current().nextInt(SEEDED_BOOKS);
+        return bookManagerService.getBooksAfter(null, after, 100).getContent();
+    }
+
+    // insertBook vs insertBooks are reported per book, so their scores compare rows/sec directly
+    @Benchmark
+    @OperationsPerInvocation(INSERT_BATCH)
+    public void insertBookOneByOne() {
+        for (Book book : BookFixtures.books(INSERT_BATCH, false)) {
+            bookManagerService.insertBook(book);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSERT_BATCH)
+    public void insertBooksInBatch() {
+        bookManagerService.insertBooks(BookFixtures.books(INSERT_BATCH, false).iterator());
+    }
+}
@@ -0,0 +1,41 @@
+package com.northcoders.bookmanagerapi.benchmarks;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.service.BookColumnStore;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Heap taken by the books held in memory, per million books: the BookColumnStore behind BookReadModel against a plain
+// HashMap<Long, Book> of the same books. Sizes are JOL's walk of each object graph, so they include every header,
+// reference and padding byte. Not a JMH benchmark; run it with `mvn compile exec:exec@footprint`.
+public class BookReadModelFootprint {
+
+    private static final int DEFAULT_BOOKS = 1_000_000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BOOKS;
+
+        Map<Long, Book> map = new HashMap<>();
+        BookColumnStore store = new BookColumnStore();
+        // Separate copies, so neither structure is charged for strings the other one keeps alive
+        BookFixtures.books(count, true).forEach(book -> map.put(book.getId(), book));
+        BookFixtures.books(count, true).forEach(store::put);
+
+        long mapBytes = GraphLayout.parseInstance(map).totalSize();
+        long storeBytes = GraphLayout.parseInstance(store).totalSize();
+
+        System.out.printf("%,d books%n", count);
+        print("HashMap<Long, Book>", mapBytes, count);
+        print("BookColumnStore", storeBytes, count);
+        System.out.printf("%-22s %.1fx smaller (estimatedBytes() says %,d bytes)%n", "",
+                (double) mapBytes / storeBytes, store.estimatedBytes());
+    }
+
+    private static void print(String name, long bytes, int count) {
+        double perMillion = bytes * 1_000_000.0 / count;
+        System.out.printf("%-22s %,15d bytes  %,8.1f MiB per million books  %,6.1f bytes per book%n",
+                name, bytes, perMillion / (1 << 20), (double) bytes / count);
+    }
+}
@@ -0,0 +1,83 @@
+package com.northcoders.bookmanagerapi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.northcoders.bookmanagerapi.model.Book;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Jackson cost of the list responses returned by GET /api/v1/book and the bodies of POST /api/v1/book/batch,
+// per wire format: plain JSON, JSON as gzip-compressed by the server, and CBOR (`Accept: application/cbor`)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookSerializationBenchmark {
+
+    private static final TypeReference<List<Book>> BOOK_LIST = new TypeReference<>() {};
+
+    @Param({"10", "1000", "100000"})
+    int size;
+
+    @Param({"json", "json-gzip", "cbor"})
+    String format;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private boolean gzip;
+
+    private List<Book> books;
+
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ObjectMapper mapper = format.equals("cbor") ? new CBORMapper() : new ObjectMapper();
+        writer = mapper.writerFor(BOOK_LIST);
+        reader = mapper.readerFor(BOOK_LIST);
+        gzip = format.equals("json-gzip");
+        books = BookFixtures.books(size, true);
+        payload = serializeBookList();
+
+        // JMH has no column for it, so the wire size goes to the run log next to the timings
+        System.out.printf("%n%s, %d books: %d bytes on the wire%n", format, size, payload.length);
+    }
+
+    @Benchmark
+    public byte[] serializeBookList() throws IOException {
+        if (!gzip) {
+            return writer.writeValueAsBytes(books);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            writer.writeValue(out, books);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<Book> deserializeBookList() throws IOException {
+        if (!gzip) {
+            return reader.readValue(payload);
+        }
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return reader.readValue(in);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.northcoders.bookmanagerapi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.bookmanagerapi.exception.GlobalExceptionHandler;
+import com.northcoders.bookmanagerapi.exception.ResourceAlreadyExistsException;
+import com.northcoders.bookmanagerapi.exception.ResourceNotFoundException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+// Full cost of an error response: throwing the exception from `stackDepth` frames down (a Spring MVC request thread
+// is 100+ frames deep), the handler's response body, and writing that body as JSON. `legacyNotFound` replays the
+// 404 path before the stackless exceptions and problem templates, as the baseline for `notFound`.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlobalExceptionHandlerBenchmark {
+
+    @Param({"10", "150"})
+    int stackDepth;
+
+    private final GlobalExceptionHandler globalExceptionHandler = new GlobalExceptionHandler();
+
+    // Configured like the application's mapper: ISO dates, ProblemDetail mix-in
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Benchmark
+    public byte[] notFound() throws Exception {
+        try {
+            throwAtDepth(stackDepth, id -> new ResourceNotFoundException("Book", id));
+        } catch (ResourceNotFoundException e) {
+            return objectMapper.writeValueAsBytes(globalExceptionHandler.handleResourceNotFoundException(e).getBody());
+        }
+        throw new IllegalStateException();
+    }
+
+    @Benchmark
+    public byte[] legacyNotFound() throws Exception {
+        try {
+            throwAtDepth(stackDepth, id -> new LegacyResourceNotFoundException("Book", id));
+        } catch (LegacyResourceNotFoundException e) {
+            LegacyErrorResponse errorResponse = new LegacyErrorResponse(HttpStatus.NOT_FOUND, e.getMessage());
+            ResponseEntity<LegacyErrorResponse> response = new ResponseEntity<>(errorResponse, errorResponse.getStatus());
+            return objectMapper.writeValueAsBytes(response.getBody());
+        }
+        throw new IllegalStateException();
+    }
+
+    @Benchmark
+    public byte[] alreadyExists() throws Exception {
+        try {
+            throwAtDepth(stackDepth, id -> new ResourceAlreadyExistsException("Book", id));
+        } catch (ResourceAlreadyExistsException e) {
+            return objectMapper.writeValueAsBytes(globalExceptionHandler.handleResourceAlreadyExistsException(e).getBody());
+        }
+        throw new IllegalStateException();
+    }
+
+    private static void throwAtDepth(int depth, LongFunction<RuntimeException> exception) {
+        if (depth > 0) {
+            throwAtDepth(depth - 1, exception);
+            return;
+        }
+        throw exception.apply(ThreadLocalRandom.current().nextLong());
+    }
+
+    // ResourceNotFoundException as it was: formatted message, full stack trace
+    private static final class LegacyResourceNotFoundException extends RuntimeException {
+
+        private LegacyResourceNotFoundException(String entityClassName, Object entityIdentifier) {
+            super(String.format("%s with ID %s was not found", entityClassName, entityIdentifier));
+        }
+    }
+
+    // The ErrorResponse body it was answered with
+    private static final class LegacyErrorResponse {
+
+        private final LocalDateTime timestamp;
+        private final HttpStatus status;
+        private final String error;
+        private final String message;
+
+        private LegacyErrorResponse(HttpStatus status, String message) {
+            this.timestamp = LocalDateTime.now();
+            this.status = status;
+            this.error = status.getReasonPhrase();
+            this.message = message;
+        }
+
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
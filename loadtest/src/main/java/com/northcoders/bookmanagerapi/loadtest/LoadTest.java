@@ -0,0 +1,284 @@
+package com.northcoders.bookmanagerapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Drives the book API at a constant arrival rate (open model) and reports latency percentiles per endpoint.
+ * <p>
+ * Each request is scheduled at a fixed intended start time and its latency is measured from that time, not
+ * from when it was actually sent, so a stalled server shows up in the percentiles instead of silently
+ * lowering the offered load (coordinated omission).
+ */
+public class LoadTest {
+
+    private static final String BOOK_PATH = "/api/v1/book";
+
+    private static final String[] GENRES = {"Thriller", "Romance", "Fantasy", "Fiction", "Education"};
+
+    private static final int SEED_CHUNK = 1000;
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LoadTestConfig config;
+
+    private final HttpClient httpClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    // Deletes only target books created during the run, so reads and updates keep hitting live rows
+    private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+    private final Operation[] weightedOperations;
+
+    private long[] seededIds;
+
+    LoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        List<Operation> operations = new ArrayList<>();
+        config.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        this.weightedOperations = operations.toArray(Operation[]::new);
+
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+
+        if (config.localJar() == null) {
+            new LoadTest(config).run();
+            return;
+        }
+
+        System.out.printf("Starting %s on an in-memory H2 database%n", config.localJar());
+        try (LocalApplication application = LocalApplication.start(config.localJar(), config.localArgs(), config.reportDir())) {
+            new LoadTest(config.withBaseUrl(application.baseUrl())).run();
+        }
+    }
+
+    void run() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        if (config.seed() > 0) {
+            System.out.printf("Seeding %d books at %s%n", config.seed(), config.baseUrl());
+            seed(ids);
+        }
+        if (config.discover() > 0) {
+            System.out.printf("Discovering up to %d existing books at %s%n", config.discover(), config.baseUrl());
+            discover(ids);
+        }
+        seededIds = ids.stream().mapToLong(Long::longValue).toArray();
+
+        // Reads and updates of single books need ids to aim at
+        if (seededIds.length == 0 && (config.mix().containsKey(Operation.GET) || config.mix().containsKey(Operation.UPDATE))) {
+            throw new IllegalStateException("No books to read or update; pass --seed or --discover, or drop get and update from --mix");
+        }
+
+        System.out.printf("Warming up for %ds at %d req/s%n", config.warmupSeconds(), config.rate());
+        runPhase(config.warmupSeconds());
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+
+        System.out.printf("Measuring for %ds at %d req/s%n", config.durationSeconds(), config.rate());
+        runPhase(config.durationSeconds());
+
+        report();
+    }
+
+    private void seed(List<Long> ids) throws IOException, InterruptedException {
+        for (int offset = 0; offset < config.seed(); offset += SEED_CHUNK) {
+            ArrayNode books = objectMapper.createArrayNode();
+            for (int i = offset; i < Math.min(offset + SEED_CHUNK, config.seed()); i++) {
+                books.add(newBook(i));
+            }
+
+            HttpResponse<byte[]> response = httpClient.send(
+                    jsonRequest(BOOK_PATH + "/batch").POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(books))).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with HTTP " + response.statusCode());
+            }
+
+            for (JsonNode result : objectMapper.readTree(response.body())) {
+                if ("CREATED".equals(result.get("status").asText())) {
+                    ids.add(result.get("id").asLong());
+                }
+            }
+        }
+    }
+
+    // Reads ids from the NDJSON listing, which the reactive module serves too, and stops reading after `discover`
+    private void discover(List<Long> ids) throws IOException, InterruptedException {
+        HttpRequest listing = request(BOOK_PATH).header("Accept", "application/x-ndjson").GET().build();
+        HttpResponse<Stream<String>> response = httpClient.send(listing, HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Discovering books failed with HTTP " + response.statusCode());
+        }
+
+        try (Stream<String> lines = response.body()) {
+            Iterator<String> books = lines.filter(line -> !line.isBlank()).limit(config.discover()).iterator();
+            while (books.hasNext()) {
+                ids.add(objectMapper.readTree(books.next()).get("id").asLong());
+            }
+        }
+    }
+
+    private void runPhase(int seconds) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate();
+        long requests = (long) config.rate() * seconds;
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < requests; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+                executor.submit(() -> execute(operation, intendedStart));
+            }
+        }
+    }
+
+    private void execute(Operation operation, long intendedStart) {
+        Long deleteId = null;
+        if (operation == Operation.DELETE) {
+            deleteId = createdIds.poll();
+            if (deleteId == null) {
+                operation = Operation.CREATE;
+            }
+        }
+
+        try {
+            HttpResponse<byte[]> response = httpClient.send(buildRequest(operation, deleteId), HttpResponse.BodyHandlers.ofByteArray());
+            recorders.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart));
+
+            if (response.statusCode() >= 400) {
+                errors.get(operation).increment();
+            } else if (operation == Operation.CREATE) {
+                createdIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // Counted rather than lost with the virtual thread, e.g. an unreadable response body
+            errors.get(operation).increment();
+        }
+    }
+
+    private HttpRequest buildRequest(Operation operation, Long deleteId) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long seededId = seededIds.length == 0 ? 0 : seededIds[random.nextInt(seededIds.length)];
+
+        return switch (operation) {
+            case GET -> request(BOOK_PATH + "/" + seededId).GET().build();
+            case LIST -> request(BOOK_PATH + "?limit=100").GET().build();
+            case GENRE -> request(BOOK_PATH + "?limit=100&genre=" + GENRES[random.nextInt(GENRES.length)]).GET().build();
+            case CREATE -> jsonRequest(BOOK_PATH)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(newBook(random.nextInt()))))
+                    .build();
+            case UPDATE -> jsonRequest(BOOK_PATH + "/" + seededId)
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(newBook(random.nextInt()))))
+                    .build();
+            case DELETE -> request(BOOK_PATH + "/" + deleteId).DELETE().build();
+        };
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(config.baseUrl().resolve(path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpRequest.Builder jsonRequest(String path) {
+        return request(path).header("Content-Type", "application/json");
+    }
+
+    private ObjectNode newBook(int n) {
+        return objectMapper.createObjectNode()
+                .put("title", "Load Test Book " + n)
+                .put("description", "Seeded by the load test, long enough to look like a real blurb for book " + n)
+                .put("author", "Author " + Math.floorMod(n, 1000))
+                .put("genre", GENRES[Math.floorMod(n, GENRES.length)]);
+    }
+
+    private void report() throws IOException {
+        Files.createDirectories(config.reportDir());
+        Histogram total = new Histogram(3);
+
+        System.out.printf("%n%-8s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            total.add(histogram);
+            printRow(operation.optionName, histogram, errors.get(operation).sum());
+            writeDistribution(operation.optionName, histogram);
+        }
+
+        long totalErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        printRow("all", total, totalErrors);
+        writeDistribution("all", total);
+
+        System.out.printf("%nPercentile distributions (HdrHistogram .hgrm, ms) written to %s%n", config.reportDir().toAbsolutePath());
+    }
+
+    private void printRow(String name, Histogram histogram, long errorCount) {
+        System.out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errorCount,
+                (double) histogram.getTotalCount() / config.durationSeconds(),
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(95) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private void writeDistribution(String name, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(config.reportDir().resolve(name + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.northcoders.bookmanagerapi.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Command line options, given as --name=value (or a bare --name for flags)
+record LoadTestConfig(URI baseUrl,
+                      Path localJar,
+                      List<String> localArgs,
+                      int seed,
+                      int discover,
+                      int rate,
+                      int warmupSeconds,
+                      int durationSeconds,
+                      Map<Operation, Integer> mix,
+                      Path reportDir) {
+
+    // The exec jar `mvn package` builds in the parent project, started by --local
+    static final String DEFAULT_LOCAL_JAR = "../target/java-be-book-manager-api-0.0.1-SNAPSHOT-exec.jar";
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals), equals < 0 ? "" : arg.substring(equals + 1));
+        }
+
+        String localJar = options.get("local");
+        String localArgs = options.getOrDefault("local-args", "").trim();
+
+        return new LoadTestConfig(
+                URI.create(options.getOrDefault("url", "http://localhost:8080")),
+                localJar == null ? null : Path.of(localJar.isEmpty() ? DEFAULT_LOCAL_JAR : localJar),
+                localArgs.isEmpty() ? List.of() : List.of(localArgs.split("\\s+")),
+                Integer.parseInt(options.getOrDefault("seed", "10000")),
+                Integer.parseInt(options.getOrDefault("discover", "0")),
+                Integer.parseInt(options.getOrDefault("rate", "500")),
+                Integer.parseInt(options.getOrDefault("warmup", "10")),
+                Integer.parseInt(options.getOrDefault("duration", "60")),
+                parseMix(options.getOrDefault("mix", Operation.DEFAULT_MIX)),
+                Path.of(options.getOrDefault("report-dir", "target/loadtest")));
+    }
+
+    LoadTestConfig withBaseUrl(URI url) {
+        return new LoadTestConfig(url, localJar, localArgs, seed, discover, rate, warmupSeconds, durationSeconds, mix, reportDir);
+    }
+
+    // e.g. "get:60,list:15,genre:5,create:10,update:7,delete:3"
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            weights.put(Operation.fromName(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,29 @@
+package com.northcoders.bookmanagerapi.loadtest;
+
+import java.util.Arrays;
+
+// One per BookManagerController endpoint exercised by the mix
+enum Operation {
+    GET("get"),
+    LIST("list"),
+    GENRE("genre"),
+    CREATE("create"),
+    UPDATE("update"),
+    DELETE("delete");
+
+    // Read-heavy, roughly what the mobile clients send
+    static final String DEFAULT_MIX = "get:60,list:15,genre:5,create:10,update:7,delete:3";
+
+    final String optionName;
+
+    Operation(String optionName) {
+        this.optionName = optionName;
+    }
+
+    static Operation fromName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.optionName.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + name));
+    }
+}
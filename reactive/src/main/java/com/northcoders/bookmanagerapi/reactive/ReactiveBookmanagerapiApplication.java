@@ -0,0 +1,13 @@
+package com.northcoders.bookmanagerapi.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveBookmanagerapiApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveBookmanagerapiApplication.class, args);
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.northcoders.bookmanagerapi.reactive.controller;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.reactive.service.ReactiveBookManagerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/book")
+public class ReactiveBookManagerController {
+
+    @Autowired
+    ReactiveBookManagerService reactiveBookManagerService;
+
+    // A JSON array by default; with `Accept: application/x-ndjson` each row is written as soon as the
+    // client has demand for it, so large listings are streamed with backpressure instead of buffered
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Book> getAllBooks(@RequestParam(required = false) Genre genre) {
+
+        if (genre != null) {
+            return reactiveBookManagerService.getBooksByGenre(genre);
+        }
+
+        return reactiveBookManagerService.getAllBooks();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Book>> getBookById(@PathVariable Long id) {
+        return reactiveBookManagerService.getBookById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.northcoders.bookmanagerapi.reactive.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Deleted books stay in the table as change-feed tombstones, so every read filters them out
+@Repository
+public interface ReactiveBookManagerRepository extends ReactiveCrudRepository<Book, Long> {
+
+    @Override
+    @Query("select * from book where deleted = false")
+    Flux<Book> findAll();
+
+    @Override
+    @Query("select * from book where id = :id and deleted = false")
+    Mono<Book> findById(Long id);
+
+    @Query("select * from book where genre = :genre and deleted = false")
+    Flux<Book> findByGenre(Genre genre);
+}
@@ -0,0 +1,14 @@
+package com.northcoders.bookmanagerapi.reactive.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBookManagerService {
+
+    Flux<Book> getAllBooks();
+    Flux<Book> getBooksByGenre(Genre genre);
+
+    Mono<Book> getBookById(Long id);
+}
@@ -0,0 +1,32 @@
+package com.northcoders.bookmanagerapi.reactive.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.reactive.repository.ReactiveBookManagerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class ReactiveBookManagerServiceImpl implements ReactiveBookManagerService {
+
+    @Autowired
+    ReactiveBookManagerRepository reactiveBookManagerRepository;
+
+    @Override
+    public Flux<Book> getAllBooks() {
+        return reactiveBookManagerRepository.findAll();
+    }
+
+    @Override
+    public Flux<Book> getBooksByGenre(Genre genre) {
+        return reactiveBookManagerRepository.findByGenre(genre);
+    }
+
+    @Override
+    public Mono<Book> getBookById(Long id) {
+        return reactiveBookManagerRepository.findById(id);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.northcoders.bookmanagerapi.reactive.controller;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.Matchers.hasSize;
+
+@AutoConfigureWebTestClient
+@SpringBootTest
+public class ReactiveBookManagerControllerTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    public void setup() {
+        databaseClient.sql("delete from book").then()
+                .thenMany(Flux.just(
+                        new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education),
+                        new Book(2L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fantasy),
+                        new Book(3L, "Book Three", "This is the description for Book Three", "Person Three", Genre.Fantasy)))
+                .concatMap(book -> databaseClient
+                        .sql("insert into book (id, title, description, author, genre) values (:id, :title, :description, :author, :genre)")
+                        .bind("id", book.getId())
+                        .bind("title", book.getTitle())
+                        .bind("description", book.getDescription())
+                        .bind("author", book.getAuthor())
+                        .bind("genre", book.getGenre().name())
+                        .then())
+                .blockLast();
+    }
+
+    @Test
+    public void testGetAllBooks_ReturnsBooks() {
+        webTestClient.get().uri("/api/v1/book")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.[*]").value(hasSize(3));
+    }
+
+    @Test
+    public void testGetAllBooks_StreamsNdjsonWithGivenGenre() {
+        Flux<Book> books = webTestClient.get().uri("/api/v1/book?genre=Fantasy")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Book.class)
+                .getResponseBody();
+
+        StepVerifier.create(books.map(Book::getTitle))
+                .expectNext("Book Two", "Book Three")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testGetBookById_ReturnsBook() {
+        webTestClient.get().uri("/api/v1/book/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Book One")
+                .jsonPath("$.genre").isEqualTo(Genre.Education.toString());
+    }
+
+    @Test
+    public void testGetBookById_Returns404WhenBookNotFound() {
+        webTestClient.get().uri("/api/v1/book/4")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+}
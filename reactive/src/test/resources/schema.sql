@@ -0,0 +1,13 @@
+-- Same shape as the servlet application's Flyway migrations
+create table if not exists book (
+    id bigint not null,
+    title varchar(255),
+    description varchar(255),
+    author varchar(255),
+    genre varchar(32),
+    version bigint default 0 not null,
+    change_seq bigint,
+    updated_at timestamp(6) with time zone default current_timestamp not null,
+    deleted boolean default false not null,
+    primary key (id)
+);
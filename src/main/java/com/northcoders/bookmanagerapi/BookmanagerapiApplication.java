@@ -2,8 +2,14 @@ package com.northcoders.bookmanagerapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+// Caching wraps the transaction advice, so a cache hit never opens a transaction or borrows a connection
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+@EnableScheduling
 public class BookmanagerapiApplication {
 
 	public static void main(String[] args) {
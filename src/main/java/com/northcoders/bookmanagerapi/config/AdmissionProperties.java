@@ -0,0 +1,41 @@
+package com.northcoders.bookmanagerapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Per-route request limits applied by BookAdmissionInterceptor. Routes are keyed by controller method name in kebab
+// case (getAllBooks -> get-all-books); routes without an entry are not limited.
+@Data
+@ConfigurationProperties("book.admission")
+public class AdmissionProperties {
+
+    boolean enabled = true;
+
+    // Token buckets are kept per client and route; idle ones expire, and at most this many are kept
+    long maxClients = 100_000;
+
+    Duration clientIdleTimeout = Duration.ofMinutes(10);
+
+    Map<String, Route> routes = new HashMap<>();
+
+    @Data
+    public static class Route {
+
+        // Per client: sustained requests per second and how many may arrive at once; 0 turns the rate limit off
+        double rate;
+
+        int burst = 1;
+
+        // Across clients: concurrent requests, adapted between these bounds; 0 turns the concurrency limit off
+        int maxConcurrency;
+
+        int minConcurrency = 1;
+
+        // Responses slower than this shrink the concurrency limit
+        Duration latencyThreshold = Duration.ofSeconds(1);
+    }
+}
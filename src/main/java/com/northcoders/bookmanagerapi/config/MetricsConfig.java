@@ -0,0 +1,17 @@
+package com.northcoders.bookmanagerapi.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Kept off BookmanagerapiApplication so slice tests (e.g. @DataJpaTest), which have no MeterRegistry, still start
+@Configuration
+public class MetricsConfig {
+
+    // Backs @Timed outside web requests, e.g. on BookManagerServiceImpl
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.northcoders.bookmanagerapi.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// For deployments where more than one instance writes books (`book.single-writer=false`). Hibernate invalidates a cached
+// findByGenre result only on this instance's own writes, while the catalogue ETag moves with every instance's writes:
+// a client could be handed a stale genre listing under the new ETag and then be told it is current. With the query
+// cache off, genre listings are always read from the table. The entity cache stays, bounded by its expiry like the
+// `books` cache, since no listing is built from it once the query cache is gone.
+@Configuration
+@ConditionalOnProperty(name = "book.single-writer", havingValue = "false")
+public class MultiWriterConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer multiWriterHibernateProperties() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, false);
+    }
+}
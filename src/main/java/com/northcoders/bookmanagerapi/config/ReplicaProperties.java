@@ -0,0 +1,38 @@
+package com.northcoders.bookmanagerapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read replicas behind ReplicaRoutingConfig. Each replica gets its own pool, sized by `spring.datasource.hikari.*`
+// like the primary's.
+@Data
+@ConfigurationProperties("book.replicas")
+public class ReplicaProperties {
+
+    boolean enabled;
+
+    List<Replica> replicas = new ArrayList<>();
+
+    // Replicas further behind the primary than this are skipped until they catch up
+    Duration maxLag = Duration.ofSeconds(5);
+
+    // Also how long reads stay on the primary after a write through this instance, see ReplicaLagMonitor
+    Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    // A lag check query that takes longer counts the database as unreachable until the next check
+    Duration lagCheckTimeout = Duration.ofSeconds(2);
+
+    @Data
+    public static class Replica {
+
+        String url;
+
+        String username;
+
+        String password;
+    }
+}
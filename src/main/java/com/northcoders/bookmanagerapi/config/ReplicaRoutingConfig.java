@@ -0,0 +1,106 @@
+package com.northcoders.bookmanagerapi.config;
+
+import com.northcoders.bookmanagerapi.controller.ReadYourWritesFilter;
+import com.northcoders.bookmanagerapi.repository.ReplicaLagMonitor;
+import com.northcoders.bookmanagerapi.repository.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Opt-in read replicas (`book.replicas.enabled`). The application's DataSource becomes a ReplicaRoutingDataSource
+// over the primary (`spring.datasource.*`) and `book.replicas.replicas`, so @Transactional(readOnly = true) service
+// calls are served by replicas and writes, Flyway included, by the primary.
+@Configuration
+@ConditionalOnProperty(name = "book.replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+    static final String LAG_METRIC = "book.replicas.lag";
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties, Environment environment,
+                                              MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configurePool(primary, ReplicaRoutingDataSource.PRIMARY, environment, meterRegistry);
+        return primary;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource primaryDataSource, ReplicaProperties replicaProperties,
+                                               Environment environment, MeterRegistry meterRegistry) {
+        if (replicaProperties.getReplicas().isEmpty()) {
+            throw new IllegalStateException("book.replicas.enabled is set but no book.replicas.replicas are configured");
+        }
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaProperties.getReplicas().size(); i++) {
+            ReplicaProperties.Replica replica = replicaProperties.getReplicas().get(i);
+            String name = "replica-" + (i + 1);
+
+            HikariDataSource pool = new HikariDataSource();
+            configurePool(pool, name, environment, meterRegistry);
+            pool.setJdbcUrl(replica.getUrl());
+            pool.setUsername(replica.getUsername());
+            pool.setPassword(replica.getPassword());
+            pool.setReadOnly(true);
+            replicas.put(name, pool);
+        }
+
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(primaryDataSource, replicas,
+                replicaProperties.getMaxLag(), replicaProperties.getLagCheckTimeout(), System::nanoTime);
+        replicas.keySet().forEach(name -> Gauge.builder(LAG_METRIC, lagMonitor, monitor -> monitor.lagSeconds(name))
+                .tag("replica", name)
+                .baseUnit("seconds")
+                .register(meterRegistry));
+        return lagMonitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor,
+                                 MeterRegistry meterRegistry) {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicaLagMonitor, meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    // Registered for every request by Spring Boot, as a Filter bean
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter();
+    }
+
+    // Spring Boot has Hibernate hold a connection for the whole session, which open-in-view stretches over the whole
+    // request; a request that read first would then write through its replica connection. Released after each
+    // transaction instead, every transaction is routed on its own.
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandling() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    // Pool settings come from `spring.datasource.hikari.*`, as they would for Spring Boot's own pool
+    static void configurePool(HikariDataSource pool, String name, Environment environment, MeterRegistry meterRegistry) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    }
+}
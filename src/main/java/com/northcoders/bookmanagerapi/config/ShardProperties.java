@@ -0,0 +1,32 @@
+package com.northcoders.bookmanagerapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Sharded book storage behind ShardRoutingConfig. Shard 0 is `spring.datasource`; each of `databases` adds one more
+// shard, with its own pool sized by `spring.datasource.hikari.*`.
+@Data
+@ConfigurationProperties("book.shards")
+public class ShardProperties {
+
+    boolean enabled;
+
+    List<Database> databases = new ArrayList<>();
+
+    // Must differ between instances writing to the same shards, or two of them could hand out the same id. No default,
+    // so a second instance cannot start with the first one's by accident.
+    Integer workerId;
+
+    @Data
+    public static class Database {
+
+        String url;
+
+        String username;
+
+        String password;
+    }
+}
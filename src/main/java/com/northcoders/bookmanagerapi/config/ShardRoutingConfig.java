@@ -0,0 +1,97 @@
+package com.northcoders.bookmanagerapi.config;
+
+import com.northcoders.bookmanagerapi.repository.BookShards;
+import com.northcoders.bookmanagerapi.repository.ShardRoutingDataSource;
+import com.northcoders.bookmanagerapi.repository.SnowflakeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Opt-in sharded book storage (`book.shards.enabled`). The application's DataSource becomes a ShardRoutingDataSource
+// over `spring.datasource.*` and `book.shards.databases`, every shard gets the Flyway migrations, and BookShards
+// tells the services which shard a book lives on. Cannot be combined with read replicas.
+@Configuration
+@ConditionalOnProperty(name = "book.shards.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardProperties.class)
+public class ShardRoutingConfig {
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties dataSourceProperties, ShardProperties shardProperties,
+                                                         Environment environment, MeterRegistry meterRegistry) {
+        if (environment.getProperty("book.replicas.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("book.shards.enabled and book.replicas.enabled cannot both be set");
+        }
+
+        List<DataSource> shards = new ArrayList<>();
+        HikariDataSource homeShard = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ReplicaRoutingConfig.configurePool(homeShard, "shard-0", environment, meterRegistry);
+        shards.add(homeShard);
+
+        for (ShardProperties.Database database : shardProperties.getDatabases()) {
+            HikariDataSource pool = new HikariDataSource();
+            ReplicaRoutingConfig.configurePool(pool, "shard-" + shards.size(), environment, meterRegistry);
+            pool.setJdbcUrl(database.getUrl());
+            pool.setUsername(database.getUsername());
+            pool.setPassword(database.getPassword());
+            shards.add(pool);
+        }
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(shards);
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public BookShards bookShards(ShardRoutingDataSource shardRoutingDataSource, ShardProperties shardProperties,
+                                 PlatformTransactionManager transactionManager) {
+        if (shardProperties.getWorkerId() == null) {
+            throw new IllegalStateException("book.shards.worker-id must be set, to a different value on every instance");
+        }
+        return new BookShards(shardRoutingDataSource.shardCount(),
+                new SnowflakeIdGenerator(shardProperties.getWorkerId(), System::currentTimeMillis), transactionManager);
+    }
+
+    // Migrates every shard in turn, through the routing DataSource Flyway is given
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> {
+            for (int shard = 0; shard < shardRoutingDataSource.shardCount(); shard++) {
+                ShardRoutingDataSource.onShard(shard, flyway::migrate);
+            }
+        };
+    }
+
+    // As with read replicas, connections are released after each transaction so every transaction picks its own
+    // shard. The query cache goes: its keys do not include the shard, so one shard's results would be served for
+    // another's. The entity cache stays, since ids are unique across shards.
+    @Bean
+    public HibernatePropertiesCustomizer shardedHibernateProperties() {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, false);
+        };
+    }
+}
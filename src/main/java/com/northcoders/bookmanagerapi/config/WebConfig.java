@@ -0,0 +1,26 @@
+package com.northcoders.bookmanagerapi.config;
+
+import com.northcoders.bookmanagerapi.controller.BookAdmissionInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    AdmissionProperties admissionProperties;
+
+    @Autowired
+    BookAdmissionInterceptor bookAdmissionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (admissionProperties.isEnabled()) {
+            registry.addInterceptor(bookAdmissionInterceptor).addPathPatterns("/api/**");
+        }
+    }
+}
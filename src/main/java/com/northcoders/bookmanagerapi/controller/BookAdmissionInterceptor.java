@@ -0,0 +1,176 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.bookmanagerapi.config.AdmissionProperties;
+import com.northcoders.bookmanagerapi.exception.ProblemTemplates;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Admission control in front of the API controllers, per route (see AdmissionProperties). A client over its route's
+// rate gets 429; a request that finds the route's concurrency limit full gets 503. Both carry Retry-After and the same
+// problem detail body as other errors, and expensive listings can then no longer hold every request thread while cheap
+// lookups wait behind them.
+@Component
+public class BookAdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    static final String ADMISSION_METRIC = "book.admission.requests";
+
+    static final String CONCURRENCY_LIMIT_METRIC = "book.admission.concurrency.limit";
+
+    static final String IN_FLIGHT_METRIC = "book.admission.concurrency.in.flight";
+
+    private static final String PERMIT_ATTRIBUTE = BookAdmissionInterceptor.class.getName() + ".permit";
+
+    // Shed requests retry once the in-flight ones have had a chance to finish
+    private static final long SHED_RETRY_AFTER_SECONDS = 1;
+
+    @Autowired
+    AdmissionProperties admissionProperties;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private TokenBucketRateLimiter rateLimiter;
+
+    private final Map<String, RouteLimits> routes = new HashMap<>();
+
+    private final Map<Method, Optional<RouteLimits>> routesByHandler = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void createLimits() {
+        rateLimiter = new TokenBucketRateLimiter(admissionProperties.getMaxClients(),
+                admissionProperties.getClientIdleTimeout(), System::nanoTime);
+        admissionProperties.getRoutes().forEach((name, route) -> routes.put(name, new RouteLimits(name, route)));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        // Admitted on the initial dispatch; the async dispatch that completes a streamed response passes through
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        Optional<RouteLimits> limits = routesByHandler.computeIfAbsent(handlerMethod.getMethod(),
+                method -> Optional.ofNullable(routes.get(routeName(method))));
+        if (limits.isEmpty()) {
+            return true;
+        }
+        RouteLimits route = limits.get();
+
+        if (route.rate > 0) {
+            long waitNanos = rateLimiter.tryAcquire(route.name + ' ' + request.getRemoteAddr(), route.rate, route.burst);
+            if (waitNanos > 0) {
+                route.rateLimited.increment();
+                long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000);
+                reject(request, response, HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds,
+                        "Too many requests to " + route.name + "; retry after " + retryAfterSeconds + "s");
+                return false;
+            }
+        }
+
+        if (route.concurrencyLimit != null) {
+            if (!route.concurrencyLimit.tryAcquire()) {
+                route.shed.increment();
+                reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, SHED_RETRY_AFTER_SECONDS,
+                        "Too many requests in flight for " + route.name + "; retry after " + SHED_RETRY_AFTER_SECONDS + "s");
+                return false;
+            }
+            request.setAttribute(PERMIT_ATTRIBUTE, new Permit(route.concurrencyLimit, System.nanoTime()));
+        }
+
+        route.accepted.increment();
+        return true;
+    }
+
+    // For streamed responses this runs after the async dispatch, so the permit covers the whole stream
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.concurrencyLimit.release(System.nanoTime() - permit.startNanos);
+        }
+    }
+
+    static String routeName(Method method) {
+        return method.getName().replaceAll("([a-z0-9])([A-Z])", "$1-$2").toLowerCase();
+    }
+
+    // Written here since the request never reaches a controller, so GlobalExceptionHandler cannot answer it
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                        long retryAfterSeconds, String detail) throws IOException {
+        ProblemDetail problemDetail = ProblemTemplates.of(status, detail);
+        problemDetail.setInstance(URI.create(request.getRequestURI()));
+
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), problemDetail);
+    }
+
+    private record Permit(AdaptiveConcurrencyLimit concurrencyLimit, long startNanos) {
+    }
+
+    private final class RouteLimits {
+
+        private final String name;
+
+        private final double rate;
+
+        private final int burst;
+
+        private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+        private final Counter accepted;
+
+        private final Counter rateLimited;
+
+        private final Counter shed;
+
+        private RouteLimits(String name, AdmissionProperties.Route route) {
+            this.name = name;
+            this.rate = route.getRate();
+            this.burst = Math.max(1, route.getBurst());
+            this.concurrencyLimit = route.getMaxConcurrency() > 0
+                    ? new AdaptiveConcurrencyLimit(Math.max(1, route.getMinConcurrency()), route.getMaxConcurrency(),
+                    route.getLatencyThreshold().toNanos())
+                    : null;
+
+            // Only the outcomes this route can have
+            this.accepted = meterRegistry.counter(ADMISSION_METRIC, "route", name, "outcome", "accepted");
+            this.rateLimited = rate > 0 ? meterRegistry.counter(ADMISSION_METRIC, "route", name, "outcome", "rate_limited") : null;
+            this.shed = concurrencyLimit != null ? meterRegistry.counter(ADMISSION_METRIC, "route", name, "outcome", "shed") : null;
+            if (concurrencyLimit != null) {
+                Gauge.builder(CONCURRENCY_LIMIT_METRIC, concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+                        .tag("route", name)
+                        .register(meterRegistry);
+                Gauge.builder(IN_FLIGHT_METRIC, concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+                        .tag("route", name)
+                        .register(meterRegistry);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookChange;
+import com.northcoders.bookmanagerapi.repository.BookShards;
+import com.northcoders.bookmanagerapi.service.BookManagerService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pushes change-feed entries to SSE subscribers. Subscribers that are caught up share one read per tick, from the
+// lowest of their cursors. A subscriber that is behind, such as a new one starting from the beginning, is backfilled
+// on its own until it reaches the end of the feed, so it never holds the others back.
+//
+// Sends run on the delivery executor, at most one delivery per subscriber at a time, so a slow client holds up
+// neither the poll nor the other subscribers. A send that takes longer than `book.changes.send-timeout` drops its
+// subscriber; the client reconnects with Last-Event-ID and resumes from the last change it received.
+@Component
+public class BookChangeNotifier {
+
+    static final int POLL_BATCH_SIZE = 500;
+
+    @Autowired
+    BookManagerService bookManagerService;
+
+    @Autowired(required = false)
+    BookShards bookShards = BookShards.UNSHARDED;
+
+    @Value("${book.changes.sse-timeout:30m}")
+    Duration sseTimeout = Duration.ofMinutes(30);
+
+    @Value("${book.changes.send-timeout:10s}")
+    Duration sendTimeout = Duration.ofSeconds(10);
+
+    Executor deliveryExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("book-changes-", 0).factory());
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    public SseEmitter subscribe(long sinceChangeSeq) {
+        // Refused up front, rather than failing on every poll once subscribed
+        bookShards.requireUnsharded("The change feed");
+        bookManagerService.checkChangesRetained(sinceChangeSeq);
+
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, sinceChangeSeq);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${book.changes.poll-interval:PT1S}")
+    public void poll() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<Subscriber> caughtUp = new ArrayList<>();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.busy.get()) {
+                long sendStarted = subscriber.sendStartedNanos;
+                if (sendStarted != 0 && now - sendStarted > sendTimeout.toNanos()) {
+                    drop(subscriber, new TimeoutException("No change sent within " + sendTimeout));
+                }
+            } else if (subscriber.caughtUp) {
+                caughtUp.add(subscriber);
+            } else {
+                deliver(subscriber, () -> backfill(subscriber));
+            }
+        }
+
+        if (caughtUp.isEmpty()) {
+            return;
+        }
+
+        long lowestCursor = caughtUp.stream().mapToLong(subscriber -> subscriber.cursor).min().getAsLong();
+        List<Book> changedBooks = bookManagerService.getChangesSince(lowestCursor, POLL_BATCH_SIZE);
+        boolean fullBatch = changedBooks.size() == POLL_BATCH_SIZE;
+
+        for (Subscriber subscriber : caughtUp) {
+            // A full batch may not reach the end of the feed; the rest comes from a backfill next tick
+            subscriber.caughtUp = !fullBatch;
+            if (!changedBooks.isEmpty() && changedBooks.getLast().getChangeSeq() > subscriber.cursor) {
+                deliver(subscriber, () -> send(subscriber, changedBooks));
+            }
+        }
+    }
+
+    @PreDestroy
+    void stopDelivery() {
+        if (deliveryExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void backfill(Subscriber subscriber) throws IOException {
+        List<Book> changedBooks;
+        do {
+            changedBooks = bookManagerService.getChangesSince(subscriber.cursor, POLL_BATCH_SIZE);
+            send(subscriber, changedBooks);
+        } while (changedBooks.size() == POLL_BATCH_SIZE);
+        subscriber.caughtUp = true;
+    }
+
+    private void send(Subscriber subscriber, List<Book> changedBooks) throws IOException {
+        for (Book book : changedBooks) {
+            if (book.getChangeSeq() > subscriber.cursor) {
+                subscriber.sendStartedNanos = System.nanoTime();
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(BookManagerController.encodeChangeToken(book.getChangeSeq()))
+                        .name("change")
+                        .data(BookChange.of(book)));
+                subscriber.sendStartedNanos = 0;
+                subscriber.cursor = book.getChangeSeq();
+            }
+        }
+    }
+
+    // Called on the poll thread only, so the busy check there and the claim here cannot race
+    private void deliver(Subscriber subscriber, Delivery delivery) {
+        if (!subscriber.busy.compareAndSet(false, true)) {
+            return;
+        }
+
+        deliveryExecutor.execute(() -> {
+            subscriber.sender = Thread.currentThread();
+            try {
+                delivery.run();
+            } catch (IOException | RuntimeException e) {
+                // Client went away, or the feed could not be read; the emitter's completion callback is not
+                // guaranteed to fire in either case
+                drop(subscriber, e);
+            } finally {
+                subscriber.sendStartedNanos = 0;
+                subscriber.sender = null;
+                subscriber.busy.set(false);
+            }
+        });
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+
+        // Interrupting the stuck send is what frees its thread; completing the emitter takes the emitter's lock, which
+        // that send may hold, so it is left to the delivery executor rather than the poll thread
+        Thread sender = subscriber.sender;
+        if (sender != null && sender != Thread.currentThread()) {
+            sender.interrupt();
+        }
+        deliveryExecutor.execute(() -> subscriber.emitter.completeWithError(cause));
+    }
+
+    @FunctionalInterface
+    private interface Delivery {
+
+        void run() throws IOException;
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        // At most one delivery runs at a time, so only that delivery advances the cursor
+        private volatile long cursor;
+
+        // New subscribers are backfilled before they share the poll's read
+        private volatile boolean caughtUp;
+
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        // When the send in progress started, or 0 between sends
+        private volatile long sendStartedNanos;
+
+        private volatile Thread sender;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.model.BookExportSnapshot;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.service.BookExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+// The whole catalogue as a file, streamed as it is read rather than built up in memory first
+@RestController
+@RequestMapping("/api/v1/book/export")
+public class BookExportController {
+
+    @Autowired
+    BookExportService bookExportService;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "ndjson") String format) {
+        Optional<BookImportJob.Format> exportFormat = parseFormat(format);
+
+        if (exportFormat.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        boolean csv = exportFormat.get() == BookImportJob.Format.CSV;
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setContentType(csv ? MediaType.parseMediaType(BookImportController.TEXT_CSV_VALUE) : MediaType.APPLICATION_NDJSON);
+        httpHeaders.setContentDisposition(ContentDisposition.attachment().filename(csv ? "books.csv" : "books.ndjson").build());
+
+        StreamingResponseBody body = outputStream -> bookExportService.exportBooks(exportFormat.get(), outputStream);
+        return new ResponseEntity<>(body, httpHeaders, HttpStatus.OK);
+    }
+
+    // Written to book.export.snapshot-dir on this instance; the response names the file
+    @PostMapping("/snapshots")
+    public ResponseEntity<BookExportSnapshot> writeSnapshot() throws IOException {
+        return new ResponseEntity<>(bookExportService.writeSnapshot(), HttpStatus.CREATED);
+    }
+
+    static Optional<BookImportJob.Format> parseFormat(String format) {
+        return Arrays.stream(BookImportJob.Format.values())
+                .filter(value -> value.name().equals(format.toUpperCase(Locale.ROOT)))
+                .findFirst();
+    }
+}
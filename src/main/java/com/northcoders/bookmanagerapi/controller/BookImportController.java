@@ -0,0 +1,71 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.model.BookImportProgress;
+import com.northcoders.bookmanagerapi.service.BookImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Optional;
+
+// Bulk imports too large for POST /api/v1/book/batch: the file is accepted, then imported in the background
+@RestController
+@RequestMapping("/api/v1/book/imports")
+public class BookImportController {
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    @Autowired
+    BookImportService bookImportService;
+
+    @PostMapping(consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<BookImportProgress> importCsv(InputStream body) throws IOException {
+        return accepted(bookImportService.startImport(BookImportJob.Format.CSV, body));
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BookImportProgress> importNdjson(InputStream body) throws IOException {
+        return accepted(bookImportService.startImport(BookImportJob.Format.NDJSON, body));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BookImportProgress> getImport(@PathVariable Long id) {
+        Optional<BookImportProgress> progress = bookImportService.getImport(id);
+
+        if (progress.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        return new ResponseEntity<>(progress.get(), HttpStatus.OK);
+    }
+
+    // Continues a failed or interrupted job from its last committed chunk
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<BookImportProgress> resumeImport(@PathVariable Long id) {
+        if (bookImportService.getImport(id).isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        Optional<BookImportProgress> progress = bookImportService.resumeImport(id);
+
+        // Completed, or still running with a live heartbeat
+        if (progress.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+
+        return accepted(progress.get());
+    }
+
+    private static ResponseEntity<BookImportProgress> accepted(BookImportProgress progress) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setLocation(URI.create("/api/v1/book/imports/" + progress.getId()));
+        return new ResponseEntity<>(progress, httpHeaders, HttpStatus.ACCEPTED);
+    }
+}
@@ -1,27 +1,88 @@
 package com.northcoders.bookmanagerapi.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.northcoders.bookmanagerapi.exception.ResourceNotFoundException;
 import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookBatchResult;
+import com.northcoders.bookmanagerapi.model.BookChange;
+import com.northcoders.bookmanagerapi.model.BookChangePage;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookPage;
+import com.northcoders.bookmanagerapi.model.BookSearchHit;
+import com.northcoders.bookmanagerapi.model.BookSlice;
+import com.northcoders.bookmanagerapi.model.BookStats;
+import com.northcoders.bookmanagerapi.model.BookSummary;
 import com.northcoders.bookmanagerapi.model.Genre;
 import com.northcoders.bookmanagerapi.service.BookManagerService;
 import org.antlr.v4.runtime.misc.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/book")
 public class BookManagerController {
 
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final int MAX_SEARCH_PAGE_SIZE = 100;
+
+    static final int DEFAULT_CHANGES_LIMIT = 100;
+
+    // Deeper pages make the database skip this many rows on every request; keyset paging (`limit`/`after`) has no cap
+    static final int MAX_FILTER_OFFSET = 10_000;
+
+    // Each of these has an index (or is the primary key), so ORDER BY ... LIMIT can stop early
+    static final Set<String> FILTER_SORT_PROPERTIES = Set.of("id", "title", "author", "genre");
+
+    private static final String PAGE_TOKEN_PREFIX = "id:";
+
+    private static final String CHANGE_TOKEN_PREFIX = "seq:";
+
     @Autowired
     BookManagerService bookManagerService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    BookChangeNotifier bookChangeNotifier;
+
+    // A filter must narrow the rows to this many books through an index, see BookStatistics.estimateRows
+    @Value("${book.filter.max-unindexed-scan-rows:10000}")
+    long maxUnindexedScanRows = 10_000;
+
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks(@RequestParam(required = false) Genre genre) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<Book>> getAllBooks(@RequestParam(required = false) Genre genre, WebRequest webRequest) {
+
+        if (catalogueNotModified(webRequest)) {
+            return null;
+        }
 
         if (genre != null && !genre.toString().isBlank()) {
             return new ResponseEntity<>(bookManagerService.getBooksByGenre(genre), HttpStatus.OK);
@@ -30,54 +91,336 @@ public class BookManagerController {
         return new ResponseEntity<>(bookManagerService.getAllBooks(), HttpStatus.OK);
     }
 
+    // Lightweight listing for list views; the full entity, description included, is only served by /{id}
+    @GetMapping(params = {"view=summary", "!limit"})
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<BookSummary>> getBookSummaries(@RequestParam(required = false) Genre genre, WebRequest webRequest) {
+
+        if (catalogueNotModified(webRequest)) {
+            return null;
+        }
+
+        if (genre != null) {
+            return new ResponseEntity<>(bookManagerService.getBookSummariesByGenre(genre), HttpStatus.OK);
+        }
+
+        return new ResponseEntity<>(bookManagerService.getBookSummaries(), HttpStatus.OK);
+    }
+
+    @GetMapping(params = "limit")
+    @Transactional(readOnly = true)
+    public ResponseEntity<BookPage> getBooksPage(@RequestParam int limit,
+                                                 @RequestParam(required = false) String after,
+                                                 @RequestParam(required = false) Genre genre,
+                                                 @RequestParam(required = false) String view,
+                                                 WebRequest webRequest) {
+        // Pages always carry full books; answering `view=summary` with them would silently include the descriptions
+        if (view != null || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        Optional<Long> afterId = Optional.empty();
+        if (after != null) {
+            afterId = decodePageToken(after);
+            if (afterId.isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        if (catalogueNotModified(webRequest)) {
+            return null;
+        }
+
+        Slice<Book> slice = bookManagerService.getBooksAfter(genre, afterId.orElse(null), limit);
+        List<Book> books = slice.getContent();
+
+        String nextPageToken = slice.hasNext() ? encodePageToken(books.getLast().getId()) : null;
+        return new ResponseEntity<>(new BookPage(books, nextPageToken), HttpStatus.OK);
+    }
+
+    // Sort is a property name, descending with a leading '-'; ties are always broken by id so pages do not overlap
+    @GetMapping("/filter")
+    public ResponseEntity<BookSlice> filterBooks(@RequestParam(name = "genre", required = false) Set<Genre> genres,
+                                                 @RequestParam(name = "author", required = false) String authorPrefix,
+                                                 @RequestParam(name = "title", required = false) String titleContains,
+                                                 @RequestParam(required = false) Long minId,
+                                                 @RequestParam(required = false) Long maxId,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "20") int size,
+                                                 @RequestParam(defaultValue = "id") String sort) {
+        Optional<Sort> filterSort = parseFilterSort(sort);
+
+        if (filterSort.isEmpty() || page < 0 || size < 1 || size > MAX_PAGE_SIZE || (long) page * size > MAX_FILTER_OFFSET) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        BookFilter filter = new BookFilter(genres, authorPrefix, titleContains, minId, maxId);
+
+        // A filter no index narrows enough would read most of the table, so it is only allowed while the table is small
+        if (bookManagerService.estimateBooks(filter) > maxUnindexedScanRows) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        Slice<Book> slice = bookManagerService.filterBooks(filter, PageRequest.of(page, size, filterSort.get()));
+        return new ResponseEntity<>(new BookSlice(slice.getContent(), page, size, slice.hasNext()), HttpStatus.OK);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+        ObjectWriter writer = objectMapper.writerFor(Book.class);
+
+        StreamingResponseBody body = outputStream -> bookManagerService.streamAllBooks(book -> writeLine(writer, book, outputStream));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<BookSearchHit>> searchBooks(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "0") int page,
+                                                           @RequestParam(defaultValue = "20") int size) {
+        if (q.isBlank() || page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return new ResponseEntity<>(bookManagerService.searchBooks(q, page, size), HttpStatus.OK);
+    }
+
+    // Served from in-memory counters, see BookStatistics. Authors are capped to the top ones unless `author` asks for one.
+    @GetMapping("/stats")
+    public ResponseEntity<BookStats> getStatistics(@RequestParam(required = false) String author) {
+        BookStats stats = author == null ? bookManagerService.getStatistics() : bookManagerService.getStatistics(author);
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    // Incremental sync: books created, updated or deleted since the `since` token (from the start when absent)
+    @GetMapping("/changes")
+    public ResponseEntity<BookChangePage> getChanges(@RequestParam(required = false) String since,
+                                                     @RequestParam(defaultValue = "" + DEFAULT_CHANGES_LIMIT) int limit) {
+        Optional<Long> sinceChangeSeq = since == null ? Optional.of(0L) : decodeChangeToken(since);
+
+        if (sinceChangeSeq.isEmpty() || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<Book> changedBooks = bookManagerService.getChangesSince(sinceChangeSeq.get(), limit);
+        long nextChangeSeq = changedBooks.isEmpty() ? sinceChangeSeq.get() : changedBooks.getLast().getChangeSeq();
+
+        List<BookChange> changes = changedBooks.stream().map(BookChange::of).toList();
+        return new ResponseEntity<>(new BookChangePage(changes, encodeChangeToken(nextChangeSeq)), HttpStatus.OK);
+    }
+
+    // Push variant of /changes: each event carries one BookChange and its token as the event id, so a reconnecting
+    // EventSource resumes through Last-Event-ID
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestParam(required = false) String since,
+                                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        String token = lastEventId != null ? lastEventId : since;
+        Optional<Long> sinceChangeSeq = token == null ? Optional.of(0L) : decodeChangeToken(token);
+
+        if (sinceChangeSeq.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return new ResponseEntity<>(bookChangeNotifier.subscribe(sinceChangeSeq.get()), HttpStatus.OK);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Book> getBookById(@PathVariable String id) {
-        Optional<Book> bookFound = bookManagerService.getBookById(Long.parseLong(id));
+    public ResponseEntity<Book> getBookById(@PathVariable String id, WebRequest webRequest) {
+        Book bookFound = bookManagerService.getBookById(Long.parseLong(id));
 
-        if (bookFound.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        // Answered before serialization; with a cache hit the 304 costs no database round-trip either
+        if (webRequest.checkNotModified(bookETag(bookFound))) {
+            return null;
         }
 
-        return new ResponseEntity<>(bookFound.get(), HttpStatus.OK);
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setETag(bookETag(bookFound));
+        return new ResponseEntity<>(bookFound, httpHeaders, HttpStatus.OK);
     }
 
     @PostMapping
     public ResponseEntity<Book> addBook(@RequestBody Book book) {
-        Optional<Book> newBook = bookManagerService.insertBook(book);
-
-        if (newBook.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.CONFLICT);
-        }
+        Book newBook = bookManagerService.insertBook(book);
 
         HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add("book", "/api/v1/book/" + newBook.get().getId().toString());
-        return new ResponseEntity<>(newBook.get(), httpHeaders, HttpStatus.CREATED);
+        httpHeaders.add("book", "/api/v1/book/" + newBook.getId().toString());
+        httpHeaders.setETag(bookETag(newBook));
+        return new ResponseEntity<>(newBook, httpHeaders, HttpStatus.CREATED);
+    }
+
+    // CBOR arrives as the same List<Book>; the Jackson CBOR converter is registered whenever it is on the classpath
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<List<BookBatchResult>> addBooks(@RequestBody List<Book> books) {
+        return new ResponseEntity<>(bookManagerService.insertBooks(books.iterator()), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BookBatchResult>> addBooksFromNdjson(InputStream body) throws IOException {
+        // Parsed lazily, so only one chunk of the feed is held in memory at a time
+        try (MappingIterator<Book> books = objectMapper.readerFor(Book.class).readValues(body)) {
+            return new ResponseEntity<>(bookManagerService.insertBooks(books), HttpStatus.OK);
+        }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Book> updateBook(@PathVariable String id, @RequestBody Book book) {
-        Optional<Book> updatedBook = bookManagerService.replaceBook(Long.parseLong(id), book);
+    public ResponseEntity<Book> updateBook(@PathVariable String id, @RequestBody Book book,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Book updatedBook;
 
-        if (updatedBook.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        if (ifMatch == null) {
+            updatedBook = bookManagerService.replaceBook(Long.parseLong(id), book);
+        } else if (ifMatch.equals("*")) {
+            // `*` matches any current representation, so without one the precondition fails (RFC 9110, 13.1.1)
+            try {
+                updatedBook = bookManagerService.replaceBook(Long.parseLong(id), book);
+            } catch (ResourceNotFoundException e) {
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+        } else {
+            // If-Match uses strong comparison, so weak or malformed tags can never match
+            Set<Long> expectedVersions = parseBookETags(ifMatch);
+            if (expectedVersions.isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+            updatedBook = bookManagerService.replaceBook(Long.parseLong(id), book, expectedVersions);
         }
 
         HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add("book", "/api/v1/book/" + updatedBook.get().getId().toString());
-        return new ResponseEntity<>(updatedBook.get(), httpHeaders, HttpStatus.OK);
+        httpHeaders.add("book", "/api/v1/book/" + updatedBook.getId().toString());
+        httpHeaders.setETag(bookETag(updatedBook));
+        return new ResponseEntity<>(updatedBook, httpHeaders, HttpStatus.OK);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBookById(@PathVariable String id) {
-        Optional<Book> deletedBook = bookManagerService.deleteBookById(Long.parseLong(id));
-
-        if (deletedBook.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
+        bookManagerService.deleteBookById(Long.parseLong(id));
 
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.remove("book");
         return new ResponseEntity<>(httpHeaders, HttpStatus.NO_CONTENT);
     }
 
+    static String bookETag(Book book) {
+        return "\"" + book.getVersion() + "\"";
+    }
+
+    // The versions named by an If-Match list of entity-tags, any of which may match (RFC 9110, 13.1.1). Weak tags and
+    // ones this API did not issue are left out; a malformed list names none.
+    static Set<Long> parseBookETags(String ifMatch) {
+        Set<Long> versions = new LinkedHashSet<>();
+        int position = skipListSeparators(ifMatch, 0);
+        while (position < ifMatch.length()) {
+            boolean weak = ifMatch.startsWith("W/", position);
+            int open = weak ? position + 2 : position;
+            int close = ifMatch.indexOf('"', open + 1);
+            if (open >= ifMatch.length() || ifMatch.charAt(open) != '"' || close < 0) {
+                return Set.of();
+            }
+            if (!weak) {
+                parseBookETag(ifMatch.substring(open, close + 1)).ifPresent(versions::add);
+            }
+
+            // Each tag ends the list or is followed by a comma
+            position = skipWhitespace(ifMatch, close + 1);
+            if (position < ifMatch.length() && ifMatch.charAt(position) != ',') {
+                return Set.of();
+            }
+            position = skipListSeparators(ifMatch, position);
+        }
+        return versions;
+    }
+
+    // Lists may have empty elements and whitespace around the commas (RFC 9110, 5.6.1)
+    private static int skipListSeparators(String list, int position) {
+        while (position < list.length() && (list.charAt(position) == ',' || isWhitespace(list.charAt(position)))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int skipWhitespace(String list, int position) {
+        while (position < list.length() && isWhitespace(list.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static Optional<Long> parseBookETag(String eTag) {
+        if (eTag.length() < 3 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.parseLong(eTag.substring(1, eTag.length() - 1)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Weak: the same catalogue version backs every listing variant (filters, pages, media types). It is the latest
+    // change sequence value in the database, so every instance issues the same tag; with the read model on, it is the
+    // read model's position instead (see BookReadModel.version). Callers read it in the read-only
+    // transaction that then reads the body, so both come from the same database, with read replicas on too; read
+    // first, the tag is never ahead of the body it is sent with.
+    private boolean catalogueNotModified(WebRequest webRequest) {
+        String eTag = "W/\"" + bookManagerService.getCatalogueVersion() + "\"";
+        return webRequest.checkNotModified(eTag);
+    }
+
+    static Optional<Sort> parseFilterSort(String sort) {
+        boolean descending = sort.startsWith("-");
+        String property = descending ? sort.substring(1) : sort;
+
+        if (!FILTER_SORT_PROPERTIES.contains(property)) {
+            return Optional.empty();
+        }
+
+        Sort filterSort = Sort.by(descending ? Sort.Direction.DESC : Sort.Direction.ASC, property);
+        return Optional.of(property.equals("id") ? filterSort : filterSort.and(Sort.by("id")));
+    }
+
+    static String encodePageToken(Long lastId) {
+        return encodeToken(PAGE_TOKEN_PREFIX, lastId);
+    }
+
+    static Optional<Long> decodePageToken(String token) {
+        return decodeToken(PAGE_TOKEN_PREFIX, token);
+    }
+
+    static String encodeChangeToken(long changeSeq) {
+        return encodeToken(CHANGE_TOKEN_PREFIX, changeSeq);
+    }
+
+    static Optional<Long> decodeChangeToken(String token) {
+        return decodeToken(CHANGE_TOKEN_PREFIX, token);
+    }
+
+    private static String encodeToken(String prefix, long value) {
+        byte[] token = (prefix + value).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    private static Optional<Long> decodeToken(String prefix, String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(prefix)) {
+                return Optional.empty();
+            }
+            return Optional.of(Long.parseLong(decoded.substring(prefix.length())));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void writeLine(ObjectWriter writer, Book book, OutputStream outputStream) {
+        try {
+            outputStream.write(writer.writeValueAsBytes(book));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
@@ -0,0 +1,62 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.repository.ReadYourWrites;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Carries ReadYourWrites between a client's requests, with read replicas on (see ReplicaRoutingConfig). The cookie
+// holds the wall-clock time of the client's last write, in epoch milliseconds, set as the write commits and before
+// the response body goes out. Whichever instance serves the next request turns it back into a time on its own
+// System.nanoTime() clock, so instances' wall clocks are assumed to agree to well within the lag check interval.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "book-written-at";
+
+    // Bounds the conversion; a write older than this is long since on every replica that is not too far behind
+    private static final long MAX_AGE_MILLIS = Duration.ofDays(1).toMillis();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadYourWrites.begin(writtenAt(request),
+                () -> response.addHeader(HttpHeaders.SET_COOKIE, cookie(System.currentTimeMillis()).toString()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.end();
+        }
+    }
+
+    static ResponseCookie cookie(long writtenAtMillis) {
+        return ResponseCookie.from(COOKIE, Long.toString(writtenAtMillis)).path("/").httpOnly(true).sameSite("Lax")
+                .build();
+    }
+
+    // A missing or unreadable cookie asks for nothing, as for a client that has not written. A time ahead of this
+    // instance's clock counts as now.
+    private static long writtenAt(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return ReadYourWrites.NOTHING_WRITTEN;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    long ageMillis = System.currentTimeMillis() - Long.parseLong(cookie.getValue());
+                    return System.nanoTime() - Math.clamp(ageMillis, 0, MAX_AGE_MILLIS) * 1_000_000;
+                } catch (NumberFormatException e) {
+                    return ReadYourWrites.NOTHING_WRITTEN;
+                }
+            }
+        }
+        return ReadYourWrites.NOTHING_WRITTEN;
+    }
+}
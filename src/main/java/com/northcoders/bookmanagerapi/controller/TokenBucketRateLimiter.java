@@ -0,0 +1,42 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token buckets kept as a single timestamp each (the generic cell rate algorithm): a bucket is the time at which it
+// would be full again, so taking a token is one compare-and-set, with no refill thread and no lock.
+final class TokenBucketRateLimiter {
+
+    private final Cache<String, AtomicLong> buckets;
+
+    private final LongSupplier nanoClock;
+
+    TokenBucketRateLimiter(long maxBuckets, Duration idleTimeout, LongSupplier nanoClock) {
+        this.buckets = Caffeine.newBuilder().maximumSize(maxBuckets).expireAfterAccess(idleTimeout).build();
+        this.nanoClock = nanoClock;
+    }
+
+    // Returns 0 when a token was taken, otherwise how many nanoseconds until the next one
+    long tryAcquire(String key, double rate, int burst) {
+        long interval = (long) (1_000_000_000 / rate);
+        long tolerance = interval * (burst - 1);
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now);
+
+            if (next - now > tolerance) {
+                return next - now - tolerance;
+            }
+            if (fullAt.compareAndSet(current, next + interval)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.northcoders.bookmanagerapi.exception;
+
+// A change feed token from before the newest purged tombstone: changes after it may include deletes that are gone
+// (see BookChangeSequencer), so the client has to start over. Like ResourceException, it skips the stack trace.
+public class ChangesPurgedException extends RuntimeException {
+
+    public ChangesPurgedException() {
+        super("Changes after this token are no longer kept; start again without `since`", null, false, false);
+    }
+}
@@ -1,46 +1,62 @@
 package com.northcoders.bookmanagerapi.exception;
 
-import com.northcoders.bookmanagerapi.model.exception.ErrorResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
-import java.time.LocalDateTime;
-
+// Error responses are RFC 7807 problem details (application/problem+json), copied from ProblemTemplates
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler(value = ResourceAlreadyExistsException.class)
-    public ResponseEntity<ErrorResponse> handleResourceAlreadyExistsException(ResourceAlreadyExistsException e) {
-        ErrorResponse errorResponse = ErrorResponse.builder()
-                .status(HttpStatus.CONFLICT)
-                .message(e.getMessage())
+    static final String EXCEPTIONS_METRIC = "book.api.exceptions";
 
-                .build();
+    // The global registry stands in when the handler is used outside the application context
+    @Autowired
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
 
-        return new ResponseEntity<>(errorResponse, errorResponse.getStatus());
+    @ExceptionHandler(value = ResourceAlreadyExistsException.class)
+    public ResponseEntity<ProblemDetail> handleResourceAlreadyExistsException(ResourceAlreadyExistsException e) {
+        return problem(HttpStatus.CONFLICT, e);
     }
 
     @ExceptionHandler(value = ResourceNotFoundException.class)
-    public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException e) {
-        ErrorResponse errorResponse = ErrorResponse.builder()
-                .status(HttpStatus.NOT_FOUND)
-                .message(e.getMessage())
-                .build();
+    public ResponseEntity<ProblemDetail> handleResourceNotFoundException(ResourceNotFoundException e) {
+        return problem(HttpStatus.NOT_FOUND, e);
+    }
 
-        return new ResponseEntity<>(errorResponse, errorResponse.getStatus());
+    @ExceptionHandler(value = {ResourceVersionMismatchException.class, ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<ProblemDetail> handleResourceVersionMismatchException(RuntimeException e) {
+        return problem(HttpStatus.PRECONDITION_FAILED, e);
     }
 
+    @ExceptionHandler(value = ChangesPurgedException.class)
+    public ResponseEntity<ProblemDetail> handleChangesPurgedException(ChangesPurgedException e) {
+        return problem(HttpStatus.GONE, e);
+    }
+
+    @ExceptionHandler(value = UnsupportedOperationException.class)
+    public ResponseEntity<ProblemDetail> handleUnsupportedOperationException(UnsupportedOperationException e) {
+        return problem(HttpStatus.NOT_IMPLEMENTED, e);
+    }
 
     @ExceptionHandler(value = RuntimeException.class)
-    public ResponseEntity<ErrorResponse> handleRuntimeException(RuntimeException e) {
-        ErrorResponse errorResponse = ErrorResponse.builder()
-                .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .message(e.getMessage())
-                .build();
+    public ResponseEntity<ProblemDetail> handleRuntimeException(RuntimeException e) {
+        return problem(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
 
+    private ResponseEntity<ProblemDetail> problem(HttpStatus status, RuntimeException e) {
+        countException(e, status);
+        return new ResponseEntity<>(ProblemTemplates.of(status, e.getMessage()), status);
+    }
 
-        return new ResponseEntity<>(errorResponse, errorResponse.getStatus());
+    private void countException(RuntimeException e, HttpStatus status) {
+        meterRegistry.counter(EXCEPTIONS_METRIC, "exception", e.getClass().getSimpleName(),
+                "status", String.valueOf(status.value())).increment();
     }
 }
@@ -0,0 +1,39 @@
+package com.northcoders.bookmanagerapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// RFC 7807 bodies for error responses. Type, status and title only depend on the status, so they are filled in once
+// per status here; a response copies its status's template and adds the detail.
+public final class ProblemTemplates {
+
+    private static final Map<HttpStatus, ProblemDetail> TEMPLATES = new EnumMap<>(HttpStatus.class);
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            ProblemDetail template = ProblemDetail.forStatus(status);
+            template.setTitle(status.getReasonPhrase());
+            TEMPLATES.put(status, template);
+        }
+    }
+
+    private ProblemTemplates() {
+    }
+
+    public static ProblemDetail of(HttpStatus status, String detail) {
+        ProblemDetail problemDetail = new TemplatedProblemDetail(TEMPLATES.get(status));
+        problemDetail.setDetail(detail);
+        return problemDetail;
+    }
+
+    // ProblemDetail's copy constructor is only open to subclasses
+    private static final class TemplatedProblemDetail extends ProblemDetail {
+
+        private TemplatedProblemDetail(ProblemDetail template) {
+            super(template);
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.northcoders.bookmanagerapi.exception;
 
-public class ResourceAlreadyExistsException extends RuntimeException {
+public class ResourceAlreadyExistsException extends ResourceException {
     public ResourceAlreadyExistsException(String entityClassName, Object entityIdentifier) {
-        super(String.format("%s with ID %s already exists", entityClassName, entityIdentifier));
+        super(entityClassName, entityIdentifier);
+    }
+
+    @Override
+    protected String describeProblem() {
+        return " already exists";
     }
 }
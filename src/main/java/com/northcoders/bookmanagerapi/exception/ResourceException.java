@@ -0,0 +1,32 @@
+package com.northcoders.bookmanagerapi.exception;
+
+// Base for the failures that ordinary requests cause: scrapers probing ids make 404 the most common response. So
+// these skip the stack trace, which would only point at the same few frames, and build the message only when read.
+public abstract class ResourceException extends RuntimeException {
+
+    private final String entityClassName;
+
+    private final Object entityIdentifier;
+
+    protected ResourceException(String entityClassName, Object entityIdentifier) {
+        super(null, null, false, false);
+        this.entityClassName = entityClassName;
+        this.entityIdentifier = entityIdentifier;
+    }
+
+    public String getEntityClassName() {
+        return entityClassName;
+    }
+
+    public Object getEntityIdentifier() {
+        return entityIdentifier;
+    }
+
+    @Override
+    public String getMessage() {
+        return entityClassName + " with ID " + entityIdentifier + describeProblem();
+    }
+
+    // Completes "<entity> with ID <id>", e.g. " was not found"
+    protected abstract String describeProblem();
+}
@@ -1,7 +1,12 @@
 package com.northcoders.bookmanagerapi.exception;
 
-public class ResourceNotFoundException extends RuntimeException {
+public class ResourceNotFoundException extends ResourceException {
     public ResourceNotFoundException(String entityClassName, Object entityIdentifier) {
-        super(String.format("%s with ID %s was not found", entityClassName, entityIdentifier));
+        super(entityClassName, entityIdentifier);
+    }
+
+    @Override
+    protected String describeProblem() {
+        return " was not found";
     }
 }
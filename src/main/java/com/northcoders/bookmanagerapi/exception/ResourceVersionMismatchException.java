@@ -0,0 +1,21 @@
+package com.northcoders.bookmanagerapi.exception;
+
+import java.util.Collection;
+
+public class ResourceVersionMismatchException extends ResourceException {
+
+    private final Object expectedVersion;
+
+    public ResourceVersionMismatchException(String entityClassName, Object entityIdentifier, Object expectedVersion) {
+        super(entityClassName, entityIdentifier);
+        this.expectedVersion = expectedVersion;
+    }
+
+    // `expectedVersion` may also be a collection, when any of several versions would have done
+    @Override
+    protected String describeProblem() {
+        return expectedVersion instanceof Collection<?> expectedVersions
+                ? " is at none of versions " + expectedVersions
+                : " is no longer at version " + expectedVersion;
+    }
+}
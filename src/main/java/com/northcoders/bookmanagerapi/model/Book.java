@@ -1,24 +1,62 @@
 package com.northcoders.bookmanagerapi.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLRestriction;
 
+import java.io.Serializable;
+import java.time.Instant;
 
+
+// Schema is owned by the Flyway migrations in `db/migration`; the indexes are declared here for documentation/validation
 @Entity
+@Table(name = "book", indexes = {
+        @Index(name = "idx_book_genre", columnList = "genre"),
+        @Index(name = "idx_book_author", columnList = "author"),
+        @Index(name = "idx_book_title", columnList = "title"),
+        @Index(name = "idx_book_change_seq", columnList = "change_seq", unique = true),
+})
+// Deleted books stay behind as tombstones for the change feed until BookChangeSequencer purges them; only the
+// repository's native queries see them
+@SQLRestriction("deleted = false")
+// Second-level cache regions are sized in `application.conf`. The repository's update and delete statements are
+// bulk statements, so each one evicts the whole book region; inserts through save() add to it.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Book.CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class Book {
+public class Book implements Serializable {
+
+    public static final String CACHE_REGION = "book";
+
+    public static final String GENRE_QUERY_CACHE_REGION = "book-genre-queries";
 
+    private static final int ALLOCATION_SIZE = 50;
+
+    // Pooled sequence: one round-trip reserves ALLOCATION_SIZE ids, which also keeps JDBC insert batching intact
     @Id
-    @GeneratedValue
+    @org.springframework.data.annotation.Id // used by the R2DBC mapping in the reactive module
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = ALLOCATION_SIZE)
     @Column(updatable = false, nullable = false)
     Long id;
 
@@ -31,6 +69,39 @@ public class Book {
     @Column
     String author;
 
-    @Column
+    // Stored by name so reordering the Genre constants cannot silently remap existing rows
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
     Genre genre;
+
+    // Optimistic-locking version, replaced on every update; doubles as the book's ETag.
+    // Primitive so Spring Data still decides new-vs-existing by id rather than by a null version.
+    @Version
+    @Column(nullable = false)
+    long version;
+
+    // Change-feed bookkeeping: updatedAt is set by every write, changeSeq by BookChangeSequencer once the write
+    // commits. Hidden from the API representation and from the R2DBC mapping in the reactive module.
+    @JsonIgnore
+    @org.springframework.data.annotation.Transient
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    Long changeSeq;
+
+    @JsonIgnore
+    @org.springframework.data.annotation.Transient
+    @Column(insertable = false, updatable = false)
+    Instant updatedAt;
+
+    @JsonIgnore
+    @org.springframework.data.annotation.Transient
+    @Column(insertable = false, updatable = false)
+    boolean deleted;
+
+    public Book(Long id, String title, String description, String author, Genre genre) {
+        this(id, title, description, author, genre, 0L);
+    }
+
+    public Book(Long id, String title, String description, String author, Genre genre, long version) {
+        this(id, title, description, author, genre, version, null, null, false);
+    }
 }
@@ -0,0 +1,23 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResult {
+
+    public enum Status {
+        CREATED,
+        CONFLICT,
+    }
+
+    // Position of the book in the submitted batch
+    int index;
+
+    Long id;
+
+    Status status;
+}
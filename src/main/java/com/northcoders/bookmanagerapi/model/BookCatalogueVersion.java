@@ -0,0 +1,25 @@
+package com.northcoders.bookmanagerapi.model;
+
+import java.time.OffsetDateTime;
+
+// Projection returned by the catalogue version query: the latest sequenced change, and the committed writes still
+// waiting for a change_seq. value() moves with either, so a write changes the catalogue ETag as soon as it commits.
+public interface BookCatalogueVersion {
+
+    long getLatestChangeSeq();
+
+    long getPendingChanges();
+
+    // Null while nothing is pending
+    OffsetDateTime getLastPendingWrite();
+
+    default long value() {
+        if (getPendingChanges() == 0) {
+            return getLatestChangeSeq();
+        }
+        OffsetDateTime lastPendingWrite = getLastPendingWrite();
+        long pending = 31 * (31 * getPendingChanges() + lastPendingWrite.toEpochSecond()) + lastPendingWrite.getNano();
+        // Keeps clear of the plain change_seq values the version takes once everything is sequenced
+        return getLatestChangeSeq() ^ Long.rotateLeft(pending | 1, 32) ^ Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,26 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookChange {
+
+    Long id;
+
+    boolean deleted;
+
+    Instant updatedAt;
+
+    // Current state of the book, null for deletions
+    Book book;
+
+    public static BookChange of(Book book) {
+        return new BookChange(book.getId(), book.isDeleted(), book.getUpdatedAt(), book.isDeleted() ? null : book);
+    }
+}
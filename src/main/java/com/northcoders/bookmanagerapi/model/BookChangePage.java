@@ -0,0 +1,18 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookChangePage {
+
+    List<BookChange> changes;
+
+    // Opaque cursor to pass as `since` on the next call; unchanged when there were no new changes
+    String nextToken;
+}
@@ -0,0 +1,11 @@
+package com.northcoders.bookmanagerapi.model;
+
+// Projection returned by the statistics GROUP BY: the number of books per (genre, author) pair
+public interface BookCount {
+
+    Genre getGenre();
+
+    String getAuthor();
+
+    long getCount();
+}
@@ -0,0 +1,6 @@
+package com.northcoders.bookmanagerapi.model;
+
+// The (genre, author) pair a book is counted under in the statistics. The repository's replace and delete return
+// the pair the row had before the write, so the counters can move the book without a GROUP BY.
+public record BookCountKey(Genre genre, String author) {
+}
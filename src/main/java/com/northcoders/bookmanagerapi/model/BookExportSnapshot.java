@@ -0,0 +1,22 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookExportSnapshot {
+
+    // Name of the file within book.export.snapshot-dir
+    String file;
+
+    long rows;
+
+    long bytes;
+
+    Instant createdAt;
+}
@@ -0,0 +1,26 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+// Criteria for GET /api/v1/book/filter; null or empty fields do not filter
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookFilter {
+
+    Set<Genre> genres;
+
+    String authorPrefix;
+
+    String titleContains;
+
+    Long minId;
+
+    Long maxId;
+}
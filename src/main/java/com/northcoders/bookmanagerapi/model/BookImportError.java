@@ -0,0 +1,10 @@
+package com.northcoders.bookmanagerapi.model;
+
+// A row of an import file that could not be read as a book
+public interface BookImportError {
+
+    // 1-based record number within the file, not counting the CSV header
+    long getSourceRow();
+
+    String getMessage();
+}
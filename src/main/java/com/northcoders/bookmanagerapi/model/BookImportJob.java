@@ -0,0 +1,69 @@
+package com.northcoders.bookmanagerapi.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// A bulk import started through POST /api/v1/book/imports. Per-chunk progress lives in book_import_chunk,
+// see BookImportJobRepository.
+@Entity
+@Table(name = "book_import_job")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportJob {
+
+    public enum Format {
+        CSV,
+        NDJSON,
+    }
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_import_job_seq")
+    @SequenceGenerator(name = "book_import_job_seq", sequenceName = "book_import_job_seq", allocationSize = 1)
+    Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    Format format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    Status status;
+
+    // The uploaded file, kept on local disk until the job completes so a failed job can be resumed
+    @Column(length = 1024, nullable = false)
+    String spoolFile;
+
+    // Known once the whole file has been read
+    Long totalRows;
+
+    @Column(length = 2000)
+    String error;
+
+    @Column(nullable = false)
+    Instant createdAt;
+
+    // Advanced while the job runs; a RUNNING job whose heartbeat stops was interrupted and can be resumed
+    @Column(nullable = false)
+    Instant heartbeatAt;
+
+    Instant finishedAt;
+}
@@ -0,0 +1,47 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportProgress {
+
+    Long id;
+
+    BookImportJob.Format format;
+
+    BookImportJob.Status status;
+
+    long chunksCommitted;
+
+    long rowsImported;
+
+    // Rows whose id was already taken
+    long rowsConflicted;
+
+    // Rows that could not be read as a book
+    long rowsFailed;
+
+    // Null until the whole file has been read
+    Long totalRows;
+
+    // Committed rows over the time since the job was created
+    double rowsPerSecond;
+
+    Instant createdAt;
+
+    Instant updatedAt;
+
+    Instant finishedAt;
+
+    // Why the job failed, when it did
+    String error;
+
+    List<BookImportError> errors;
+}
@@ -0,0 +1,13 @@
+package com.northcoders.bookmanagerapi.model;
+
+// Projection summing the committed chunks of an import job
+public interface BookImportTotals {
+
+    long getChunks();
+
+    long getImported();
+
+    long getConflicted();
+
+    long getFailed();
+}
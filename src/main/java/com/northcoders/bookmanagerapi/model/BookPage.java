@@ -0,0 +1,18 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPage {
+
+    List<Book> books;
+
+    // Opaque cursor for the next page, null when this is the last page
+    String nextPageToken;
+}
@@ -0,0 +1,17 @@
+package com.northcoders.bookmanagerapi.model;
+
+// Projection returned by the full-text search query; description is replaced by a highlighted snippet
+public interface BookSearchHit {
+
+    Long getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    Genre getGenre();
+
+    Float getRank();
+
+    String getHighlight();
+}
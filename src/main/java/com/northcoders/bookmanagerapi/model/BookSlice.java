@@ -0,0 +1,22 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSlice {
+
+    List<Book> books;
+
+    int page;
+
+    int size;
+
+    // Whether page + 1 has any books; there is no total, so no count query is run
+    boolean hasNext;
+}
@@ -0,0 +1,27 @@
+package com.northcoders.bookmanagerapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStats {
+
+    long total;
+
+    Map<Genre, Long> genres;
+
+    // The authors with the most books, most first, capped at `book.stats.top-authors`
+    Map<String, Long> authors;
+
+    // Authors with at least one book, listed or not
+    long authorCount;
+
+    // When the counters were last rebuilt from the database; inserts on this instance are counted since then
+    Instant reconciledAt;
+}
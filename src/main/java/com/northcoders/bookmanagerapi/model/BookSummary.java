@@ -0,0 +1,5 @@
+package com.northcoders.bookmanagerapi.model;
+
+// Listing projection: the columns list views show, without the potentially large description
+public record BookSummary(Long id, String title, String author, Genre genre) {
+}
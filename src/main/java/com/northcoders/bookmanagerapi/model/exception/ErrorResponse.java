@@ -1,23 +0,0 @@
-package com.northcoders.bookmanagerapi.model.exception;
-
-import lombok.*;
-import org.springframework.http.HttpStatus;
-
-import java.time.LocalDateTime;
-
-@RequiredArgsConstructor
-@Getter
-public class ErrorResponse {
-    private LocalDateTime timestamp;
-    private HttpStatus status;
-    private String error;
-    private String message;
-
-    @Builder
-    public ErrorResponse(HttpStatus status, String message) {
-        this.timestamp = LocalDateTime.now();
-        this.status = status;
-        this.error = this.status.getReasonPhrase();
-        this.message = message;
-    }
-}
@@ -0,0 +1,12 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+
+import java.util.List;
+
+// Fragment of BookManagerRepository: saveAll() merges a book that carries an id, and Hibernate then persists the
+// merged copy under a sequence id instead. This keeps the client's ids, in a single statement per call.
+public interface BookBulkInsertRepository {
+
+    int insertBooksWithIds(List<Book> books);
+}
@@ -0,0 +1,44 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+class BookBulkInsertRepositoryImpl implements BookBulkInsertRepository {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int insertBooksWithIds(List<Book> books) {
+        if (books.isEmpty()) {
+            return 0;
+        }
+
+        // One multi-row insert; change_seq, updated_at and deleted come from the column defaults
+        StringBuilder sql = new StringBuilder("insert into book (id, title, description, author, genre, version) values ");
+        for (int i = 0; i < books.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, 0)");
+        }
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        int position = 1;
+        for (Book book : books) {
+            query.setParameter(position++, book.getId());
+            query.setParameter(position++, book.getTitle());
+            query.setParameter(position++, book.getDescription());
+            query.setParameter(position++, book.getAuthor());
+            query.setParameter(position++, book.getGenre() == null ? null : book.getGenre().name());
+        }
+
+        // Same query space as BookManagerRepository.insertBookWithId, so only book caches are invalidated
+        query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("book");
+        return query.executeUpdate();
+    }
+}
@@ -0,0 +1,125 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+// Gives committed changes their change_seq, in the order they are sequenced. Writes leave change_seq null (see V7),
+// and a sequencing transaction numbers every committed row still without one while holding the book_change_clock
+// lock. A row committed later can only be numbered by a later sequencing transaction, so it always gets a higher
+// change_seq: the change feed can resume after the last value it saw without skipping a slow commit.
+//
+// Sequencing runs off the request path, here every `book.changes.sequence-interval` and, with read replicas on, at
+// the start of each lag check (see ReplicaLagMonitor). Requests never wait on it: a write is in the catalogue version
+// as soon as it commits (see BookManagerRepository.findCatalogueVersion), and in the change feed once numbered.
+//
+// Tombstones are kept for `book.changes.tombstone-retention`, so feed consumers that far behind still see deletes, and
+// then purged, which frees their ids. The clock row records the highest change_seq purged; the feed refuses tokens
+// below it, since they may have missed a delete.
+@Slf4j
+@Component
+public class BookChangeSequencer {
+
+    static final String FAILURES_METRIC = "book.changes.sequencing.failures";
+
+    private static final String PENDING = "select count(*) from book where change_seq is null";
+
+    private static final String LOCK = "select id from book_change_clock where id = 1 for update";
+
+    private static final String SEQUENCE = "update book set change_seq = nextval('book_change_seq') where change_seq is null";
+
+    private static final String LATEST = "select coalesce(max(change_seq), 0) from book";
+
+    private static final String OLD_TOMBSTONES = "deleted = true and change_seq is not null and updated_at < ?";
+
+    private static final String PURGE_HORIZON = "select max(change_seq) from book where " + OLD_TOMBSTONES;
+
+    private static final String PURGE = "delete from book where " + OLD_TOMBSTONES + " and change_seq <= ?";
+
+    private static final String PURGED_THROUGH =
+            "update book_change_clock set purged_through = ? where id = 1 and purged_through < ?";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    BookShards bookShards = BookShards.UNSHARDED;
+
+    @Value("${book.changes.tombstone-retention:P7D}")
+    Duration tombstoneRetention = Duration.ofDays(7);
+
+    // The global registry stands in when the sequencer is used outside the application context
+    @Autowired
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    void setTransactionManager(PlatformTransactionManager transactionManager) {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${book.changes.sequence-interval:PT0.2S}")
+    public void sequence() {
+        for (int shard = 0; shard < bookShards.count(); shard++) {
+            try {
+                sequence(shard);
+            } catch (RuntimeException e) {
+                // The shard's changes stay pending, out of the change feed, until a later pass numbers them
+                log.warn("Sequencing changes on shard {} failed", shard, e);
+                meterRegistry.counter(FAILURES_METRIC, "shard", String.valueOf(shard)).increment();
+            }
+        }
+    }
+
+    // The shard's latest change_seq once every change committed before the call is sequenced
+    public long sequence(int shard) {
+        return ShardRoutingDataSource.onShard(shard,
+                () -> transactionTemplate.execute(status -> sequencePendingChanges(jdbcTemplate)));
+    }
+
+    @Scheduled(fixedDelayString = "${book.changes.purge-interval:PT1H}",
+            initialDelayString = "${book.changes.purge-interval:PT1H}")
+    public void purgeTombstones() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(tombstoneRetention));
+        for (int shard = 0; shard < bookShards.count(); shard++) {
+            try {
+                ShardRoutingDataSource.onShard(shard, () -> transactionTemplate.execute(status -> purgeTombstones(cutoff)));
+            } catch (RuntimeException e) {
+                log.warn("Purging tombstones on shard {} failed", shard, e);
+            }
+        }
+    }
+
+    // The number of tombstones purged
+    int purgeTombstones(Timestamp cutoff) {
+        Long horizon = jdbcTemplate.queryForObject(PURGE_HORIZON, Long.class, cutoff);
+        if (horizon == null) {
+            return 0;
+        }
+        // Commits with the delete, so no reader sees the tombstones gone while the feed still accepts their tokens
+        jdbcTemplate.update(PURGED_THROUGH, horizon, horizon);
+        return jdbcTemplate.update(PURGE, cutoff, horizon);
+    }
+
+    // Must run in a transaction on `jdbcTemplate`'s database, which holds the lock until it commits
+    static long sequencePendingChanges(JdbcTemplate jdbcTemplate) {
+        // Most passes find nothing to do and never take the lock
+        if (jdbcTemplate.queryForObject(PENDING, Long.class) > 0) {
+            jdbcTemplate.queryForObject(LOCK, Integer.class);
+            jdbcTemplate.update(SEQUENCE);
+        }
+        return jdbcTemplate.queryForObject(LATEST, Long.class);
+    }
+}
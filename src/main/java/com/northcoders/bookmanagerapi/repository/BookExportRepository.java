@@ -0,0 +1,11 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+// Fragment of BookManagerRepository: hands every live book to the caller as a raw row of a forward-only cursor, in id
+// order. No entities are built and nothing is collected, so memory does not grow with the table.
+// Columns, in order: id, title, description, author, genre.
+public interface BookExportRepository {
+
+    void streamExportRows(int fetchSize, RowCallbackHandler rowHandler);
+}
@@ -0,0 +1,34 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+class BookExportRepositoryImpl implements BookExportRepository {
+
+    private static final String EXPORT_QUERY = """
+            select id, title, description, author, genre from book
+            where deleted = false
+            order by id
+            """;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    // The transaction matters: the PostgreSQL driver only fetches in batches of fetchSize with autocommit off, and
+    // otherwise reads the entire result into memory before returning the first row
+    @Override
+    @Transactional(readOnly = true)
+    public void streamExportRows(int fetchSize, RowCallbackHandler rowHandler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, rowHandler);
+    }
+}
@@ -0,0 +1,74 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.BookImportError;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.model.BookImportTotals;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface BookImportJobRepository extends CrudRepository<BookImportJob, Long> {
+
+    // Called inside the transaction that inserts the chunk's books, so a chunk is either fully imported and
+    // recorded, or neither
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            insert into book_import_chunk (job_id, chunk_index, imported, conflicted, failed)
+            values (:jobId, :chunkIndex, :imported, :conflicted, :failed)
+            """)
+    int recordChunk(@Param("jobId") long jobId, @Param("chunkIndex") int chunkIndex, @Param("imported") int imported,
+                    @Param("conflicted") int conflicted, @Param("failed") int failed);
+
+    // The reads below are read-only, so outside a transaction they may go to a read replica and never count as a write.
+    // The import itself calls them inside a read-write transaction, which keeps them on the primary.
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = "select chunk_index from book_import_chunk where job_id = :jobId")
+    List<Integer> findCommittedChunks(@Param("jobId") long jobId);
+
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = """
+            select count(*) as "chunks", coalesce(sum(imported), 0) as "imported",
+                   coalesce(sum(conflicted), 0) as "conflicted", coalesce(sum(failed), 0) as "failed"
+            from book_import_chunk where job_id = :jobId
+            """)
+    BookImportTotals sumCommittedChunks(@Param("jobId") long jobId);
+
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "insert into book_import_error (job_id, source_row, message) values (:jobId, :row, :message)")
+    int recordError(@Param("jobId") long jobId, @Param("row") long row, @Param("message") String message);
+
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = """
+            select source_row as "sourceRow", message as "message" from book_import_error where job_id = :jobId order by source_row
+            """)
+    List<BookImportError> findErrors(@Param("jobId") long jobId, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = "select count(*) from book_import_error where job_id = :jobId")
+    long countErrors(@Param("jobId") long jobId);
+
+    @Modifying
+    @Transactional
+    @Query("update BookImportJob j set j.heartbeatAt = :now where j.id = :id")
+    int updateHeartbeat(@Param("id") long id, @Param("now") Instant now);
+
+    // Claims a failed or interrupted job for this instance; 0 rows when the job is missing or still running elsewhere
+    @Modifying
+    @Transactional
+    @Query("""
+            update BookImportJob j set j.status = :running, j.heartbeatAt = :now, j.error = null, j.finishedAt = null
+            where j.id = :id and (j.status = :failed or (j.status = :running and j.heartbeatAt < :staleBefore))
+            """)
+    int claimForResume(@Param("id") long id, @Param("now") Instant now, @Param("staleBefore") Instant staleBefore,
+                       @Param("running") BookImportJob.Status running, @Param("failed") BookImportJob.Status failed);
+}
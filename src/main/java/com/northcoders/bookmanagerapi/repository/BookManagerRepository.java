@@ -1,17 +1,123 @@
 package com.northcoders.bookmanagerapi.repository;
 
 import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookCatalogueVersion;
+import com.northcoders.bookmanagerapi.model.BookCount;
+import com.northcoders.bookmanagerapi.model.BookSearchHit;
+import com.northcoders.bookmanagerapi.model.BookSummary;
 import com.northcoders.bookmanagerapi.model.Genre;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookManagerRepository extends CrudRepository<Book, Long> {
+public interface BookManagerRepository extends CrudRepository<Book, Long>, PagingAndSortingRepository<Book, Long>,
+        BookSliceRepository, BookBulkInsertRepository, BookWriteRepository, BookExportRepository {
 
+    // Cached as ids in the query cache, with the books themselves coming from the second-level cache. Any write to
+    // the book table invalidates it, through Hibernate's per-table update timestamps.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Book.GENRE_QUERY_CACHE_REGION)
+    })
+    @Transactional(readOnly = true)
     List<Book> findByGenre(Genre genre);
+
+    // Projections select only the projected columns, so listings never read the description
+    @Transactional(readOnly = true)
+    List<BookSummary> findAllProjectedBy();
+
+    @Transactional(readOnly = true)
+    <T> List<T> findByGenre(Genre genre, Class<T> type);
+
+    // One scan feeds both the per-genre and the per-author statistics. BookStatistics calls it outside any transaction.
+    // Like every declared read here it is read-only, so that ReplicaRoutingDataSource never takes it for a write.
+    @Transactional(readOnly = true)
+    @Query("select b.genre as genre, b.author as author, count(b) as count from Book b group by b.genre, b.author")
+    List<BookCount> countByGenreAndAuthor();
+
+    // Keyset pagination: callers pass an id-ordered Pageable, so each page is an index range scan on the primary key
+    @Transactional(readOnly = true)
+    Slice<Book> findByIdGreaterThan(Long id, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    Slice<Book> findByGenreAndIdGreaterThan(Genre genre, Long id, Pageable pageable);
+
+    // Must be consumed inside a transaction and closed by the caller
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAllBy();
+
+    // Native so the @SQLRestriction on Book does not hide tombstones. Changes appear once BookChangeSequencer has
+    // numbered them, which it does in commit order, so nothing can later turn up behind `since`.
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = """
+            select * from book
+            where change_seq > :since
+            order by change_seq
+            """)
+    List<Book> findChangesSince(@Param("since") long since, Limit limit);
+
+    // Served from the change_seq index, which also finds the rows still waiting for BookChangeSequencer. Tombstones
+    // count, so deletes change it too.
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = """
+            select (select coalesce(max(change_seq), 0) from book) as latestChangeSeq,
+                   count(*) as pendingChanges, max(updated_at) as lastPendingWrite
+            from book
+            where change_seq is null
+            """)
+    BookCatalogueVersion findCatalogueVersion();
+
+    // The highest change_seq whose tombstone BookChangeSequencer has purged, 0 before the first purge
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = "select purged_through from book_change_clock where id = 1")
+    long findChangesPurgedThrough();
+
+    // Includes tombstones: ids of deleted books stay taken while their tombstones are kept
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = "select id from book where id in (:ids)")
+    List<Long> findTakenIds(@Param("ids") Collection<Long> ids);
+
+    // Single-statement writes: callers learn the outcome from the affected-row count (or, for the insert,
+    // a primary key violation) instead of reading the row first. Each one also leaves change_seq null, for
+    // BookChangeSequencer's next pass to number. Replace and delete are in BookWriteRepository.
+
+    @Modifying
+    @Transactional
+    // Native because an HQL insert binds the enum by ordinal rather than through the attribute's STRING mapping.
+    // The query space limits cache invalidation to the book table; without it Hibernate clears every region.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book"))
+    @Query(nativeQuery = true, value = """
+            insert into book (id, title, description, author, genre, version)
+            values (:#{#book.id}, :#{#book.title}, :#{#book.description}, :#{#book.author}, :#{#book.genre?.name()}, 0)
+            """)
+    int insertBookWithId(@Param("book") Book book);
+
+    // PostgreSQL only: relies on the `search_vector` column and GIN index from db/vendor/postgresql
+    @Transactional(readOnly = true)
+    @Query(nativeQuery = true, value = """
+            select b.id as id, b.title as title, b.author as author, b.genre as genre,
+                   ts_rank(b.search_vector, query) as rank,
+                   ts_headline('english', coalesce(b.description, ''), query,
+                               'StartSel=<mark>, StopSel=</mark>, MaxFragments=2') as highlight
+            from book b, websearch_to_tsquery('english', :query) query
+            where b.search_vector @@ query and b.deleted = false
+            order by rank desc, b.id
+            """)
+    List<BookSearchHit> searchBooks(@Param("query") String query, Pageable pageable);
 }
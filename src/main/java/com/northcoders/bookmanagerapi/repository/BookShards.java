@@ -0,0 +1,175 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Where books live when the catalogue is sharded (see ShardRoutingConfig): a book's shard is a hash of its id. Work
+// for one book runs on its shard; work for the whole catalogue runs once per shard, each in its own transaction, and
+// the callers merge the results. UNSHARDED, used when sharding is off, runs all of it inline against the one database.
+public class BookShards implements AutoCloseable {
+
+    public static final BookShards UNSHARDED = new BookShards(1, null, null);
+
+    private final int count;
+
+    private final SnowflakeIdGenerator idGenerator;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TransactionTemplate readWriteTransaction;
+
+    private final ExecutorService executor;
+
+    public BookShards(int count, SnowflakeIdGenerator idGenerator, PlatformTransactionManager transactionManager) {
+        this.count = count;
+        this.idGenerator = idGenerator;
+
+        if (transactionManager == null) {
+            this.readOnlyTransaction = null;
+            this.readWriteTransaction = null;
+            this.executor = null;
+            return;
+        }
+
+        // New transactions, so a shard's work never reuses a connection the caller already holds on another shard
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyTransaction.setReadOnly(true);
+        this.readWriteTransaction = new TransactionTemplate(transactionManager);
+        readWriteTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("book-shard-", 0).factory());
+    }
+
+    public boolean isSharded() {
+        return idGenerator != null;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long nextId() {
+        return idGenerator.nextId();
+    }
+
+    // Snowflake ids end in a sequence that is mostly zero at everyday write rates, so the id is mixed (MurmurHash3's
+    // finalizer) before it is reduced to a shard
+    public int shardOf(long id) {
+        long hash = id;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return Math.floorMod(hash, count);
+    }
+
+    // Runs `work` in the caller's transaction, with its connection taken from the book's shard. A null id has no
+    // shard; `work` runs as is and the repository rejects it.
+    public <T> T onShardOf(Long id, Supplier<T> work) {
+        if (!isSharded() || id == null) {
+            return work.get();
+        }
+        return ShardRoutingDataSource.onShard(shardOf(id), work);
+    }
+
+    // Runs `work` on one shard, in a new read-write transaction
+    public <T> T executeOnShard(int shard, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        return ShardRoutingDataSource.onShard(shard, () -> readWriteTransaction.execute(status -> work.get()));
+    }
+
+    // Runs `query` on every shard in parallel, each in a new read-only transaction, and returns the results in shard
+    // order. Entities come back detached.
+    public <T> List<T> scatter(Supplier<T> query) {
+        if (!isSharded()) {
+            return List.of(query.get());
+        }
+
+        List<Future<T>> pending = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            pending.add(executor.submit(() -> ShardRoutingDataSource.onShard(target,
+                    () -> readOnlyTransaction.execute(status -> query.get()))));
+        }
+
+        List<T> results = new ArrayList<>(count);
+        try {
+            for (Future<T> result : pending) {
+                results.add(result.get());
+            }
+        } catch (ExecutionException e) {
+            pending.forEach(result -> result.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            pending.forEach(result -> result.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        }
+        return results;
+    }
+
+    public <T> List<T> gather(Supplier<List<T>> query) {
+        if (!isSharded()) {
+            return query.get();
+        }
+
+        List<T> merged = new ArrayList<>();
+        scatter(query).forEach(merged::addAll);
+        return merged;
+    }
+
+    public <T> List<T> gather(Supplier<List<T>> query, Comparator<? super T> order) {
+        if (!isSharded()) {
+            return query.get();
+        }
+
+        List<T> merged = gather(query);
+        merged.sort(order);
+        return merged;
+    }
+
+    // Runs `work` on each shard in turn, each in a new read-only transaction, on the caller's thread
+    public void forEachShard(Runnable work) {
+        if (!isSharded()) {
+            work.run();
+            return;
+        }
+
+        for (int shard = 0; shard < count; shard++) {
+            ShardRoutingDataSource.onShard(shard, () -> readOnlyTransaction.execute(status -> {
+                work.run();
+                return null;
+            }));
+        }
+    }
+
+    // For the features that would need a cross-shard ordering the shards do not have
+    public void requireUnsharded(String feature) {
+        if (isSharded()) {
+            throw new UnsupportedOperationException(feature + " is not available while the catalogue is sharded");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+// Fragment of BookManagerRepository: JpaSpecificationExecutor only pages with a Page, whose count query would
+// scan every matching row on each request
+public interface BookSliceRepository {
+
+    Slice<Book> findSlice(Specification<Book> specification, Pageable pageable);
+}
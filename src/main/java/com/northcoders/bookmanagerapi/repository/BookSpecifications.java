@@ -0,0 +1,81 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.Genre;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+// Composable predicates for BookFilter. Every predicate except titleContains can use an index: genre IN
+// (idx_book_genre), author LIKE 'prefix%' (idx_book_author, or idx_book_author_pattern on PostgreSQL, see V8) and id
+// ranges (primary key).
+public final class BookSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> of(BookFilter filter) {
+        Specification<Book> specification = Specification.where(null);
+
+        if (filter.getGenres() != null && !filter.getGenres().isEmpty()) {
+            specification = specification.and(genreIn(filter.getGenres()));
+        }
+        if (filter.getAuthorPrefix() != null && !filter.getAuthorPrefix().isEmpty()) {
+            specification = specification.and(authorStartsWith(filter.getAuthorPrefix()));
+        }
+        if (filter.getTitleContains() != null && !filter.getTitleContains().isEmpty()) {
+            specification = specification.and(titleContains(filter.getTitleContains()));
+        }
+        if (filter.getMinId() != null) {
+            specification = specification.and(idAtLeast(filter.getMinId()));
+        }
+        if (filter.getMaxId() != null) {
+            specification = specification.and(idAtMost(filter.getMaxId()));
+        }
+
+        return specification;
+    }
+
+    // How many ids the range spans, which bounds the rows a primary key read of it touches: none for an empty range,
+    // and Long.MAX_VALUE for one open at either end. BookStatistics.estimateRows weighs it against the other indexes.
+    public static long idRangeSize(Long minId, Long maxId) {
+        if (minId == null || maxId == null) {
+            return Long.MAX_VALUE;
+        }
+        if (maxId < minId) {
+            return 0;
+        }
+        // The true span fits in 64 unsigned bits, even when the subtraction overflows a long
+        long span = maxId - minId;
+        return Long.compareUnsigned(span, Long.MAX_VALUE - 1) >= 0 ? Long.MAX_VALUE : span + 1;
+    }
+
+    public static Specification<Book> genreIn(Collection<Genre> genres) {
+        return (root, query, builder) -> root.get("genre").in(genres);
+    }
+
+    // Case-sensitive on purpose: lower(author) could not use the plain author index
+    public static Specification<Book> authorStartsWith(String prefix) {
+        return (root, query, builder) -> builder.like(root.get("author"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<Book> titleContains(String text) {
+        return (root, query, builder) -> builder.like(
+                builder.lower(root.get("title")), "%" + escapeLike(text.toLowerCase()) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<Book> idAtLeast(Long minId) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("id"), minId);
+    }
+
+    public static Specification<Book> idAtMost(Long maxId) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("id"), maxId);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,18 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// Fragment of BookManagerRepository: replace and delete as single statements that also return the genre and author
+// the row had before the write, for the statistics. Empty when no live row matched.
+public interface BookWriteRepository {
+
+    // Only updates a book at one of `expectedVersions`, unless that is null
+    Optional<BookCountKey> updateBook(Long id, Book book, Collection<Long> expectedVersions, long newVersion);
+
+    // Leaves a tombstone behind for the change feed
+    Optional<BookCountKey> deleteBookById(Long id);
+}
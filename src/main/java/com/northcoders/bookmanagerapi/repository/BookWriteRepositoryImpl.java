@@ -0,0 +1,89 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+import com.northcoders.bookmanagerapi.model.Genre;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.action.internal.BulkOperationCleanupAction;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// The old values come back from the write itself: PostgreSQL locks the row in a subquery and returns its columns
+// from the update, H2 selects from the update's OLD TABLE. Either way it is one statement, and the row cannot
+// change between reading its old values and writing the new ones. Each write also leaves change_seq null for
+// BookChangeSequencer.
+class BookWriteRepositoryImpl implements BookWriteRepository {
+
+    private static final String SET_WRITTEN = ", change_seq = null, updated_at = current_timestamp";
+
+    private static final String LIVE_ROW = "id = :id and deleted = false";
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Optional<BookCountKey> updateBook(Long id, Book book, Collection<Long> expectedVersions, long newVersion) {
+        NativeQuery<?> query = returningPrevious(
+                "title = :title, description = :description, author = :author, genre = :genre, version = :newVersion",
+                expectedVersions == null ? "" : " and version in (:expectedVersions)");
+        query.setParameter("id", id, Long.class);
+        query.setParameter("title", book.getTitle(), String.class);
+        query.setParameter("description", book.getDescription(), String.class);
+        query.setParameter("author", book.getAuthor(), String.class);
+        query.setParameter("genre", book.getGenre() == null ? null : book.getGenre().name(), String.class);
+        query.setParameter("newVersion", newVersion, Long.class);
+        if (expectedVersions != null) {
+            query.setParameterList("expectedVersions", expectedVersions, Long.class);
+        }
+        return previous(query);
+    }
+
+    @Override
+    @Transactional
+    public Optional<BookCountKey> deleteBookById(Long id) {
+        NativeQuery<?> query = returningPrevious("deleted = true", "");
+        query.setParameter("id", id, Long.class);
+        return previous(query);
+    }
+
+    private NativeQuery<?> returningPrevious(String assignments, String condition) {
+        String set = assignments + SET_WRITTEN;
+        String where = LIVE_ROW + condition;
+        String sql = isPostgreSql()
+                ? "update book b set " + set
+                        + " from (select id, genre, author from book where " + where + " for update) previous"
+                        + " where b.id = previous.id returning previous.genre, previous.author"
+                : "select genre, author from old table (update book set " + set + " where " + where + ")";
+
+        // Flushes pending inserts of books first, as an HQL update would
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class).addSynchronizedQuerySpace("book");
+    }
+
+    private Optional<BookCountKey> previous(NativeQuery<?> query) {
+        // Hibernate takes the statement for a query, so it is told about the write the way executeUpdate() tells it:
+        // cached books and book query results are invalidated around the transaction
+        BulkOperationCleanupAction.schedule(entityManager.unwrap(SharedSessionContractImplementor.class), Set.of("book"));
+        List<?> rows = query.getResultList();
+
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = (Object[]) rows.getFirst();
+        return Optional.of(new BookCountKey(row[0] == null ? null : Genre.valueOf((String) row[0]), (String) row[1]));
+    }
+
+    private boolean isPostgreSql() {
+        return entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+    }
+}
@@ -0,0 +1,65 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// When the current client last wrote, on this JVM's System.nanoTime() clock. ReplicaRoutingDataSource passes over
+// replicas that ReplicaLagMonitor has not seen reach the primary's position from a check started after that, for this
+// client's reads only. ReadYourWritesFilter carries it between requests in a cookie, and writes move it forward once
+// they commit. Threads outside a request, such as imports and scheduled tasks, have no client.
+public final class ReadYourWrites {
+
+    // The client has not written, or not that this instance can tell
+    public static final long NOTHING_WRITTEN = Long.MIN_VALUE;
+
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private long writtenAt;
+
+    private final Runnable onWrite;
+
+    private ReadYourWrites(long writtenAt, Runnable onWrite) {
+        this.writtenAt = writtenAt;
+        this.onWrite = onWrite;
+    }
+
+    // Until end(), reads on this thread need the client's writes up to `writtenAt`, and `onWrite` hears of each new one
+    public static void begin(long writtenAt, Runnable onWrite) {
+        CURRENT.set(new ReadYourWrites(writtenAt, onWrite));
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static long writtenAt() {
+        ReadYourWrites current = CURRENT.get();
+        return current == null ? NOTHING_WRITTEN : current.writtenAt;
+    }
+
+    // Notes a write by the current client once the surrounding transaction, if any, commits. Bookkeeping only: the
+    // write gets its change_seq from BookChangeSequencer's scheduled pass, not from the request.
+    public static void noteWrite() {
+        if (CURRENT.get() == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            noteWriteNow();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                noteWriteNow();
+            }
+        });
+    }
+
+    private static void noteWriteNow() {
+        ReadYourWrites current = CURRENT.get();
+        if (current != null) {
+            current.writtenAt = System.nanoTime();
+            current.onWrite.run();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Decides which replicas may serve reads, from the change feed's sequence, so it works on any database that
+// replicates the book table. Owns the replica pools.
+//
+// Lag: each check notes when the primary's latest change_seq first reached its current value. A replica whose own
+// latest change_seq is lower is behind by at least the time since the primary first passed it. Estimates are as
+// fine as the check interval. A database that does not answer within the query timeout counts as unreachable, so a
+// hung replica cannot stall the checks.
+//
+// Each check first sequences the primary's pending changes (see BookChangeSequencer), so the change_seq it reads
+// covers every write committed before the check started. Read-your-writes is per client: a replica serves a client's
+// reads once it has the change_seq a check started after the client's last write read from the primary (see
+// ReadYourWrites), so one client's writes never send the others to the primary, and writes never wait for a check.
+// Other clients may still read a row from before a write, and put it back in this instance's caches; onceReplicated
+// lets the writer evict it again when that can no longer happen.
+@Slf4j
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private static final String LATEST_CHANGE_SEQ = "select coalesce(max(change_seq), 0) from book";
+
+    private static final ReplicaState UNREACHABLE = new ReplicaState(Long.MAX_VALUE, -1);
+
+    private final JdbcTemplate primary;
+
+    private final TransactionTemplate primaryTransaction;
+
+    private final Map<String, DataSource> replicas;
+
+    private final Map<String, JdbcTemplate> replicaTemplates = new LinkedHashMap<>();
+
+    private final long maxLagNanos;
+
+    private final LongSupplier clock;
+
+    // (time, change_seq) each time the primary's latest change_seq was seen to grow, oldest first
+    private final Deque<long[]> primarySamples = new ArrayDeque<>();
+
+    private final Map<String, ReplicaState> replicaStates = new ConcurrentHashMap<>();
+
+    // (start time, change_seq read from the primary) of recent checks, oldest first; replaced rather than changed
+    private volatile List<long[]> recentChecks = List.of();
+
+    // One check at a time; a lock rather than synchronized, so a virtual thread waiting on JDBC unmounts
+    private final ReentrantLock checking = new ReentrantLock();
+
+    // Guarded by checking, apart from the queue itself
+    private final Queue<PendingAction> pendingActions = new ConcurrentLinkedQueue<>();
+
+    // Guarded by checking. Whether the primary and each replica answered their last check, so a database that stops
+    // answering is logged once rather than on every check after.
+    private boolean primaryReachable = true;
+
+    private final Set<String> failingReplicas = new HashSet<>();
+
+    public ReplicaLagMonitor(DataSource primary, Map<String, DataSource> replicas, Duration maxLag, Duration queryTimeout,
+                             LongSupplier clock) {
+        this.primary = jdbcTemplate(primary, queryTimeout);
+        this.primaryTransaction = new TransactionTemplate(new DataSourceTransactionManager(primary));
+        this.replicas = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.maxLagNanos = maxLag.toNanos();
+        this.clock = clock;
+        replicas.forEach((name, replica) -> {
+            replicaTemplates.put(name, jdbcTemplate(replica, queryTimeout));
+            // Nothing is read from a replica before its first check
+            replicaStates.put(name, UNREACHABLE);
+        });
+    }
+
+    public Map<String, DataSource> replicas() {
+        return replicas;
+    }
+
+    // Runs `action` on the lag check thread once no replica allowed to serve reads can be missing what the primary
+    // has now: every replica has the change_seq the next check reads from the primary, or is further behind than max
+    // lag. Call it once the write it follows is committed.
+    public void onceReplicated(Runnable action) {
+        pendingActions.add(new PendingAction(action, clock.getAsLong()));
+    }
+
+    @Scheduled(fixedDelayString = "${book.replicas.lag-check-interval:PT1S}")
+    public void check() {
+        checking.lock();
+        try {
+            checkPrimaryAndReplicas();
+        } finally {
+            checking.unlock();
+        }
+    }
+
+    private void checkPrimaryAndReplicas() {
+        long now = clock.getAsLong();
+        long primarySeq;
+        try {
+            primarySeq = primaryTransaction.execute(status -> BookChangeSequencer.sequencePendingChanges(primary));
+        } catch (RuntimeException e) {
+            if (primaryReachable) {
+                log.warn("Lag check could not read the primary; no replica serves reads until it can", e);
+                primaryReachable = false;
+            }
+            // Without the primary's position no replica can be vouched for
+            replicaTemplates.keySet().forEach(name -> replicaStates.put(name, UNREACHABLE));
+            runExpiredActions(now);
+            return;
+        }
+        if (!primaryReachable) {
+            log.info("Lag check reads the primary again");
+            primaryReachable = true;
+        }
+
+        if (primarySamples.isEmpty() || primarySeq > primarySamples.peekLast()[1]) {
+            primarySamples.addLast(new long[]{now, primarySeq});
+        }
+        // Keep one sample older than max lag, so a replica missing it still reads as too far behind
+        while (primarySamples.size() > 1 && now - secondOldestSampleTime() > maxLagNanos) {
+            primarySamples.removeFirst();
+        }
+        recentChecks = recentChecks(now, primarySeq);
+
+        replicaTemplates.forEach((name, replica) -> replicaStates.put(name, state(name, replica, now)));
+        runReplicatedActions(primarySeq, now);
+    }
+
+    private void runReplicatedActions(long primarySeq, long now) {
+        for (Iterator<PendingAction> actions = pendingActions.iterator(); actions.hasNext(); ) {
+            PendingAction pending = actions.next();
+            if (pending.changeSeq < 0) {
+                pending.changeSeq = primarySeq;
+                pending.seenAt = now;
+            }
+
+            // A replica missing the change has been behind since at least seenAt
+            boolean replicated = now - pending.seenAt > maxLagNanos
+                    || replicaStates.values().stream().allMatch(state -> state.changeSeq() >= pending.changeSeq);
+            if (replicated) {
+                actions.remove();
+                run(pending);
+            }
+        }
+    }
+
+    // While the primary cannot be read, actions are not held past max lag: any replica still missing their write by
+    // then is too far behind to serve reads, and the queue would otherwise grow for as long as the outage lasts
+    private void runExpiredActions(long now) {
+        for (Iterator<PendingAction> actions = pendingActions.iterator(); actions.hasNext(); ) {
+            PendingAction pending = actions.next();
+            if (now - (pending.changeSeq < 0 ? pending.addedAt : pending.seenAt) > maxLagNanos) {
+                actions.remove();
+                run(pending);
+            }
+        }
+    }
+
+    private static void run(PendingAction pending) {
+        try {
+            pending.action.run();
+        } catch (RuntimeException e) {
+            // The action's own failure; the lag checks carry on
+            log.warn("Action deferred until replication failed", e);
+        }
+    }
+
+    // Whether the replica may serve reads for a client that has not written
+    public boolean isCaughtUp(String replica) {
+        return replicaStates.getOrDefault(replica, UNREACHABLE).lagNanos() <= maxLagNanos;
+    }
+
+    // Whether the replica may serve reads for a client whose last write committed at `writtenAt`, on the monitor's
+    // clock. Until a check has started since, nothing vouches for the write having a change_seq, so none may.
+    public boolean isCaughtUp(String replica, long writtenAt) {
+        ReplicaState state = replicaStates.getOrDefault(replica, UNREACHABLE);
+        if (state.lagNanos() > maxLagNanos) {
+            return false;
+        }
+        for (long[] check : recentChecks) {
+            if (check[0] - writtenAt >= 0) {
+                return state.changeSeq() >= check[1];
+            }
+        }
+        return false;
+    }
+
+    // Seconds, for the lag gauge; infinite while the replica cannot be reached
+    public double lagSeconds(String replica) {
+        ReplicaState state = replicaStates.getOrDefault(replica, UNREACHABLE);
+        return state == UNREACHABLE ? Double.POSITIVE_INFINITY : state.lagNanos() / 1e9;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private ReplicaState state(String name, JdbcTemplate replica, long now) {
+        long replicaSeq;
+        try {
+            replicaSeq = latestChangeSeq(replica);
+        } catch (RuntimeException e) {
+            if (failingReplicas.add(name)) {
+                log.warn("Lag check could not read replica {}; it serves no reads until it can", name, e);
+            }
+            return UNREACHABLE;
+        }
+        if (failingReplicas.remove(name)) {
+            log.info("Lag check reads replica {} again", name);
+        }
+
+        for (long[] sample : primarySamples) {
+            if (sample[1] > replicaSeq) {
+                return new ReplicaState(now - sample[0], replicaSeq);
+            }
+        }
+        return new ReplicaState(0, replicaSeq);
+    }
+
+    // The checks kept after this one: those within max lag, and the one before them, which any older write needs
+    private List<long[]> recentChecks(long now, long primarySeq) {
+        List<long[]> checks = new ArrayList<>(recentChecks);
+        checks.add(new long[]{now, primarySeq});
+        while (checks.size() > 1 && now - checks.get(1)[0] > maxLagNanos) {
+            checks.removeFirst();
+        }
+        return List.copyOf(checks);
+    }
+
+    private long secondOldestSampleTime() {
+        var samples = primarySamples.iterator();
+        samples.next();
+        return samples.next()[0];
+    }
+
+    // JDBC query timeouts are whole seconds; 0 would mean none
+    private static JdbcTemplate jdbcTemplate(DataSource dataSource, Duration queryTimeout) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout((int) Math.max(1, (queryTimeout.toMillis() + 999) / 1000));
+        return jdbcTemplate;
+    }
+
+    private static long latestChangeSeq(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject(LATEST_CHANGE_SEQ, Long.class);
+    }
+
+    private record ReplicaState(long lagNanos, long changeSeq) {
+    }
+
+    private static final class PendingAction {
+
+        private final Runnable action;
+
+        // The primary's change_seq at the first check after the action was added, and when that check ran; -1 before
+        private long changeSeq = -1;
+
+        private long seenAt;
+
+        // When onceReplicated was called, for expiring the action while the primary cannot be read
+        private final long addedAt;
+
+        private PendingAction(Runnable action, long addedAt) {
+            this.action = action;
+            this.addedAt = addedAt;
+        }
+    }
+}
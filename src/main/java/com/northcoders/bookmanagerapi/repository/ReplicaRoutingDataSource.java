@@ -0,0 +1,69 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends read-only transactions to a replica that ReplicaLagMonitor allows, round robin, and everything else to the
+// primary. A replica is only allowed once it has the current client's last write (see ReadYourWrites). Reads fall
+// back to the primary while no replica is allowed. Needs a LazyConnectionDataSourceProxy in
+// front, so the connection is only chosen at the first statement, after the transaction's read-only flag is set.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    static final String READS_METRIC = "book.replicas.reads";
+
+    private final List<String> replicaNames;
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Map<String, Counter> reads = new HashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>(lagMonitor.replicas());
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.replicaNames = List.copyOf(lagMonitor.replicas().keySet());
+        this.lagMonitor = lagMonitor;
+        reads.put(PRIMARY, meterRegistry.counter(READS_METRIC, "target", PRIMARY));
+        replicaNames.forEach(name -> reads.put(name, meterRegistry.counter(READS_METRIC, "target", name)));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        String target = PRIMARY;
+        if (!replicaNames.isEmpty()) {
+            long writtenAt = ReadYourWrites.writtenAt();
+            int first = Math.floorMod(nextReplica.getAndIncrement(), replicaNames.size());
+            for (int i = 0; i < replicaNames.size(); i++) {
+                String replica = replicaNames.get((first + i) % replicaNames.size());
+                boolean caughtUp = writtenAt == ReadYourWrites.NOTHING_WRITTEN
+                        ? lagMonitor.isCaughtUp(replica)
+                        : lagMonitor.isCaughtUp(replica, writtenAt);
+                if (caughtUp) {
+                    target = replica;
+                    break;
+                }
+            }
+        }
+
+        reads.get(target).increment();
+        return target;
+    }
+}
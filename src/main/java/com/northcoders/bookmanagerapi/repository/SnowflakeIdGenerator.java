@@ -0,0 +1,54 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+// Snowflake-style ids for sharded books: milliseconds since EPOCH (41 bits), the instance's worker id (10 bits) and a
+// per-millisecond sequence (12 bits). Unique across instances without a shared sequence, and roughly time-ordered, so
+// keyset pagination still finds new books at the end.
+public class SnowflakeIdGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    static final int WORKER_ID_BITS = 10;
+
+    static final int SEQUENCE_BITS = 12;
+
+    public static final int MAX_WORKER_ID = (1 << WORKER_ID_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+
+    private final LongSupplier clock;
+
+    private long lastMillis = -1;
+
+    private long sequence;
+
+    public SnowflakeIdGenerator(int workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker id must be between 0 and " + MAX_WORKER_ID + ", was " + workerId);
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    public synchronized long nextId() {
+        long millis = clock.getAsLong() - EPOCH_MILLIS;
+
+        if (millis > lastMillis) {
+            lastMillis = millis;
+            sequence = 0;
+        } else {
+            // Same millisecond, or the clock stepped back: carry on from the last one rather than repeat its ids.
+            // A full sequence borrows the next millisecond instead of waiting for it.
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                lastMillis++;
+            }
+        }
+
+        return (lastMillis << (WORKER_ID_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -0,0 +1,575 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSummary;
+import com.northcoders.bookmanagerapi.model.Genre;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+// The books behind BookReadModel, one array per column: ids and versions as long[], genres as ordinals in a byte[],
+// authors dictionary-encoded into an int[], and titles and descriptions as UTF-8 in shared byte pages. Ids find their
+// row through an open-addressing long-to-int index; genres through one bitset of rows each. Not thread-safe.
+public final class BookColumnStore {
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private static final Genre[] GENRES = Genre.values();
+
+    private static final byte NO_GENRE = -1;
+
+    private static final int NO_AUTHOR = -1;
+
+    private static final Sort ID_ORDER = Sort.by("id");
+
+    private long[] ids;
+
+    private long[] versions;
+
+    private byte[] genres;
+
+    private int[] authors;
+
+    private long[] titles;
+
+    private long[] descriptions;
+
+    private long[] liveRows;
+
+    private final long[][] rowsByGenre = new long[GENRES.length][];
+
+    private final RowIndex rowsById;
+
+    private final TextPages text = new TextPages();
+
+    private final List<String> authorNames = new ArrayList<>();
+
+    private final Map<String, Integer> authorCodes = new HashMap<>();
+
+    // Rows used so far, removed ones included; removed rows are only reclaimed by compacted()
+    private int rows;
+
+    private int liveCount;
+
+    // Rows are appended, so results come out in id order for free until an id arrives below the last one
+    private boolean rowsInIdOrder = true;
+
+    // From then on, every row used so far, removed ones included, sorted by id; null while rowsInIdOrder. Kept up to
+    // date by put(), so reads walk it instead of sorting.
+    private int[] idOrder;
+
+    public BookColumnStore() {
+        this(INITIAL_ROWS);
+    }
+
+    public BookColumnStore(int expectedRows) {
+        int capacity = Math.max(INITIAL_ROWS, expectedRows);
+        ids = new long[capacity];
+        versions = new long[capacity];
+        genres = new byte[capacity];
+        authors = new int[capacity];
+        titles = new long[capacity];
+        descriptions = new long[capacity];
+        liveRows = new long[words(capacity)];
+        for (int genre = 0; genre < GENRES.length; genre++) {
+            rowsByGenre[genre] = new long[words(capacity)];
+        }
+        rowsById = new RowIndex(capacity);
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    // Adds the book, or replaces the stored book with the same id
+    public void put(Book book) {
+        long id = book.getId();
+        int row = rowsById.get(id);
+
+        if (row < 0) {
+            row = rows++;
+            ensureCapacity(rows);
+            ids[row] = id;
+            placeInIdOrder(row);
+            rowsById.put(id, row);
+            set(liveRows, row);
+            liveCount++;
+        } else {
+            text.release(titles[row]);
+            text.release(descriptions[row]);
+            if (genres[row] != NO_GENRE) {
+                clear(rowsByGenre[genres[row]], row);
+            }
+        }
+
+        versions[row] = book.getVersion();
+        titles[row] = text.add(book.getTitle());
+        descriptions[row] = text.add(book.getDescription());
+        authors[row] = authorCode(book.getAuthor());
+        genres[row] = book.getGenre() == null ? NO_GENRE : (byte) book.getGenre().ordinal();
+        if (genres[row] != NO_GENRE) {
+            set(rowsByGenre[genres[row]], row);
+        }
+    }
+
+    public boolean remove(long id) {
+        int row = rowsById.remove(id);
+        if (row < 0) {
+            return false;
+        }
+
+        clear(liveRows, row);
+        if (genres[row] != NO_GENRE) {
+            clear(rowsByGenre[genres[row]], row);
+        }
+        text.release(titles[row]);
+        text.release(descriptions[row]);
+        liveCount--;
+        return true;
+    }
+
+    public List<Book> findAll() {
+        return collect(liveRows, this::book);
+    }
+
+    public List<Book> findByGenre(Genre genre) {
+        return collect(rowsByGenre[genre.ordinal()], this::book);
+    }
+
+    public List<BookSummary> findAllSummaries() {
+        return collect(liveRows, this::summary);
+    }
+
+    public List<BookSummary> findSummariesByGenre(Genre genre) {
+        return collect(rowsByGenre[genre.ordinal()], this::summary);
+    }
+
+    // Same matches and ordering as BookSpecifications.of(filter) with the pageable's sort, except that strings compare
+    // in Java's order rather than the database collation. Nulls sort last ascending, as on PostgreSQL.
+    public Slice<Book> filter(BookFilter filter, Pageable pageable) {
+        long[] candidates;
+        if (filter.getGenres() != null && !filter.getGenres().isEmpty()) {
+            candidates = new long[liveRows.length];
+            for (Genre genre : filter.getGenres()) {
+                or(candidates, rowsByGenre[genre.ordinal()]);
+            }
+        } else {
+            candidates = liveRows.clone();
+        }
+
+        // Matched against the dictionary once, so the rows only compare author codes
+        if (filter.getAuthorPrefix() != null && !filter.getAuthorPrefix().isEmpty()) {
+            BitSet matchingAuthors = new BitSet(authorNames.size());
+            for (int code = 0; code < authorNames.size(); code++) {
+                if (authorNames.get(code).startsWith(filter.getAuthorPrefix())) {
+                    matchingAuthors.set(code);
+                }
+            }
+            forEach(candidates, row -> {
+                if (authors[row] == NO_AUTHOR || !matchingAuthors.get(authors[row])) {
+                    clear(candidates, row);
+                }
+            });
+        }
+
+        String titleContains = filter.getTitleContains() == null || filter.getTitleContains().isEmpty()
+                ? null : filter.getTitleContains().toLowerCase();
+        long minId = filter.getMinId() == null ? Long.MIN_VALUE : filter.getMinId();
+        long maxId = filter.getMaxId() == null ? Long.MAX_VALUE : filter.getMaxId();
+
+        List<Integer> matches = new ArrayList<>();
+        // Titles are decoded once per row, and only when the filter or the sort needs them
+        String[] decodedTitles = titleContains != null || pageable.getSort().getOrderFor("title") != null ? new String[rows] : null;
+        forEachInIdOrder(candidates, row -> {
+            if (ids[row] < minId || ids[row] > maxId) {
+                return;
+            }
+            if (titleContains != null) {
+                String title = decodedTitle(decodedTitles, row);
+                if (title == null || !title.toLowerCase().contains(titleContains)) {
+                    return;
+                }
+            }
+            matches.add(row);
+        });
+
+        // Matches come out in id order, which is also the default sort
+        if (pageable.getSort().isSorted() && !pageable.getSort().equals(ID_ORDER)) {
+            matches.sort(comparator(pageable.getSort(), decodedTitles));
+        }
+
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(matches.stream().map(this::book).toList(), pageable, false);
+        }
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        return new SliceImpl<>(matches.subList(from, to).stream().map(this::book).toList(), pageable, to < matches.size());
+    }
+
+    // Removed rows and replaced text are only garbage until the store is rebuilt
+    public boolean needsCompaction() {
+        return (rows - liveCount > Math.max(INITIAL_ROWS, liveCount))
+                || text.garbageBytes > Math.max(TextPages.PAGE_SIZE, text.liveBytes);
+    }
+
+    // Also puts the rows back in id order
+    public BookColumnStore compacted() {
+        BookColumnStore compacted = new BookColumnStore(liveCount);
+        liveRowsInIdOrder().forEach(row -> compacted.put(book(row)));
+        return compacted;
+    }
+
+    // What the arrays, text pages and author dictionary take up, give or take object headers
+    public long estimatedBytes() {
+        long capacity = ids.length;
+        long columns = capacity * (Long.BYTES * 4 + Integer.BYTES + Byte.BYTES);
+        long bitsets = (long) liveRows.length * Long.BYTES * (1 + GENRES.length);
+        long permutation = idOrder == null ? 0 : (long) idOrder.length * Integer.BYTES;
+        long dictionary = authorNames.stream().mapToLong(name -> 96 + name.length()).sum();
+        return columns + bitsets + permutation + rowsById.bytes() + text.bytes() + dictionary;
+    }
+
+    private Book book(int row) {
+        return new Book(ids[row], text.get(titles[row]), text.get(descriptions[row]), author(row), genre(row), versions[row]);
+    }
+
+    private BookSummary summary(int row) {
+        return new BookSummary(ids[row], text.get(titles[row]), author(row), genre(row));
+    }
+
+    private String author(int row) {
+        return authors[row] == NO_AUTHOR ? null : authorNames.get(authors[row]);
+    }
+
+    private Genre genre(int row) {
+        return genres[row] == NO_GENRE ? null : GENRES[genres[row]];
+    }
+
+    private String decodedTitle(String[] decodedTitles, int row) {
+        if (decodedTitles[row] == null && titles[row] != TextPages.NO_TEXT) {
+            decodedTitles[row] = text.get(titles[row]);
+        }
+        return decodedTitles[row];
+    }
+
+    private int authorCode(String author) {
+        if (author == null) {
+            return NO_AUTHOR;
+        }
+        return authorCodes.computeIfAbsent(author, name -> {
+            authorNames.add(name);
+            return authorNames.size() - 1;
+        });
+    }
+
+    private Comparator<Integer> comparator(Sort sort, String[] decodedTitles) {
+        Comparator<Integer> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Integer> byProperty = switch (order.getProperty()) {
+                case "id" -> byId();
+                case "title" -> Comparator.comparing(row -> decodedTitle(decodedTitles, row), Comparator.nullsLast(Comparator.naturalOrder()));
+                case "author" -> Comparator.comparing(this::author, Comparator.nullsLast(Comparator.naturalOrder()));
+                // Stored by name, so the database orders genres by name too
+                case "genre" -> Comparator.comparing(row -> genres[row] == NO_GENRE ? null : GENRES[genres[row]].name(),
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                default -> throw new IllegalArgumentException("Cannot sort books by " + order.getProperty());
+            };
+            if (order.isDescending()) {
+                byProperty = byProperty.reversed();
+            }
+            comparator = comparator == null ? byProperty : comparator.thenComparing(byProperty);
+        }
+        return comparator;
+    }
+
+    private <T> List<T> collect(long[] rowSet, IntFunction<T> mapper) {
+        List<T> result = new ArrayList<>();
+        forEachInIdOrder(rowSet, row -> result.add(mapper.apply(row)));
+        return result;
+    }
+
+    private List<Integer> liveRowsInIdOrder() {
+        List<Integer> rowList = new ArrayList<>(liveCount);
+        forEachInIdOrder(liveRows, rowList::add);
+        return rowList;
+    }
+
+    // Out of order, the walk covers every row used rather than only those in the set, but never sorts
+    private void forEachInIdOrder(long[] rowSet, IntConsumer action) {
+        if (rowsInIdOrder) {
+            forEach(rowSet, action);
+            return;
+        }
+
+        for (int position = 0; position < rows; position++) {
+            int row = idOrder[position];
+            if (isSet(rowSet, row)) {
+                action.accept(row);
+            }
+        }
+    }
+
+    // Called with the new row's id stored. The rows before the first out-of-order id are already sorted, so idOrder
+    // starts from them as they are; after that each row is inserted at its id, shifting the rows with higher ids.
+    private void placeInIdOrder(int row) {
+        if (rowsInIdOrder) {
+            if (row == 0 || ids[row] > ids[row - 1]) {
+                return;
+            }
+            rowsInIdOrder = false;
+            idOrder = new int[ids.length];
+            for (int position = 0; position < row; position++) {
+                idOrder[position] = position;
+            }
+        }
+
+        long id = ids[row];
+        int low = 0;
+        int high = row;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids[idOrder[middle]] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        System.arraycopy(idOrder, low, idOrder, low + 1, row - low);
+        idOrder[low] = row;
+    }
+
+    private Comparator<Integer> byId() {
+        return Comparator.comparingLong(row -> ids[row]);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        genres = Arrays.copyOf(genres, capacity);
+        authors = Arrays.copyOf(authors, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        if (idOrder != null) {
+            idOrder = Arrays.copyOf(idOrder, capacity);
+        }
+        liveRows = Arrays.copyOf(liveRows, words(capacity));
+        for (int genre = 0; genre < GENRES.length; genre++) {
+            rowsByGenre[genre] = Arrays.copyOf(rowsByGenre[genre], words(capacity));
+        }
+    }
+
+    private static int words(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    private static void or(long[] target, long[] bits) {
+        for (int word = 0; word < target.length; word++) {
+            target[word] |= bits[word];
+        }
+    }
+
+    private static void forEach(long[] bits, IntConsumer action) {
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                action.accept(word * Long.SIZE + Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+    }
+
+    // Linear probing, at most half full, with backward-shift deletion so there are no tombstones to skip
+    private static final class RowIndex {
+
+        private static final int EMPTY = -1;
+
+        private long[] keys;
+
+        private int[] values;
+
+        private int size;
+
+        private RowIndex(int expected) {
+            allocate(Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1);
+        }
+
+        private int get(long key) {
+            int mask = values.length - 1;
+            for (int slot = slot(key, mask); values[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return EMPTY;
+        }
+
+        private void put(long key, int value) {
+            if ((size + 1) * 2 > values.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                allocate(values.length * 2);
+                for (int slot = 0; slot < oldValues.length; slot++) {
+                    if (oldValues[slot] != EMPTY) {
+                        insert(oldKeys[slot], oldValues[slot]);
+                    }
+                }
+            }
+            insert(key, value);
+        }
+
+        private int remove(long key) {
+            int mask = values.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == EMPTY) {
+                return EMPTY;
+            }
+
+            int removed = values[slot];
+            int gap = slot;
+            for (int next = (gap + 1) & mask; values[next] != EMPTY; next = (next + 1) & mask) {
+                // An entry may move back into the gap unless its home slot lies between the gap and where it sits
+                int home = slot(keys[next], mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            values[gap] = EMPTY;
+            size--;
+            return removed;
+        }
+
+        private long bytes() {
+            return (long) keys.length * Long.BYTES + (long) values.length * Integer.BYTES;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, EMPTY);
+            size = 0;
+        }
+
+        private void insert(long key, int value) {
+            int mask = values.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == EMPTY) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+    // Strings as UTF-8 in 1 MiB pages, addressed by page, offset and length packed into one long. A replaced or
+    // removed string stays in its page as garbage.
+    private static final class TextPages {
+
+        private static final long NO_TEXT = -1;
+
+        private static final int PAGE_BITS = 20;
+
+        private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+        private static final int LENGTH_BITS = 21;
+
+        private byte[][] pages = new byte[0][];
+
+        private int pageCount;
+
+        private int pageUsed = PAGE_SIZE;
+
+        private long liveBytes;
+
+        private long garbageBytes;
+
+        private long add(String value) {
+            if (value == null) {
+                return NO_TEXT;
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > PAGE_SIZE) {
+                throw new IllegalArgumentException("Text of " + bytes.length + " bytes does not fit a page");
+            }
+            if (pageUsed + bytes.length > PAGE_SIZE) {
+                if (pageCount == pages.length) {
+                    pages = Arrays.copyOf(pages, Math.max(4, pageCount * 2));
+                }
+                pages[pageCount++] = new byte[PAGE_SIZE];
+                pageUsed = 0;
+            }
+
+            int page = pageCount - 1;
+            int offset = pageUsed;
+            System.arraycopy(bytes, 0, pages[page], offset, bytes.length);
+            pageUsed += bytes.length;
+            liveBytes += bytes.length;
+            return ((long) page << (PAGE_BITS + LENGTH_BITS)) | ((long) offset << LENGTH_BITS) | bytes.length;
+        }
+
+        private String get(long ref) {
+            if (ref == NO_TEXT) {
+                return null;
+            }
+            int page = (int) (ref >>> (PAGE_BITS + LENGTH_BITS));
+            int offset = (int) (ref >>> LENGTH_BITS) & (PAGE_SIZE - 1);
+            int length = (int) (ref & ((1L << LENGTH_BITS) - 1));
+            return new String(pages[page], offset, length, StandardCharsets.UTF_8);
+        }
+
+        private void release(long ref) {
+            if (ref != NO_TEXT) {
+                long length = ref & ((1L << LENGTH_BITS) - 1);
+                liveBytes -= length;
+                garbageBytes += length;
+            }
+        }
+
+        private long bytes() {
+            return (long) pageCount * PAGE_SIZE;
+        }
+    }
+}
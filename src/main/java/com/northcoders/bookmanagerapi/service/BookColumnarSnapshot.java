@@ -0,0 +1,250 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Compressed columnar snapshot of the book table. Rows are written in row groups, and within a group every column is
+// encoded and deflated on its own: similar values sit next to each other and compress well, and a reader can skip
+// the columns it does not need. The writer holds one row group in memory, whatever the size of the table.
+//
+//   file:      MAGIC, row group..., int 0
+//   row group: int row count, then for id, title, description, author and genre: int length, deflated column
+//   id:        varint, zigzag-encoded difference from the previous id in the group
+//   strings:   varint (UTF-8 length + 1, or 0 for null), UTF-8 bytes
+//   genre:     varint dictionary size, the names as strings, then per row a varint (dictionary index + 1, or 0)
+final class BookColumnarSnapshot {
+
+    static final String FILE_EXTENSION = ".bcol";
+
+    static final int ROW_GROUP_SIZE = 65_536;
+
+    private static final byte[] MAGIC = {'B', 'C', 'O', 'L', 0, 1};
+
+    private BookColumnarSnapshot() {
+    }
+
+    static Writer writer(Path file) throws IOException {
+        return new Writer(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))));
+    }
+
+    // Decodes the whole file; returns the number of books read
+    static long read(Path file, Consumer<Book> consumer) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!Arrays.equals(input.readNBytes(MAGIC.length), MAGIC)) {
+                throw new IOException("Not a book snapshot: " + file);
+            }
+
+            long rows = 0;
+            for (int groupRows = input.readInt(); groupRows > 0; groupRows = input.readInt()) {
+                ColumnReader ids = ColumnReader.inflate(input);
+                ColumnReader titles = ColumnReader.inflate(input);
+                ColumnReader descriptions = ColumnReader.inflate(input);
+                ColumnReader authors = ColumnReader.inflate(input);
+                ColumnReader genres = ColumnReader.inflate(input);
+
+                List<String> genreDictionary = new ArrayList<>();
+                for (long i = genres.readVarLong(); i > 0; i--) {
+                    genreDictionary.add(genres.readString());
+                }
+
+                long id = 0;
+                for (int row = 0; row < groupRows; row++) {
+                    id += zigzagDecode(ids.readVarLong());
+                    int genreIndex = (int) genres.readVarLong();
+                    consumer.accept(new Book(id, titles.readString(), descriptions.readString(), authors.readString(),
+                            genreIndex == 0 ? null : Genre.valueOf(genreDictionary.get(genreIndex - 1))));
+                }
+                rows += groupRows;
+            }
+            return rows;
+        }
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream output;
+
+        private final ColumnBuffer ids = new ColumnBuffer();
+
+        private final ColumnBuffer titles = new ColumnBuffer();
+
+        private final ColumnBuffer descriptions = new ColumnBuffer();
+
+        private final ColumnBuffer authors = new ColumnBuffer();
+
+        // Row indexes into the group's genre dictionary; the dictionary itself is written ahead of them on flush
+        private final ColumnBuffer genreIndexes = new ColumnBuffer();
+
+        private final Map<String, Integer> genreDictionary = new HashMap<>();
+
+        private final ColumnBuffer genres = new ColumnBuffer();
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+        private final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+
+        private int groupRows;
+
+        private long previousId;
+
+        private long rows;
+
+        private Writer(DataOutputStream output) throws IOException {
+            this.output = output;
+            output.write(MAGIC);
+        }
+
+        void add(long id, String title, String description, String author, String genre) throws IOException {
+            ids.writeVarLong(zigzagEncode(id - previousId));
+            previousId = id;
+            titles.writeString(title);
+            descriptions.writeString(description);
+            authors.writeString(author);
+            genreIndexes.writeVarLong(genre == null ? 0 : genreDictionary.computeIfAbsent(genre, key -> genreDictionary.size() + 1));
+
+            rows++;
+            if (++groupRows == ROW_GROUP_SIZE) {
+                flushRowGroup();
+            }
+        }
+
+        long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (groupRows > 0) {
+                    flushRowGroup();
+                }
+                output.writeInt(0);
+            } finally {
+                deflater.end();
+                output.close();
+            }
+        }
+
+        private void flushRowGroup() throws IOException {
+            String[] dictionary = new String[genreDictionary.size()];
+            genreDictionary.forEach((genre, index) -> dictionary[index - 1] = genre);
+            genres.writeVarLong(dictionary.length);
+            for (String genre : dictionary) {
+                genres.writeString(genre);
+            }
+            genreIndexes.writeTo(genres);
+
+            output.writeInt(groupRows);
+            for (ColumnBuffer column : List.of(ids, titles, descriptions, authors, genres)) {
+                writeDeflated(column);
+                column.reset();
+            }
+
+            genreIndexes.reset();
+            genreDictionary.clear();
+            groupRows = 0;
+            previousId = 0;
+        }
+
+        private void writeDeflated(ColumnBuffer column) throws IOException {
+            deflater.reset();
+            deflated.reset();
+            // Closing finishes the deflate stream but leaves the shared deflater open, as it was passed in
+            try (DeflaterOutputStream out = new DeflaterOutputStream(deflated, deflater)) {
+                column.writeTo(out);
+            }
+            output.writeInt(deflated.size());
+            deflated.writeTo(output);
+        }
+    }
+
+    // Reused across row groups: reset() keeps the grown array, so a writer stops allocating after the first group
+    private static final class ColumnBuffer extends ByteArrayOutputStream {
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class ColumnReader {
+
+        private final InputStream input;
+
+        private ColumnReader(byte[] column) {
+            this.input = new ByteArrayInputStream(column);
+        }
+
+        private static ColumnReader inflate(DataInputStream input) throws IOException {
+            byte[] deflated = input.readNBytes(input.readInt());
+            try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(deflated))) {
+                return new ColumnReader(in.readAllBytes());
+            }
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = input.read();
+                if (b < 0) {
+                    throw new IOException("Truncated book snapshot column");
+                }
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            int length = (int) readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            return new String(input.readNBytes(length - 1), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.BookExportSnapshot;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface BookExportService {
+
+    // Same formats and fields that POST /api/v1/book/imports reads, so an export can be imported elsewhere
+    void exportBooks(BookImportJob.Format format, OutputStream outputStream) throws IOException;
+    BookExportSnapshot writeSnapshot() throws IOException;
+}
@@ -0,0 +1,136 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.northcoders.bookmanagerapi.model.BookExportSnapshot;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import com.northcoders.bookmanagerapi.repository.BookShards;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+// Whole-table exports. Rows come off a JDBC cursor (BookExportRepository) and are written out one at a time, so the
+// heap holds one fetch of rows and the writer's buffers no matter how many books there are.
+@Service
+public class BookExportServiceImpl implements BookExportService {
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    // Same columns, in cursor order, for both formats
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addNumberColumn("id")
+            .addColumn("title")
+            .addColumn("description")
+            .addColumn("author")
+            .addColumn("genre")
+            .build()
+            .withHeader();
+
+    private static final DateTimeFormatter SNAPSHOT_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    // Rows per round-trip to the database; bounds the driver's share of the heap
+    @Value("${book.export.fetch-size:1000}")
+    int fetchSize = 1000;
+
+    @Value("${book.export.snapshot-dir:${java.io.tmpdir}/book-snapshots}")
+    Path snapshotDir = Paths.get(System.getProperty("java.io.tmpdir"), "book-snapshots");
+
+    @Autowired
+    BookManagerRepository bookManagerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Sharded, exports read the shards one after another, so ids are only in order within each shard
+    @Autowired(required = false)
+    BookShards bookShards = BookShards.UNSHARDED;
+
+    @Override
+    public void exportBooks(BookImportJob.Format format, OutputStream outputStream) throws IOException {
+        boolean ndjson = format == BookImportJob.Format.NDJSON;
+
+        try (JsonGenerator generator = ndjson
+                ? objectMapper.getFactory().createGenerator(outputStream)
+                : CSV_MAPPER.getFactory().createGenerator(outputStream)) {
+            // The caller owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            } else {
+                generator.setSchema(CSV_SCHEMA);
+            }
+
+            bookShards.forEachShard(() -> bookManagerRepository.streamExportRows(fetchSize, resultSet -> {
+                try {
+                    writeRow(generator, resultSet);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public BookExportSnapshot writeSnapshot() throws IOException {
+        Files.createDirectories(snapshotDir);
+        Instant createdAt = Instant.now();
+        Path snapshotFile = snapshotDir.resolve("books-" + SNAPSHOT_TIMESTAMP.format(createdAt) + BookColumnarSnapshot.FILE_EXTENSION);
+
+        // Written under a temporary name and renamed once complete, so the directory only ever shows whole snapshots
+        Path partFile = Files.createTempFile(snapshotDir, "books-", ".part");
+        long rows;
+        try (BookColumnarSnapshot.Writer writer = BookColumnarSnapshot.writer(partFile)) {
+            bookShards.forEachShard(() -> bookManagerRepository.streamExportRows(fetchSize, resultSet -> {
+                try {
+                    writer.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getString(4), resultSet.getString(5));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            rows = writer.rows();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partFile);
+            if (e instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw e;
+        }
+
+        Files.move(partFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+        return new BookExportSnapshot(snapshotFile.getFileName().toString(), rows, Files.size(snapshotFile), createdAt);
+    }
+
+    // Field names match Book's JSON properties (and the CSV schema), so imports read the rows back as books
+    private static void writeRow(JsonGenerator generator, ResultSet resultSet) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", resultSet.getLong(1));
+        generator.writeStringField("title", resultSet.getString(2));
+        generator.writeStringField("description", resultSet.getString(3));
+        generator.writeStringField("author", resultSet.getString(4));
+        generator.writeStringField("genre", resultSet.getString(5));
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,137 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Reads an import file one record at a time. A record that is not a valid book comes back as an error row rather
+// than ending the import; only an unreadable file (I/O, broken CSV quoting) throws.
+abstract class BookImportReader implements Iterator<BookImportReader.Row>, Closeable {
+
+    // Either a book or the reason the record was rejected
+    record Row(long number, Book book, String error) {
+    }
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    static BookImportReader open(BookImportJob.Format format, Path file, ObjectMapper objectMapper) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+
+        if (format == BookImportJob.Format.CSV) {
+            // Columns are matched by the header row, so their order and any omitted ones (e.g. id) are up to the file
+            ObjectReader csvReader = CSV_MAPPER.readerFor(Book.class).with(CsvSchema.emptySchema().withHeader());
+            return new Csv(csvReader.readValues(reader));
+        }
+
+        return new Ndjson(reader, objectMapper.readerFor(Book.class));
+    }
+
+    private static final class Ndjson extends BookImportReader {
+
+        private final BufferedReader lines;
+
+        private final ObjectReader bookReader;
+
+        private long lineNumber;
+
+        private String nextLine;
+
+        private Ndjson(BufferedReader lines, ObjectReader bookReader) {
+            this.lines = lines;
+            this.bookReader = bookReader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                // Blank lines are skipped but still counted, so row numbers match the file's line numbers
+                while (nextLine == null) {
+                    String line = lines.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    lineNumber++;
+                    if (!line.isBlank()) {
+                        nextLine = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+
+            try {
+                return new Row(lineNumber, bookReader.readValue(line), null);
+            } catch (JsonProcessingException e) {
+                return new Row(lineNumber, null, e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+
+    private static final class Csv extends BookImportReader {
+
+        private final MappingIterator<Book> books;
+
+        private long recordNumber;
+
+        private Csv(MappingIterator<Book> books) {
+            this.books = books;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return books.hasNextValue();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Row next() {
+            recordNumber++;
+            try {
+                return new Row(recordNumber, books.nextValue(), null);
+            } catch (JsonProcessingException e) {
+                // The iterator skips the rest of the bad record, so reading continues with the next one
+                return new Row(recordNumber, null, e.getOriginalMessage());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            books.close();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.model.BookImportProgress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+public interface BookImportService {
+
+    BookImportProgress startImport(BookImportJob.Format format, InputStream body) throws IOException;
+    Optional<BookImportProgress> getImport(Long id);
+    Optional<BookImportProgress> resumeImport(Long id);
+}
@@ -0,0 +1,319 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookBatchResult;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.model.BookImportProgress;
+import com.northcoders.bookmanagerapi.model.BookImportTotals;
+import com.northcoders.bookmanagerapi.repository.BookImportJobRepository;
+import com.northcoders.bookmanagerapi.repository.BookShards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs bulk imports in the background. The upload is spooled to disk first, then one reader thread per job parses it
+// record by record and hands chunks to workers shared by all jobs. Each chunk commits its books together with
+// its book_import_chunk row, so a failed or interrupted job resumes by skipping the chunks already recorded.
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    // One insertBooks chunk per transaction, as for POST /api/v1/book/batch
+    static final int CHUNK_SIZE = BookManagerServiceImpl.BATCH_CHUNK_SIZE;
+
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Value("${book.imports.spool-dir:${java.io.tmpdir}/book-imports}")
+    Path spoolDir = Paths.get(System.getProperty("java.io.tmpdir"), "book-imports");
+
+    @Value("${book.imports.max-running-jobs:2}")
+    int maxRunningJobs = 2;
+
+    @Value("${book.imports.workers:4}")
+    int workers = 4;
+
+    // Import threads are virtual like the rest of the application's; semaphores, not pool sizes, bound the jobs and
+    // chunk writers, so the limits stay the same either way
+    @Value("${spring.threads.virtual.enabled:false}")
+    boolean virtualThreads = false;
+
+    // A RUNNING job whose heartbeat is older than this lost its instance and may be resumed
+    @Value("${book.imports.stale-after:PT1M}")
+    Duration staleAfter = Duration.ofMinutes(1);
+
+    @Autowired
+    BookImportJobRepository bookImportJobRepository;
+
+    @Autowired
+    BookManagerService bookManagerService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    BookShards bookShards = BookShards.UNSHARDED;
+
+    // Jobs queued or running on this instance, kept alive by heartbeat()
+    private final Set<Long> localJobs = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService executor;
+
+    // Fair, so queued jobs start in the order they were submitted
+    private Semaphore runningJobs;
+
+    private Semaphore chunkWriters;
+
+    @PostConstruct
+    void startExecutors() {
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform();
+        executor = Executors.newThreadPerTaskExecutor(threads.name("book-import-", 0).factory());
+        runningJobs = new Semaphore(maxRunningJobs, true);
+        chunkWriters = new Semaphore(workers);
+    }
+
+    @PreDestroy
+    void stopExecutors() {
+        // Interrupted jobs stay RUNNING with a stale heartbeat, which makes them resumable
+        executor.shutdownNow();
+    }
+
+    @Override
+    public BookImportProgress startImport(BookImportJob.Format format, InputStream body) throws IOException {
+        // A chunk's books and its job row must commit together, which they cannot once the books span shards
+        bookShards.requireUnsharded("Bulk import");
+
+        Files.createDirectories(spoolDir);
+        Path spoolFile = Files.createTempFile(spoolDir, "import-", "." + format.name().toLowerCase());
+
+        Instant now = Instant.now();
+        BookImportJob job = bookImportJobRepository.save(new BookImportJob(null, format, BookImportJob.Status.RUNNING,
+                spoolFile.toString(), null, null, now, now, null));
+
+        // The whole upload lands on disk before the request returns, so parsing never holds up the client
+        try {
+            Files.copy(body, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spoolFile);
+            finish(job, BookImportJob.Status.FAILED, null, "Upload failed: " + e.getMessage());
+            throw e;
+        }
+
+        submit(job);
+        return toProgress(job);
+    }
+
+    @Override
+    public Optional<BookImportProgress> getImport(Long id) {
+        // A read replica may not have a job started moments ago; the primary, in a read-write transaction, does
+        return bookImportJobRepository.findById(id)
+                .or(() -> transactionTemplate.execute(status -> bookImportJobRepository.findById(id)))
+                .map(this::toProgress);
+    }
+
+    @Override
+    public Optional<BookImportProgress> resumeImport(Long id) {
+        Instant now = Instant.now();
+        if (bookImportJobRepository.claimForResume(id, now, now.minus(staleAfter),
+                BookImportJob.Status.RUNNING, BookImportJob.Status.FAILED) == 0) {
+            return Optional.empty();
+        }
+
+        // Read back in a read-write transaction, which stays on the primary: a read replica may not have the claim yet
+        BookImportJob job = transactionTemplate.execute(status -> bookImportJobRepository.findById(id).orElseThrow());
+        submit(job);
+        return Optional.of(toProgress(job));
+    }
+
+    @Scheduled(fixedDelayString = "${book.imports.heartbeat-interval:PT10S}")
+    public void heartbeat() {
+        Instant now = Instant.now();
+        localJobs.forEach(id -> bookImportJobRepository.updateHeartbeat(id, now));
+    }
+
+    private void submit(BookImportJob job) {
+        localJobs.add(job.getId());
+        executor.execute(() -> {
+            try {
+                runningJobs.acquire();
+                try {
+                    run(job);
+                } finally {
+                    runningJobs.release();
+                }
+            } catch (InterruptedException e) {
+                // Shutting down while queued; the job stays RUNNING with a stale heartbeat, so it can be resumed
+            } finally {
+                localJobs.remove(job.getId());
+            }
+        });
+    }
+
+    private void run(BookImportJob job) {
+        // On the primary, like every read the import acts on: a replica may not have the chunks of an earlier run yet
+        Set<Integer> committedChunks = new HashSet<>(transactionTemplate.execute(status ->
+                bookImportJobRepository.findCommittedChunks(job.getId())));
+        AtomicLong errorBudget = new AtomicLong(MAX_REPORTED_ERRORS - transactionTemplate.execute(status ->
+                bookImportJobRepository.countErrors(job.getId())));
+        List<Future<?>> pendingChunks = new ArrayList<>();
+        long rows = 0;
+
+        try (BookImportReader reader = BookImportReader.open(job.getFormat(), Path.of(job.getSpoolFile()), objectMapper)) {
+            int chunkIndex = 0;
+            List<BookImportReader.Row> chunk = new ArrayList<>(CHUNK_SIZE);
+
+            while (reader.hasNext()) {
+                chunk.add(reader.next());
+                rows++;
+
+                if (chunk.size() == CHUNK_SIZE || !reader.hasNext()) {
+                    // Chunks committed by an earlier run are still read, to keep the chunk boundaries where they were
+                    if (!committedChunks.contains(chunkIndex)) {
+                        List<BookImportReader.Row> rowsToImport = chunk;
+                        int index = chunkIndex;
+                        pendingChunks.add(submitChunk(() -> importChunk(job.getId(), index, rowsToImport, errorBudget)));
+                    }
+                    chunkIndex++;
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    awaitChunks(pendingChunks, false);
+                }
+            }
+
+            awaitChunks(pendingChunks, true);
+        } catch (Exception e) {
+            pendingChunks.forEach(pendingChunk -> pendingChunk.cancel(false));
+            finish(job, BookImportJob.Status.FAILED, null, e instanceof ExecutionException ? e.getCause().toString() : e.toString());
+            return;
+        }
+
+        finish(job, BookImportJob.Status.COMPLETED, rows, null);
+        try {
+            Files.deleteIfExists(Path.of(job.getSpoolFile()));
+        } catch (IOException e) {
+            // Leaves a stray file in the spool directory; the job itself is complete
+        }
+    }
+
+    // Hands the chunk to a free writer. With every writer busy, the job's reader thread writes it itself instead of
+    // parsing further ahead, so unwritten chunks never pile up in memory.
+    private Future<?> submitChunk(Runnable importChunk) {
+        FutureTask<?> chunk = new FutureTask<>(importChunk, null);
+        if (!chunkWriters.tryAcquire()) {
+            chunk.run();
+            return chunk;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    chunk.run();
+                } finally {
+                    chunkWriters.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            chunkWriters.release();
+            throw e;
+        }
+        return chunk;
+    }
+
+    // Drops finished chunks from the list, surfacing the first failure; with `all`, waits for every chunk first
+    private static void awaitChunks(List<Future<?>> pendingChunks, boolean all) throws ExecutionException, InterruptedException {
+        for (Future<?> pendingChunk : pendingChunks) {
+            if (all || pendingChunk.isDone()) {
+                pendingChunk.get();
+            }
+        }
+        pendingChunks.removeIf(Future::isDone);
+    }
+
+    private void importChunk(long jobId, int chunkIndex, List<BookImportReader.Row> rows, AtomicLong errorBudget) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeChunk(jobId, chunkIndex, rows, errorBudget));
+        } catch (DataIntegrityViolationException e) {
+            // Another run of this job committed the chunk first
+            if (transactionTemplate.execute(status -> bookImportJobRepository.findCommittedChunks(jobId)).contains(chunkIndex)) {
+                return;
+            }
+            // Or a concurrent writer took one of the ids after the lookup; the retry sees it and reports a conflict
+            transactionTemplate.executeWithoutResult(status -> writeChunk(jobId, chunkIndex, rows, errorBudget));
+        }
+    }
+
+    private void writeChunk(long jobId, int chunkIndex, List<BookImportReader.Row> rows, AtomicLong errorBudget) {
+        List<Book> books = rows.stream().map(BookImportReader.Row::book).filter(Objects::nonNull).toList();
+        List<BookImportReader.Row> rejectedRows = rows.stream().filter(row -> row.book() == null).toList();
+
+        // Joins this transaction, so the books and the chunk row below commit together
+        List<BookBatchResult> results = bookManagerService.insertBooks(books.iterator());
+        int imported = (int) results.stream().filter(result -> result.getStatus() == BookBatchResult.Status.CREATED).count();
+
+        bookImportJobRepository.recordChunk(jobId, chunkIndex, imported, results.size() - imported, rejectedRows.size());
+
+        for (BookImportReader.Row row : rejectedRows) {
+            if (errorBudget.getAndDecrement() > 0) {
+                String message = Objects.requireNonNullElse(row.error(), "Unreadable record");
+                bookImportJobRepository.recordError(jobId, row.number(),
+                        message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+            }
+        }
+    }
+
+    private void finish(BookImportJob job, BookImportJob.Status status, Long totalRows, String error) {
+        Instant now = Instant.now();
+        job.setStatus(status);
+        job.setTotalRows(totalRows);
+        job.setError(error != null && error.length() > 2000 ? error.substring(0, 2000) : error);
+        job.setHeartbeatAt(now);
+        job.setFinishedAt(now);
+        bookImportJobRepository.save(job);
+    }
+
+    private BookImportProgress toProgress(BookImportJob job) {
+        BookImportTotals totals = bookImportJobRepository.sumCommittedChunks(job.getId());
+        long rowsCommitted = totals.getImported() + totals.getConflicted() + totals.getFailed();
+
+        Instant end = job.getFinishedAt() != null ? job.getFinishedAt() : Instant.now();
+        long elapsedMillis = Math.max(1, Duration.between(job.getCreatedAt(), end).toMillis());
+
+        return new BookImportProgress(job.getId(), job.getFormat(), job.getStatus(), totals.getChunks(),
+                totals.getImported(), totals.getConflicted(), totals.getFailed(), job.getTotalRows(),
+                rowsCommitted * 1000.0 / elapsedMillis, job.getCreatedAt(), job.getHeartbeatAt(), job.getFinishedAt(),
+                job.getError(), bookImportJobRepository.findErrors(job.getId(), Limit.of(MAX_REPORTED_ERRORS)));
+    }
+}
@@ -1,18 +1,46 @@
 package com.northcoders.bookmanagerapi.service;
 
 import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookBatchResult;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSearchHit;
+import com.northcoders.bookmanagerapi.model.BookStats;
+import com.northcoders.bookmanagerapi.model.BookSummary;
 import com.northcoders.bookmanagerapi.model.Genre;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface BookManagerService {
 
     List<Book> getAllBooks();
     List<Book> getBooksByGenre(Genre genre);
-    Optional<Book> insertBook(Book book);
+    List<BookSummary> getBookSummaries();
+    List<BookSummary> getBookSummariesByGenre(Genre genre);
+    Slice<Book> getBooksAfter(Genre genre, Long afterId, int limit);
+    Slice<Book> filterBooks(BookFilter filter, Pageable pageable);
+    void streamAllBooks(Consumer<Book> consumer);
+    List<BookSearchHit> searchBooks(String query, int page, int size);
+    Book insertBook(Book book);
+    List<BookBatchResult> insertBooks(Iterator<Book> books);
 
-    Optional<Book> getBookById(Long id);
-    Optional<Book> replaceBook(Long id, Book book);
-    Optional<Book> deleteBookById(Long id);
+    // These throw ResourceNotFoundException, or ResourceAlreadyExistsException for an insert with a taken id
+    Book getBookById(Long id);
+    Book replaceBook(Long id, Book book);
+    Book replaceBook(Long id, Book book, Set<Long> expectedVersions);
+    void deleteBookById(Long id);
+
+    // These throw ChangesPurgedException for a change_seq from before the newest purged tombstone
+    List<Book> getChangesSince(long changeSeq, int limit);
+    void checkChangesRetained(long changeSeq);
+
+    BookStats getStatistics();
+    BookStats getStatistics(String author);
+    long countBooks();
+    long estimateBooks(BookFilter filter);
+    long getCatalogueVersion();
 }
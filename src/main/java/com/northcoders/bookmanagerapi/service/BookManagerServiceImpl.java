@@ -1,76 +1,512 @@
 package com.northcoders.bookmanagerapi.service;
 
+import com.northcoders.bookmanagerapi.exception.ChangesPurgedException;
+import com.northcoders.bookmanagerapi.exception.ResourceAlreadyExistsException;
+import com.northcoders.bookmanagerapi.exception.ResourceNotFoundException;
+import com.northcoders.bookmanagerapi.exception.ResourceVersionMismatchException;
 import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookBatchResult;
+import com.northcoders.bookmanagerapi.model.BookCatalogueVersion;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSearchHit;
+import com.northcoders.bookmanagerapi.model.BookStats;
+import com.northcoders.bookmanagerapi.model.BookSummary;
 import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookShards;
 import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import com.northcoders.bookmanagerapi.repository.BookSpecifications;
+import com.northcoders.bookmanagerapi.repository.ReadYourWrites;
+import com.northcoders.bookmanagerapi.repository.ReplicaLagMonitor;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+// Every public method is timed as `book.service`, tagged with its method name. The timer sits inside the cache
+// advice, so it measures the work behind a cache miss; `http.server.requests` covers whole requests.
 @Service
+@Timed("book.service")
 public class BookManagerServiceImpl implements BookManagerService {
 
+    // Cache names are declared in `spring.cache.cache-names` so the CacheManager can size and meter them up front
+    public static final String BOOKS_CACHE = "books";
+
+    // Multiple of hibernate.jdbc.batch_size so every flush sends full JDBC batches
+    static final int BATCH_CHUNK_SIZE = 500;
+
+    private static final Comparator<Book> BY_ID = Comparator.comparing(Book::getId);
+
     @Autowired
     BookManagerRepository bookManagerRepository;
 
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    BookStatistics bookStatistics;
+
+    // Only defined when the catalogue is sharded, see ShardRoutingConfig
+    @Autowired(required = false)
+    BookShards bookShards = BookShards.UNSHARDED;
+
+    // Only defined when `book.read-model.enabled` is set; listings and filters are then served from memory
+    @Autowired(required = false)
+    BookReadModel bookReadModel;
+
+    // Only defined with read replicas, see ReplicaRoutingConfig
+    @Autowired(required = false)
+    ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    CacheManager cacheManager;
+
     @Override
+    @Transactional(readOnly = true)
     public List<Book> getAllBooks() {
-        List<Book> books = new ArrayList<>();
+        if (bookReadModel != null) {
+            return bookReadModel.findAll();
+        }
+        return bookShards.gather(() -> {
+            List<Book> books = new ArrayList<>();
 
-        bookManagerRepository.findAll().forEach(books::add);
-        return books;
+            bookManagerRepository.findAll().forEach(books::add);
+            return books;
+        }, BY_ID);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Book> getBooksByGenre(Genre genre) {
-        return bookManagerRepository.findByGenre(genre);
+        if (bookReadModel != null) {
+            return bookReadModel.findByGenre(genre);
+        }
+        return bookShards.gather(() -> bookManagerRepository.findByGenre(genre), BY_ID);
     }
 
     @Override
-    public Optional<Book> insertBook(Book book) {
-        Optional<Book> foundBook = bookManagerRepository.findById(book.getId());
+    @Transactional(readOnly = true)
+    public List<BookSummary> getBookSummaries() {
+        if (bookReadModel != null) {
+            return bookReadModel.findAllSummaries();
+        }
+        return bookShards.gather(bookManagerRepository::findAllProjectedBy, Comparator.comparing(BookSummary::id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookSummary> getBookSummariesByGenre(Genre genre) {
+        if (bookReadModel != null) {
+            return bookReadModel.findSummariesByGenre(genre);
+        }
+        return bookShards.gather(() -> bookManagerRepository.findByGenre(genre, BookSummary.class),
+                Comparator.comparing(BookSummary::id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> getBooksAfter(Genre genre, Long afterId, int limit) {
+        PageRequest pageRequest = PageRequest.of(0, limit, Sort.by("id"));
+        Long lowerBound = afterId == null ? Long.MIN_VALUE : afterId;
+
+        Supplier<Slice<Book>> page = () -> genre != null
+                ? bookManagerRepository.findByGenreAndIdGreaterThan(genre, lowerBound, pageRequest)
+                : bookManagerRepository.findByIdGreaterThan(lowerBound, pageRequest);
+
+        if (!bookShards.isSharded()) {
+            return page.get();
+        }
 
-        if (foundBook.isPresent()) {
-            return Optional.empty();
+        // Every shard returns its first `limit` books past the cursor; the page is the lowest `limit` of them all
+        List<Slice<Book>> shardPages = bookShards.scatter(page);
+        List<Book> books = shardPages.stream().flatMap(shardPage -> shardPage.getContent().stream()).sorted(BY_ID).toList();
+        boolean hasNext = books.size() > limit || shardPages.stream().anyMatch(Slice::hasNext);
+        return new SliceImpl<>(books.subList(0, Math.min(limit, books.size())), pageRequest, hasNext);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> filterBooks(BookFilter filter, Pageable pageable) {
+        if (bookReadModel != null) {
+            return bookReadModel.filter(filter, pageable);
         }
+        if (!bookShards.isSharded()) {
+            return bookManagerRepository.findSlice(BookSpecifications.of(filter), pageable);
+        }
+
+        // Every shard returns its first offset + size matches in the page's order; the page is that window of them all
+        PageRequest shardRequest = PageRequest.of(0, shardWindow(pageable), pageable.getSort());
+        List<Slice<Book>> shardSlices = bookShards.scatter(() -> bookManagerRepository.findSlice(BookSpecifications.of(filter), shardRequest));
+        List<Book> books = shardSlices.stream().flatMap(shardSlice -> shardSlice.getContent().stream())
+                .sorted(bySort(pageable.getSort())).toList();
+        return window(books, pageable, shardSlices.stream().anyMatch(Slice::hasNext));
+    }
 
-        return Optional.of(bookManagerRepository.save(book));
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<Book> consumer) {
+        // Sharded, the shards are streamed one after another, each in id order
+        bookShards.forEachShard(() -> {
+            try (Stream<Book> books = bookManagerRepository.streamAllBy()) {
+                books.forEach(book -> {
+                    consumer.accept(book);
+                    // Detach as we go so the persistence context does not grow with the table
+                    entityManager.detach(book);
+                });
+            }
+        });
     }
 
     @Override
-    public Optional<Book> getBookById(Long id) {
-        return bookManagerRepository.findById(id);
+    @Transactional(readOnly = true)
+    public List<BookSearchHit> searchBooks(String query, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(page, size);
+        if (!bookShards.isSharded()) {
+            return bookManagerRepository.searchBooks(query, pageRequest);
+        }
+
+        // As for filters. ts_rank only looks at the book and the query, so ranks from different shards compare.
+        PageRequest shardRequest = PageRequest.of(0, shardWindow(pageRequest));
+        List<BookSearchHit> hits = bookShards.gather(() -> bookManagerRepository.searchBooks(query, shardRequest),
+                Comparator.comparing(BookSearchHit::getRank, Comparator.reverseOrder()).thenComparing(BookSearchHit::getId));
+        return window(hits, pageRequest, false).getContent();
     }
 
     @Override
-    public Optional<Book> replaceBook(Long id, Book bookToPut) {
-        Optional<Book> foundBook = bookManagerRepository.findById(id);
+    @CachePut(cacheNames = BOOKS_CACHE, key = "#result.id")
+    public Book insertBook(Book book) {
+        // Books without an id get one from the sequence, so there is nothing to conflict with
+        if (book.getId() == null && !bookShards.isSharded()) {
+            Book savedBook = bookManagerRepository.save(book);
+            recordInsert(savedBook);
+            ReadYourWrites.noteWrite();
+            return savedBook;
+        }
 
-        if (foundBook.isPresent()) {
-            foundBook.get().setTitle(bookToPut.getTitle());
-            foundBook.get().setDescription(bookToPut.getDescription());
-            foundBook.get().setAuthor(bookToPut.getAuthor());
-            foundBook.get().setGenre(bookToPut.getGenre());
-            bookManagerRepository.save(foundBook.get());
+        // Sharded, the id picks the shard, so it is generated up front
+        if (book.getId() == null) {
+            book.setId(bookShards.nextId());
         }
 
-        return foundBook;
+        // Let the primary key detect the conflict rather than reading the row first. The insert runs in
+        // its own transaction, so the violation rolls back only that statement.
+        try {
+            bookShards.onShardOf(book.getId(), () -> bookManagerRepository.insertBookWithId(book));
+        } catch (DataIntegrityViolationException e) {
+            throw new ResourceAlreadyExistsException(Book.class.getSimpleName(), book.getId());
+        }
+
+        book.setVersion(0L);
+        recordInsert(book);
+        ReadYourWrites.noteWrite();
+        return book;
     }
 
     @Override
-    public Optional<Book> deleteBookById(Long id) {
-        Optional<Book> foundBook = bookManagerRepository.findById(id);
+    public List<BookBatchResult> insertBooks(Iterator<Book> books) {
+        List<BookBatchResult> results = new ArrayList<>();
+        List<Book> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+
+        while (books.hasNext()) {
+            chunk.add(books.next());
 
-        if (foundBook.isPresent()) {
-            bookManagerRepository.deleteById(foundBook.get().getId());
+            if (chunk.size() == BATCH_CHUNK_SIZE || !books.hasNext()) {
+                int firstIndex = results.size();
+                List<BookBatchResult> chunkResults = bookShards.isSharded()
+                        ? insertShardedChunk(chunk, firstIndex)
+                        : transactionTemplate.execute(status -> insertChunk(chunk, firstIndex));
+                recordInserts(chunkResults.stream()
+                        .filter(result -> result.getStatus() == BookBatchResult.Status.CREATED)
+                        .map(result -> chunk.get(result.getIndex() - firstIndex))
+                        .toList());
+                ReadYourWrites.noteWrite();
+                results.addAll(chunkResults);
+                chunk.clear();
+            }
         }
 
-        return foundBook;
+        return results;
     }
 
+    private void recordInsert(Book book) {
+        bookStatistics.recordInsert(book);
+        if (bookReadModel != null) {
+            bookReadModel.put(book);
+        }
+    }
+
+    // A chunk's books reach the read model under one write lock, rather than one per book
+    private void recordInserts(List<Book> books) {
+        books.forEach(bookStatistics::recordInsert);
+        if (bookReadModel != null && !books.isEmpty()) {
+            bookReadModel.putAll(books);
+        }
+    }
+
+    // Splits the chunk by shard and inserts each part on its shard. The parts commit separately, so a shard that fails
+    // leaves the books already written to the others in place.
+    private List<BookBatchResult> insertShardedChunk(List<Book> chunk, int firstIndex) {
+        Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Book book = chunk.get(i);
+            if (book.getId() == null) {
+                book.setId(bookShards.nextId());
+            }
+            positionsByShard.computeIfAbsent(bookShards.shardOf(book.getId()), shard -> new ArrayList<>()).add(i);
+        }
+
+        BookBatchResult[] results = new BookBatchResult[chunk.size()];
+        positionsByShard.forEach((shard, positions) -> {
+            List<Book> shardChunk = positions.stream().map(chunk::get).toList();
+            for (BookBatchResult result : bookShards.executeOnShard(shard, () -> insertChunk(shardChunk, 0))) {
+                int position = positions.get(result.getIndex());
+                results[position] = new BookBatchResult(firstIndex + position, result.getId(), result.getStatus());
+            }
+        });
+
+        return List.of(results);
+    }
+
+    private List<BookBatchResult> insertChunk(List<Book> chunk, int firstIndex) {
+        Set<Long> requestedIds = new HashSet<>();
+        chunk.stream().map(Book::getId).filter(Objects::nonNull).forEach(requestedIds::add);
+
+        // One lookup for the whole chunk instead of a findById per book
+        Set<Long> takenIds = new HashSet<>();
+        if (!requestedIds.isEmpty()) {
+            takenIds.addAll(bookManagerRepository.findTakenIds(requestedIds));
+        }
+
+        BookBatchResult[] results = new BookBatchResult[chunk.size()];
+        List<Book> booksToSave = new ArrayList<>(chunk.size());
+        List<Integer> positionsToSave = new ArrayList<>(chunk.size());
+        List<Book> booksWithIds = new ArrayList<>(requestedIds.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Book book = chunk.get(i);
+
+            if (book.getId() == null) {
+                booksToSave.add(book);
+                positionsToSave.add(i);
+            } else if (!takenIds.add(book.getId())) {
+                // Set.add also rejects the same id appearing twice within the chunk
+                results[i] = new BookBatchResult(firstIndex + i, book.getId(), BookBatchResult.Status.CONFLICT);
+            } else {
+                booksWithIds.add(book);
+                results[i] = new BookBatchResult(firstIndex + i, book.getId(), BookBatchResult.Status.CREATED);
+            }
+        }
+
+        bookManagerRepository.insertBooksWithIds(booksWithIds);
+        booksWithIds.forEach(book -> book.setVersion(0L));
+
+        List<Book> savedBooks = new ArrayList<>(booksToSave.size());
+        bookManagerRepository.saveAll(booksToSave).forEach(savedBooks::add);
+
+        for (int i = 0; i < savedBooks.size(); i++) {
+            int position = positionsToSave.get(i);
+            results[position] = new BookBatchResult(firstIndex + position, savedBooks.get(i).getId(), BookBatchResult.Status.CREATED);
+        }
+
+        // Keep the (possibly request-scoped) persistence context from growing across chunks
+        entityManager.flush();
+        entityManager.clear();
+
+        return List.of(results);
+    }
+
+    @Override
+    @Cacheable(cacheNames = BOOKS_CACHE, key = "#id")
+    @Transactional(readOnly = true)
+    public Book getBookById(Long id) {
+        return bookShards.onShardOf(id, () -> bookManagerRepository.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException(Book.class.getSimpleName(), id));
+    }
+
+    @Override
+    @CachePut(cacheNames = BOOKS_CACHE, key = "#id")
+    public Book replaceBook(Long id, Book bookToPut) {
+        return replaceBook(id, bookToPut, null);
+    }
+
+    @Override
+    @CachePut(cacheNames = BOOKS_CACHE, key = "#id")
+    public Book replaceBook(Long id, Book bookToPut, Set<Long> expectedVersions) {
+        // A fresh random version instead of version + 1, so the new ETag is known without reading the row back
+        long newVersion = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+        Optional<BookCountKey> previous =
+                bookShards.onShardOf(id, () -> bookManagerRepository.updateBook(id, bookToPut, expectedVersions, newVersion));
+        if (previous.isEmpty()) {
+            // Only a conditional update needs the extra lookup, to tell a stale version from a missing book. It runs
+            // in a read-write transaction so it stays on the primary, which just ran the update.
+            if (expectedVersions != null && Boolean.TRUE.equals(bookShards.onShardOf(id,
+                    () -> transactionTemplate.execute(status -> bookManagerRepository.existsById(id))))) {
+                throw new ResourceVersionMismatchException(Book.class.getSimpleName(), id,
+                        expectedVersions.size() == 1 ? expectedVersions.iterator().next() : expectedVersions);
+            }
+            throw new ResourceNotFoundException(Book.class.getSimpleName(), id);
+        }
+
+        ReadYourWrites.noteWrite();
+        Book replacedBook = new Book(id, bookToPut.getTitle(), bookToPut.getDescription(), bookToPut.getAuthor(),
+                bookToPut.getGenre(), newVersion);
+        bookStatistics.recordReplace(previous.get(), replacedBook);
+        if (bookReadModel != null) {
+            bookReadModel.put(replacedBook);
+        }
+        evictOnceReplicated(id);
+        return replacedBook;
+    }
+
+    // Evicted before the delete runs, so a book another instance already deleted leaves the cache even though
+    // this call ends in ResourceNotFoundException
+    @Override
+    @CacheEvict(cacheNames = BOOKS_CACHE, key = "#id", beforeInvocation = true)
+    public void deleteBookById(Long id) {
+        // Leaves a tombstone behind for the change feed
+        Optional<BookCountKey> previous = bookShards.onShardOf(id, () -> bookManagerRepository.deleteBookById(id));
+        if (previous.isEmpty()) {
+            throw new ResourceNotFoundException(Book.class.getSimpleName(), id);
+        }
+
+        bookStatistics.recordDelete(previous.get());
+        ReadYourWrites.noteWrite();
+        if (bookReadModel != null) {
+            bookReadModel.remove(id);
+        }
+        evictOnceReplicated(id);
+    }
+
+    // Another client's read may still go to a replica without this write, and put the old book back in the caches.
+    // Evicted once more when no replica serving reads can be missing the write.
+    private void evictOnceReplicated(Long id) {
+        if (replicaLagMonitor == null) {
+            return;
+        }
+        replicaLagMonitor.onceReplicated(() -> {
+            Objects.requireNonNull(cacheManager.getCache(BOOKS_CACHE)).evict(id);
+            entityManager.getEntityManagerFactory().getCache().evict(Book.class, id);
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> getChangesSince(long changeSeq, int limit) {
+        // Each shard has its own change sequence, so there is no single cursor to resume from
+        bookShards.requireUnsharded("The change feed");
+        List<Book> changes = bookManagerRepository.findChangesSince(changeSeq, Limit.of(limit));
+        // Checked after the read: a purge that committed before it has moved the horizon by now
+        checkChangesRetained(changeSeq);
+        return changes;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void checkChangesRetained(long changeSeq) {
+        // From the start, nothing is missing: purged tombstones are of books a new client never saw
+        if (changeSeq > 0 && changeSeq < bookManagerRepository.findChangesPurgedThrough()) {
+            throw new ChangesPurgedException();
+        }
+    }
+
+    @Override
+    public BookStats getStatistics() {
+        return bookStatistics.snapshot();
+    }
+
+    @Override
+    public BookStats getStatistics(String author) {
+        return bookStatistics.snapshot(author);
+    }
+
+    @Override
+    public long countBooks() {
+        return bookStatistics.total();
+    }
+
+    @Override
+    public long estimateBooks(BookFilter filter) {
+        return bookStatistics.estimateRows(filter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getCatalogueVersion() {
+        // Listings then come from the read model, which trails the database; its own version matches what it serves
+        if (bookReadModel != null) {
+            return bookReadModel.version();
+        }
+        // Sharded, every shard's version mixed together: it still moves whenever any shard changes
+        return bookShards.scatter(bookManagerRepository::findCatalogueVersion).stream()
+                .mapToLong(BookCatalogueVersion::value)
+                .reduce(0, (combined, shardVersion) -> 31 * combined + shardVersion);
+    }
+
+    private static int shardWindow(Pageable pageable) {
+        return Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+    }
+
+    // The page `pageable` asks for out of the merged shard results. There is a next page if the merged results go
+    // past it, or a shard had more than it returned.
+    private static <T> Slice<T> window(List<T> merged, Pageable pageable, boolean shardHasMore) {
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new SliceImpl<>(merged.subList(from, to), pageable, shardHasMore || merged.size() > to);
+    }
+
+    // In-memory version of the filter's ORDER BY, as in BookColumnStore: nulls last ascending, first descending
+    private static Comparator<Book> bySort(Sort sort) {
+        Comparator<Book> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Book> byProperty = switch (order.getProperty()) {
+                case "id" -> BY_ID;
+                case "title" -> Comparator.comparing(Book::getTitle, Comparator.nullsLast(Comparator.naturalOrder()));
+                case "author" -> Comparator.comparing(Book::getAuthor, Comparator.nullsLast(Comparator.naturalOrder()));
+                // Stored by name, so the database orders genres by name too
+                case "genre" -> Comparator.comparing(book -> book.getGenre() == null ? null : book.getGenre().name(),
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                default -> throw new IllegalArgumentException("Cannot sort books by " + order.getProperty());
+            };
+            if (order.isDescending()) {
+                byProperty = byProperty.reversed();
+            }
+            comparator = comparator == null ? byProperty : comparator.thenComparing(byProperty);
+        }
+        return comparator == null ? BY_ID : comparator;
+    }
 }
@@ -0,0 +1,269 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSummary;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import com.northcoders.bookmanagerapi.repository.BookShards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Optional in-memory copy of the book table for read-heavy nodes (`book.read-model.enabled`), kept in a
+// BookColumnStore. Listings, genre queries and filters are answered from it without a database round-trip. It is
+// loaded at startup, takes this instance's writes as they commit, and picks up other instances' writes from the change
+// feed, so it trails them by about `book.read-model.refresh-interval`.
+@Component
+@ConditionalOnProperty(name = "book.read-model.enabled", havingValue = "true")
+public class BookReadModel {
+
+    static final int CHANGE_BATCH_SIZE = 1000;
+
+    static final String BOOKS_METRIC = "book.read-model.books";
+
+    static final String BYTES_METRIC = "book.read-model.bytes";
+
+    @Autowired
+    BookManagerRepository bookManagerRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired(required = false)
+    BookShards bookShards = BookShards.UNSHARDED;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // One catch-up at a time, without pinning a virtual thread's carrier while the change feed is read
+    private final ReentrantLock catchingUp = new ReentrantLock();
+
+    // Guarded by lock
+    private BookColumnStore store = new BookColumnStore();
+
+    // The change feed position the store has caught up to. Guarded by lock; only moved by warm() and catchUp().
+    private long changeCursor;
+
+    // Writes this instance has applied to the store, ever. Guarded by lock.
+    private long localWrites;
+
+    // This instance's writes the change feed has not returned yet, by book id. Guarded by lock.
+    private final Map<Long, LocalWrite> unsequencedWrites = new HashMap<>();
+
+    // Set in the top bit, so versions with local writes never equal a change feed position
+    private final long instanceTag = ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void warm() {
+        // The change feed it catches up from is per shard
+        bookShards.requireUnsharded("The in-memory read model");
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        // The feed resumes after the newest change seen while loading. Changes are sequenced in commit order, so any
+        // the load missed come after it; a change replayed because the load already saw it only rewrites the same row.
+        BookColumnStore loaded = new BookColumnStore();
+        long[] cursor = new long[1];
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Book> books = bookManagerRepository.streamAllBy()) {
+                books.forEach(book -> {
+                    loaded.put(book);
+                    if (book.getChangeSeq() != null) {
+                        cursor[0] = Math.max(cursor[0], book.getChangeSeq());
+                    }
+                    entityManager.detach(book);
+                });
+            }
+        });
+
+        write(current -> {
+            store = loaded;
+            changeCursor = cursor[0];
+        });
+
+        Gauge.builder(BOOKS_METRIC, this, readModel -> readModel.read(BookColumnStore::size)).register(meterRegistry);
+        Gauge.builder(BYTES_METRIC, this, readModel -> readModel.read(BookColumnStore::estimatedBytes))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${book.read-model.refresh-interval:PT1S}")
+    public void catchUp() {
+        catchingUp.lock();
+        try {
+            List<Book> changes;
+            boolean[] stopped = new boolean[1];
+            do {
+                long writesBeforeRead = read(current -> localWrites);
+                // Only this method moves the cursor, so it can be read here without the lock
+                changes = readOnlyTransaction.execute(status ->
+                        bookManagerRepository.findChangesSince(changeCursor, Limit.of(CHANGE_BATCH_SIZE)));
+                if (changes.isEmpty()) {
+                    return;
+                }
+
+                List<Book> batch = changes;
+                write(current -> stopped[0] = applyChanges(current, batch, writesBeforeRead));
+            } while (stopped[0] || changes.size() == CHANGE_BATCH_SIZE);
+        } finally {
+            catchingUp.unlock();
+        }
+    }
+
+    // Called with the write lock held. Stops at a row for a book this instance wrote after the batch was read, which
+    // may be older than that write, and returns true; reading again from there, the row is either the feed's copy of
+    // the write or another instance's later one.
+    private boolean applyChanges(BookColumnStore current, List<Book> batch, long writesBeforeRead) {
+        for (Book change : batch) {
+            LocalWrite localWrite = unsequencedWrites.get(change.getId());
+            if (localWrite != null) {
+                if (!localWrite.isReturnedBy(change) && localWrite.appliedAt() > writesBeforeRead) {
+                    return true;
+                }
+                // The feed's copy of the write or, read after the write was applied, a later one that replaced it
+                unsequencedWrites.remove(change.getId());
+            }
+
+            if (change.isDeleted()) {
+                current.remove(change.getId());
+            } else {
+                current.put(change);
+            }
+            changeCursor = change.getChangeSeq();
+        }
+        return false;
+    }
+
+    // The catalogue version behind listing ETags while listings come from here. It moves whenever the store does: with
+    // the change feed, and with each write this instance applies ahead of it. Once the feed has returned all of those
+    // writes, the store holds the feed up to changeCursor, as any other instance at that position does, so the
+    // position is the version; until then, the version is this instance's own. Both parts only grow, so a version is
+    // never handed out twice.
+    public long version() {
+        lock.readLock().lock();
+        try {
+            return unsequencedWrites.isEmpty() ? changeCursor : instanceTag ^ (changeCursor + localWrites);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Book> findAll() {
+        return read(BookColumnStore::findAll);
+    }
+
+    public List<Book> findByGenre(Genre genre) {
+        return read(current -> current.findByGenre(genre));
+    }
+
+    public List<BookSummary> findAllSummaries() {
+        return read(BookColumnStore::findAllSummaries);
+    }
+
+    public List<BookSummary> findSummariesByGenre(Genre genre) {
+        return read(current -> current.findSummariesByGenre(genre));
+    }
+
+    public Slice<Book> filter(BookFilter filter, Pageable pageable) {
+        return read(current -> current.filter(filter, pageable));
+    }
+
+    // Writes are applied once the surrounding transaction, if any, commits, so a rollback leaves no trace here
+    public void put(Book book) {
+        putAll(List.of(book));
+    }
+
+    public void putAll(List<Book> books) {
+        afterCommit(() -> write(current -> {
+            localWrites++;
+            books.forEach(book -> {
+                current.put(book);
+                unsequencedWrites.put(book.getId(), new LocalWrite(book.getVersion(), false, localWrites));
+            });
+        }));
+    }
+
+    public void remove(long id) {
+        afterCommit(() -> write(current -> {
+            localWrites++;
+            current.remove(id);
+            unsequencedWrites.put(id, new LocalWrite(0, true, localWrites));
+        }));
+    }
+
+    private <T> T read(Function<BookColumnStore, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(store);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Consumer<BookColumnStore> update) {
+        lock.writeLock().lock();
+        try {
+            update.accept(store);
+            if (store.needsCompaction()) {
+                store = store.compacted();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // `appliedAt` is localWrites just after the write was applied
+    private record LocalWrite(long version, boolean deleted, long appliedAt) {
+
+        // Versions are replaced on every update and tombstones stay deleted, so a matching row is this write's own
+        boolean isReturnedBy(Book change) {
+            return change.isDeleted() ? deleted : !deleted && change.getVersion() == version;
+        }
+    }
+
+    private static void afterCommit(Runnable write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                write.run();
+            }
+        });
+    }
+}
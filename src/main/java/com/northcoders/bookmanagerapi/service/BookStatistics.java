@@ -0,0 +1,325 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookCount;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookStats;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import com.northcoders.bookmanagerapi.repository.BookShards;
+import com.northcoders.bookmanagerapi.repository.BookSpecifications;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory book counts, so the stats endpoint never scans the table. This instance's writes are applied as they
+// commit: inserts add the new book, and replaces and deletes move or remove the book under the genre and author
+// their statement returned for the old row. A GROUP BY, started in the background at startup and run every
+// `book.stats.reconcile-interval`, rebuilds the counters, which also picks up writes made by other instances.
+//
+// snapshot() keeps what it builds until the counters next change, so reads between writes cost nothing. It lists the
+// `book.stats.top-authors` authors with the most books; any other author's count comes from snapshot(author).
+//
+// estimateRows() sizes a filter from the same counters, so the filter endpoint can turn away one that an index would
+// barely narrow, such as a one-letter author prefix or all but one genre. Other instances' writes reach it only with
+// the next reconcile.
+@Slf4j
+@Component
+public class BookStatistics implements SmartInitializingSingleton {
+
+    @Autowired
+    BookManagerRepository bookManagerRepository;
+
+    @Autowired(required = false)
+    BookShards bookShards = BookShards.UNSHARDED;
+
+    @Value("${book.stats.top-authors:100}")
+    int topAuthors = 100;
+
+    // Writes take the read lock, since they only add to counters; reconcile takes the write lock to swap them
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // One reconcile at a time, without pinning a virtual thread's carrier for the length of the GROUP BY
+    private final ReentrantLock reconciling = new ReentrantLock();
+
+    // Guarded by lock
+    private Counters counters = new Counters(Instant.EPOCH);
+
+    // Writes made while a reconcile's GROUP BY runs, added to its result; null between reconciles. Guarded by lock.
+    private Counters sinceReconcileStarted;
+
+    private volatile boolean firstReconcileDone;
+
+    // Moves on every change to the counters, so a cached snapshot knows when it is stale
+    private final AtomicLong changeCount = new AtomicLong();
+
+    private volatile CachedStats cachedStats;
+
+    // In the background, so a large table does not hold up startup; until it finishes, total() is unknown. Not in
+    // @PostConstruct: sharded, the GROUP BY runs on other threads, which would wait for bean creation to finish.
+    @Override
+    public void afterSingletonsInstantiated() {
+        Thread.ofVirtual().name("book-stats-startup").start(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("Counting books at startup failed; retried every reconcile interval", e);
+            }
+        });
+    }
+
+    public void recordInsert(Book book) {
+        record(book.getGenre(), book.getAuthor(), 1);
+    }
+
+    public void recordReplace(BookCountKey previous, Book book) {
+        record(previous.genre(), previous.author(), -1);
+        record(book.getGenre(), book.getAuthor(), 1);
+    }
+
+    public void recordDelete(BookCountKey previous) {
+        record(previous.genre(), previous.author(), -1);
+    }
+
+    // Long.MAX_VALUE until the first reconcile finishes, so a caller that bounds work by it errs on the safe side
+    public long total() {
+        return firstReconcileDone ? current().total.sum() : Long.MAX_VALUE;
+    }
+
+    public BookStats snapshot() {
+        long changes = changeCount.get();
+        CachedStats cached = cachedStats;
+        if (cached != null && cached.changeCount() == changes) {
+            return cached.stats();
+        }
+        // A change that lands while this builds leaves it tagged with the older count, so the next call rebuilds
+        BookStats stats = current().toStats(topAuthors);
+        cachedStats = new CachedStats(changes, stats);
+        return stats;
+    }
+
+    // The snapshot's totals, with only `author` under authors: a lookup, whatever the author's rank
+    public BookStats snapshot(String author) {
+        BookStats stats = snapshot();
+        LongAdder count = current().byAuthor.get(author);
+        long sum = count == null ? 0 : count.sum();
+        return new BookStats(stats.getTotal(), stats.getGenres(), sum == 0 ? Map.of() : Map.of(author, sum),
+                stats.getAuthorCount(), stats.getReconciledAt());
+    }
+
+    // The fewest books an index read of `filter` could touch: the smallest of its genres' count, its author prefix's
+    // count and its id range's size, or total() when none of them applies. Genres and authors are unknown until the
+    // first reconcile.
+    public long estimateRows(BookFilter filter) {
+        long estimate = Math.min(total(), BookSpecifications.idRangeSize(filter.getMinId(), filter.getMaxId()));
+        if (!firstReconcileDone) {
+            return estimate;
+        }
+
+        Counters current = current();
+        if (filter.getGenres() != null && !filter.getGenres().isEmpty()) {
+            estimate = Math.min(estimate, current.countGenres(filter.getGenres()));
+        }
+        if (filter.getAuthorPrefix() != null && !filter.getAuthorPrefix().isEmpty()) {
+            estimate = Math.min(estimate, current.countAuthorsStartingWith(filter.getAuthorPrefix(), estimate));
+        }
+        return estimate;
+    }
+
+    @Scheduled(fixedDelayString = "${book.stats.reconcile-interval:PT5M}",
+            initialDelayString = "${book.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        reconciling.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                sinceReconcileStarted = new Counters(Instant.EPOCH);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Counters reconciled = new Counters(Instant.now());
+            boolean counted = false;
+            try {
+                // Sharded, the same genre and author can come back from several shards; the counters add them up
+                List<BookCount> bookCounts = bookShards.gather(bookManagerRepository::countByGenreAndAuthor);
+                bookCounts.forEach(bookCount -> reconciled.add(bookCount.getGenre(), bookCount.getAuthor(), bookCount.getCount()));
+                counted = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    // Writes recorded while the GROUP BY ran are carried over rather than dropped. One that had
+                    // already committed when it started is counted twice, until the next reconcile.
+                    if (counted) {
+                        reconciled.addAll(sinceReconcileStarted);
+                        counters = reconciled;
+                        firstReconcileDone = true;
+                        changeCount.incrementAndGet();
+                    }
+                    sinceReconcileStarted = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            reconciling.unlock();
+        }
+    }
+
+    private void record(Genre genre, String author, long delta) {
+        afterCommit(() -> {
+            lock.readLock().lock();
+            try {
+                apply(genre, author, delta);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    // Called with the read lock held
+    private void apply(Genre genre, String author, long delta) {
+        counters.add(genre, author, delta);
+        changeCount.incrementAndGet();
+        if (sinceReconcileStarted != null) {
+            sinceReconcileStarted.add(genre, author, delta);
+        }
+    }
+
+    // Counted once the surrounding transaction, if any, commits, so a rolled-back write leaves no trace here
+    private static void afterCommit(Runnable record) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record.run();
+            }
+        });
+    }
+
+    private Counters current() {
+        lock.readLock().lock();
+        try {
+            return counters;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record CachedStats(long changeCount, BookStats stats) {
+    }
+
+    private static final class Counters {
+
+        private final LongAdder total = new LongAdder();
+
+        // Every Genre is present from the start, so the map itself is never modified after construction
+        private final Map<Genre, LongAdder> byGenre = new EnumMap<>(Genre.class);
+
+        // Sorted, so the authors sharing a prefix sit together
+        private final NavigableMap<String, LongAdder> byAuthor = new ConcurrentSkipListMap<>();
+
+        private final Instant reconciledAt;
+
+        private Counters(Instant reconciledAt) {
+            this.reconciledAt = reconciledAt;
+            for (Genre genre : Genre.values()) {
+                byGenre.put(genre, new LongAdder());
+            }
+        }
+
+        private void add(Genre genre, String author, long count) {
+            total.add(count);
+            if (genre != null) {
+                byGenre.get(genre).add(count);
+            }
+            if (author != null) {
+                byAuthor.computeIfAbsent(author, key -> new LongAdder()).add(count);
+            }
+        }
+
+        private void addAll(Counters other) {
+            total.add(other.total.sum());
+            other.byGenre.forEach((genre, count) -> byGenre.get(genre).add(count.sum()));
+            other.byAuthor.forEach((author, count) -> byAuthor.computeIfAbsent(author, key -> new LongAdder()).add(count.sum()));
+        }
+
+        private long countGenres(Set<Genre> genres) {
+            long count = 0;
+            for (Genre genre : EnumSet.copyOf(genres)) {
+                count += byGenre.get(genre).sum();
+            }
+            return count;
+        }
+
+        // Stops once the count passes `limit`, so a short prefix costs no more than a selective one
+        private long countAuthorsStartingWith(String prefix, long limit) {
+            long count = 0;
+            for (Map.Entry<String, LongAdder> author : byAuthor.tailMap(prefix).entrySet()) {
+                if (!author.getKey().startsWith(prefix) || count > limit) {
+                    break;
+                }
+                count += author.getValue().sum();
+            }
+            return count;
+        }
+
+        // The `limit` authors with the most books, most first; ties go alphabetically
+        private BookStats toStats(int limit) {
+            Map<Genre, Long> genres = new EnumMap<>(Genre.class);
+            byGenre.forEach((genre, count) -> genres.put(genre, count.sum()));
+
+            // Holds the current top `limit`, weakest at the head, so each author costs at most a log(limit) step
+            Comparator<Map.Entry<String, Long>> ranking = Map.Entry.<String, Long>comparingByValue()
+                    .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+            PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(ranking);
+            long authorCount = 0;
+            for (Map.Entry<String, LongAdder> author : byAuthor.entrySet()) {
+                // An author whose last book was replaced or deleted drops out, as it would from the GROUP BY
+                long sum = author.getValue().sum();
+                if (sum == 0) {
+                    continue;
+                }
+                authorCount++;
+                top.add(Map.entry(author.getKey(), sum));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Map.Entry<String, Long>> ranked = new ArrayList<>(top);
+            ranked.sort(ranking.reversed());
+            Map<String, Long> authors = new LinkedHashMap<>();
+            ranked.forEach(author -> authors.put(author.getKey(), author.getValue()));
+
+            return new BookStats(total.sum(), genres, authors, authorCount, reconciledAt);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- Baseline: the schema previously generated by `spring.jpa.hibernate.ddl-auto=update`.
+-- Existing databases are baselined at this version (`spring.flyway.baseline-on-migrate`) and skip it.
+create sequence book_seq start with 1 increment by 50;
+
+create table book (
+    id bigint not null,
+    title varchar(255),
+    description varchar(255),
+    author varchar(255),
+    genre smallint check (genre between 0 and 4),
+    primary key (id)
+);
@@ -0,0 +1,17 @@
+-- Genre was persisted as its ordinal; store the constant name instead so the enum can be reordered safely.
+alter table book add column genre_name varchar(32);
+
+update book set genre_name = case genre
+    when 0 then 'Thriller'
+    when 1 then 'Romance'
+    when 2 then 'Fantasy'
+    when 3 then 'Fiction'
+    when 4 then 'Education'
+end;
+
+alter table book drop column genre;
+alter table book rename column genre_name to genre;
+
+create index idx_book_genre on book (genre);
+create index idx_book_author on book (author);
+create index idx_book_title on book (title);
@@ -0,0 +1,2 @@
+-- Optimistic-locking version backing the book ETags (V3 is the PostgreSQL-only full-text search migration)
+alter table book add column version bigint default 0 not null;
@@ -0,0 +1,10 @@
+-- Change feed: every write stamps the row with the next change sequence value and the time of the change.
+-- Deletes become tombstones (deleted = true) so feed consumers can see them; existing rows get backfilled values.
+create sequence book_change_seq start with 1 increment by 1;
+
+alter table book add column change_seq bigint default nextval('book_change_seq');
+alter table book alter column change_seq set not null;
+alter table book add column updated_at timestamp(6) with time zone default current_timestamp not null;
+alter table book add column deleted boolean default false not null;
+
+create unique index idx_book_change_seq on book (change_seq);
@@ -0,0 +1,33 @@
+-- Asynchronous bulk imports (POST /api/v1/book/imports). A job is resumable: every chunk records itself in
+-- book_import_chunk in the same transaction that inserts its books, so a resumed job skips committed chunks.
+create sequence book_import_job_seq start with 1 increment by 1;
+
+create table book_import_job (
+    id bigint not null,
+    format varchar(16) not null,
+    status varchar(16) not null,
+    spool_file varchar(1024) not null,
+    total_rows bigint,
+    error varchar(2000),
+    created_at timestamp(6) with time zone not null,
+    heartbeat_at timestamp(6) with time zone not null,
+    finished_at timestamp(6) with time zone,
+    primary key (id)
+);
+
+create table book_import_chunk (
+    job_id bigint not null references book_import_job (id),
+    chunk_index integer not null,
+    imported integer not null,
+    conflicted integer not null,
+    failed integer not null,
+    primary key (job_id, chunk_index)
+);
+
+-- Only the first rejected rows of each job are kept, see BookImportServiceImpl.MAX_REPORTED_ERRORS
+create table book_import_error (
+    job_id bigint not null references book_import_job (id),
+    source_row bigint not null,
+    message varchar(1000) not null,
+    primary key (job_id, source_row)
+);
@@ -0,0 +1,8 @@
+-- Change sequence values are assigned after commit by BookChangeSequencer, in commit order, rather than by the
+-- writing transaction: writes leave change_seq null until then. The single book_change_clock row is the lock that
+-- keeps sequencing to one transaction at a time across every instance.
+alter table book alter column change_seq drop default;
+alter table book alter column change_seq drop not null;
+
+create table book_change_clock (id integer primary key);
+insert into book_change_clock (id) values (1);
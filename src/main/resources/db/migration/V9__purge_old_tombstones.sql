@@ -0,0 +1,3 @@
+-- Tombstones older than book.changes.tombstone-retention are purged (see BookChangeSequencer). purged_through is the
+-- highest change_seq purged so far: a change feed token below it may have missed a delete, so it is refused.
+alter table book_change_clock add column purged_through bigint default 0 not null;
@@ -0,0 +1,49 @@
+package com.northcoders.bookmanagerapi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class PrometheusMetricsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void prometheusEndpointExposesLayerTimersPoolAndExceptionMetrics() throws Exception {
+		String book = "{\"id\":9201,\"title\":\"Book One\",\"description\":\"Description One\",\"author\":\"Person One\",\"genre\":\"Fiction\"}";
+		mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/book").contentType(MediaType.APPLICATION_JSON).content(book))
+				.andExpect(MockMvcResultMatchers.status().isCreated());
+		mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/book/9201").contentType(MediaType.APPLICATION_JSON).content(book)
+						.header(HttpHeaders.IF_MATCH, "\"12345\""))
+				.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+		mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9201"))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+
+		String scrape = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(scrape)
+				.contains("http_server_requests_seconds_bucket{")
+				.contains("book_service_seconds_bucket{")
+				.contains("method=\"replaceBook\"")
+				.contains("spring_data_repository_invocations_seconds_bucket{")
+				.contains("hikaricp_connections_active{")
+				.contains("hibernate_statements_total{")
+				.contains("book_api_exceptions_total{application=\"bookmanagerapi\",exception=\"ResourceVersionMismatchException\",status=\"412\"");
+	}
+
+}
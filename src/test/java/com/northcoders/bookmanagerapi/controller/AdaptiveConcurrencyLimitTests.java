@@ -0,0 +1,99 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimitTests {
+
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @Test
+    public void testRejectsOnceLimitIsInFlight() {
+        // Arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(1, 2, THRESHOLD_NANOS);
+
+        // Act
+        boolean first = concurrencyLimit.tryAcquire();
+        boolean second = concurrencyLimit.tryAcquire();
+        boolean third = concurrencyLimit.tryAcquire();
+        concurrencyLimit.release(FAST_NANOS);
+        boolean afterRelease = concurrencyLimit.tryAcquire();
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(afterRelease).isTrue();
+        assertThat(concurrencyLimit.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSlowResponsesShrinkLimitDownToMinimum() {
+        // Arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(5, 20, THRESHOLD_NANOS);
+
+        // Act
+        concurrencyLimit.tryAcquire();
+        concurrencyLimit.release(SLOW_NANOS);
+        double afterOne = concurrencyLimit.limit();
+        for (int i = 0; i < 50; i++) {
+            concurrencyLimit.tryAcquire();
+            concurrencyLimit.release(SLOW_NANOS);
+        }
+
+        // Assert
+        assertThat(afterOne).isEqualTo(20 * AdaptiveConcurrencyLimit.BACKOFF_RATIO);
+        assertThat(concurrencyLimit.limit()).isEqualTo(5);
+    }
+
+    @Test
+    public void testFastResponsesUnderLoadGrowLimitBackToMaximum() {
+        // Arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(1, 8, THRESHOLD_NANOS);
+        for (int i = 0; i < 30; i++) {
+            concurrencyLimit.tryAcquire();
+            concurrencyLimit.release(SLOW_NANOS);
+        }
+
+        // Act: keep the limit fully used, so every fast response counts towards growth
+        double backedOff = concurrencyLimit.limit();
+        for (int i = 0; i < 200; i++) {
+            while (concurrencyLimit.tryAcquire()) {
+                // fill up to the current limit
+            }
+            concurrencyLimit.release(FAST_NANOS);
+        }
+
+        // Assert
+        assertThat(backedOff).isEqualTo(1);
+        assertThat(concurrencyLimit.limit()).isEqualTo(8);
+    }
+
+    @Test
+    public void testIdleRouteDoesNotGrowLimit() {
+        // Arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(1, 8, THRESHOLD_NANOS);
+        for (int i = 0; i < 10; i++) {
+            concurrencyLimit.tryAcquire();
+            concurrencyLimit.release(SLOW_NANOS);
+        }
+        double backedOff = concurrencyLimit.limit();
+
+        // Act: one request at a time never uses half of the limit
+        for (int i = 0; i < 100; i++) {
+            concurrencyLimit.tryAcquire();
+            concurrencyLimit.release(FAST_NANOS);
+        }
+
+        // Assert
+        assertThat(backedOff).isGreaterThan(2);
+        assertThat(concurrencyLimit.limit()).isEqualTo(backedOff);
+    }
+}
@@ -0,0 +1,116 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.service.BookManagerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "book.admission.routes.get-book-by-id.rate=0.01",
+        "book.admission.routes.get-book-by-id.burst=2",
+        "book.admission.routes.search-books.max-concurrency=1"
+})
+public class BookAdmissionInterceptorTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookAdmissionInterceptor bookAdmissionInterceptor;
+
+    @Autowired
+    private BookManagerService bookManagerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testClientOverRateGets429WithRetryAfter() throws Exception {
+        bookManagerService.insertBook(new Book(9301L, "Book One", "This is the description for Book One", "Person One", Genre.Fiction));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9301"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9301"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9301"))
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "100"))
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("Too Many Requests"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value(429))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.detail").value("Too many requests to get-book-by-id; retry after 100s"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.instance").value("/api/v1/book/9301"));
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9301").with(request -> {
+                    request.setRemoteAddr("10.0.0.2");
+                    return request;
+                }))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        assertThat(admissions("get-book-by-id", "accepted")).isEqualTo(3);
+        assertThat(admissions("get-book-by-id", "rate_limited")).isEqualTo(1);
+    }
+
+    @Test
+    public void testRequestOverConcurrencyLimitIsShedWith503UntilPermitIsReleased() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new BookManagerController(),
+                BookManagerController.class.getMethod("searchBooks", String.class, int.class, int.class));
+        MockHttpServletRequest inFlightRequest = new MockHttpServletRequest();
+
+        boolean first = bookAdmissionInterceptor.preHandle(inFlightRequest, new MockHttpServletResponse(), handler);
+        MockHttpServletResponse shedResponse = new MockHttpServletResponse();
+        boolean second = bookAdmissionInterceptor.preHandle(new MockHttpServletRequest(), shedResponse, handler);
+        bookAdmissionInterceptor.afterCompletion(inFlightRequest, new MockHttpServletResponse(), handler, null);
+        boolean afterRelease = bookAdmissionInterceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler);
+
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(shedResponse.getStatus()).isEqualTo(503);
+        assertThat(shedResponse.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(shedResponse.getContentType()).isEqualTo(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        assertThat(shedResponse.getContentAsString())
+                .contains("\"title\":\"Service Unavailable\"", "\"status\":503",
+                        "\"detail\":\"Too many requests in flight for search-books; retry after 1s\"");
+        assertThat(afterRelease).isTrue();
+        assertThat(admissions("search-books", "shed")).isEqualTo(1);
+        assertThat(meterRegistry.get(BookAdmissionInterceptor.CONCURRENCY_LIMIT_METRIC).tag("route", "search-books").gauge().value())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testAsyncDispatchOfAdmittedStreamIsNotLimitedAgain() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new BookManagerController(),
+                BookManagerController.class.getMethod("searchBooks", String.class, int.class, int.class));
+        MockHttpServletRequest asyncDispatch = new MockHttpServletRequest();
+        asyncDispatch.setDispatcherType(DispatcherType.ASYNC);
+
+        assertThat(bookAdmissionInterceptor.preHandle(asyncDispatch, new MockHttpServletResponse(), handler)).isTrue();
+        assertThat(bookAdmissionInterceptor.preHandle(asyncDispatch, new MockHttpServletResponse(), handler)).isTrue();
+    }
+
+    @Test
+    public void testRouteNamesAreKebabCaseMethodNames() throws Exception {
+        assertThat(BookAdmissionInterceptor.routeName(BookManagerController.class.getMethod("streamAllBooks")))
+                .isEqualTo("stream-all-books");
+    }
+
+    private double admissions(String route, String outcome) {
+        return meterRegistry.get(BookAdmissionInterceptor.ADMISSION_METRIC).tag("route", route).tag("outcome", outcome)
+                .counter().count();
+    }
+}
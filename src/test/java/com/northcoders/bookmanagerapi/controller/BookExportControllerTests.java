@@ -0,0 +1,95 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.model.BookExportSnapshot;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.service.BookExportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@AutoConfigureMockMvc
+@SpringBootTest
+public class BookExportControllerTests {
+
+    @Mock
+    private BookExportServiceImpl mockBookExportServiceImpl;
+
+    @InjectMocks
+    private BookExportController bookExportController;
+
+    @Autowired
+    private MockMvc mockMvcController;
+
+    @BeforeEach
+    public void setup() {
+        mockMvcController = MockMvcBuilders.standaloneSetup(bookExportController).build();
+    }
+
+    @Test
+    public void testExportCsv_StreamsServiceOutputAsAttachment() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("id,title\n1,Book One\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(mockBookExportServiceImpl).exportBooks(eq(BookImportJob.Format.CSV), any(OutputStream.class));
+
+        MvcResult result = this.mockMvcController.perform(MockMvcRequestBuilders.get("/api/v1/book/export").param("format", "csv"))
+                .andReturn();
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("text/csv"))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books.csv\""))
+                .andExpect(MockMvcResultMatchers.content().string("id,title\n1,Book One\n"));
+    }
+
+    @Test
+    public void testExport_DefaultsToNdjson() throws Exception {
+        MvcResult result = this.mockMvcController.perform(MockMvcRequestBuilders.get("/api/v1/book/export"))
+                .andReturn();
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON));
+
+        verify(mockBookExportServiceImpl, times(1)).exportBooks(eq(BookImportJob.Format.NDJSON), any(OutputStream.class));
+    }
+
+    @Test
+    public void testExport_Returns400ForUnknownFormat() throws Exception {
+        this.mockMvcController.perform(MockMvcRequestBuilders.get("/api/v1/book/export").param("format", "xml"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        verifyNoInteractions(mockBookExportServiceImpl);
+    }
+
+    @Test
+    public void testWriteSnapshot_Returns201WithFile() throws Exception {
+        when(mockBookExportServiceImpl.writeSnapshot())
+                .thenReturn(new BookExportSnapshot("books-20260101T000000000Z.bcol", 3, 120, Instant.now()));
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.post("/api/v1/book/export/snapshots"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.file").value("books-20260101T000000000Z.bcol"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rows").value(3));
+    }
+}
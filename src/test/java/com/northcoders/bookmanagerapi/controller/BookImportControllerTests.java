@@ -0,0 +1,110 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.model.BookImportProgress;
+import com.northcoders.bookmanagerapi.service.BookImportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@AutoConfigureMockMvc
+@SpringBootTest
+public class BookImportControllerTests {
+
+    @Mock
+    private BookImportServiceImpl mockBookImportServiceImpl;
+
+    @InjectMocks
+    private BookImportController bookImportController;
+
+    @Autowired
+    private MockMvc mockMvcController;
+
+    @BeforeEach
+    public void setup() {
+        mockMvcController = MockMvcBuilders.standaloneSetup(bookImportController).build();
+    }
+
+    @Test
+    public void testImportNdjson_Returns202WithJobLocation() throws Exception {
+        when(mockBookImportServiceImpl.startImport(eq(BookImportJob.Format.NDJSON), any(InputStream.class)))
+                .thenReturn(progress(7L, BookImportJob.Status.RUNNING));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/book/imports")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"title\":\"Book One\"}\n"))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LOCATION, "/api/v1/book/imports/7"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("RUNNING"));
+    }
+
+    @Test
+    public void testImportCsv_StartsCsvJob() throws Exception {
+        when(mockBookImportServiceImpl.startImport(eq(BookImportJob.Format.CSV), any(InputStream.class)))
+                .thenReturn(progress(8L, BookImportJob.Status.RUNNING));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/book/imports")
+                                .contentType(BookImportController.TEXT_CSV_VALUE)
+                                .content("title,author\nBook One,Person One\n"))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(8));
+    }
+
+    @Test
+    public void testGetImport_ReturnsProgressOr404() throws Exception {
+        when(mockBookImportServiceImpl.getImport(7L)).thenReturn(Optional.of(progress(7L, BookImportJob.Status.COMPLETED)));
+        when(mockBookImportServiceImpl.getImport(8L)).thenReturn(Optional.empty());
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.get("/api/v1/book/imports/7"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rowsImported").value(500));
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.get("/api/v1/book/imports/8"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testResumeImport_Returns409WhenJobIsNotResumable() throws Exception {
+        when(mockBookImportServiceImpl.getImport(7L)).thenReturn(Optional.of(progress(7L, BookImportJob.Status.COMPLETED)));
+        when(mockBookImportServiceImpl.resumeImport(7L)).thenReturn(Optional.empty());
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.post("/api/v1/book/imports/7/resume"))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+    }
+
+    @Test
+    public void testResumeImport_Returns202WhenResumed() throws Exception {
+        when(mockBookImportServiceImpl.getImport(7L)).thenReturn(Optional.of(progress(7L, BookImportJob.Status.FAILED)));
+        when(mockBookImportServiceImpl.resumeImport(7L)).thenReturn(Optional.of(progress(7L, BookImportJob.Status.RUNNING)));
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.post("/api/v1/book/imports/7/resume"))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("RUNNING"));
+    }
+
+    private static BookImportProgress progress(Long id, BookImportJob.Status status) {
+        return new BookImportProgress(id, BookImportJob.Format.NDJSON, status, 1, 500, 0, 0, null, 1000.0,
+                Instant.EPOCH, Instant.EPOCH, null, null, List.of());
+    }
+}
@@ -0,0 +1,216 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.service.BookManagerServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+
+// Guards the single-round-trip write paths: each request below must cost exactly one JDBC statement. They are counted
+// at the DataSource, as statement executions on the request's thread, so plain JDBC counts as well as Hibernate's.
+// Scheduled work such as sequencing and statistics runs on other threads and is left out.
+@AutoConfigureMockMvc
+@SpringBootTest
+@Import(BookManagerControllerStatementCountTests.CountingDataSourceConfig.class)
+public class BookManagerControllerStatementCountTests {
+
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    private static final AtomicLong executions = new AtomicLong();
+
+    private static volatile Thread countedThread;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void setup() {
+        cacheManager.getCache(BookManagerServiceImpl.BOOKS_CACHE).clear();
+    }
+
+    @Test
+    public void testAddBookWithIdUsesOneStatement() throws Exception {
+        Book book = new Book(9101L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+
+        long statements = countStatements(() -> mockMvc.perform(post(book)).andExpect(MockMvcResultMatchers.status().isCreated()));
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    public void testAddBookWithTakenIdUsesOneStatement() throws Exception {
+        Book book = new Book(9102L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Education);
+        mockMvc.perform(post(book)).andExpect(MockMvcResultMatchers.status().isCreated());
+
+        long statements = countStatements(() -> mockMvc.perform(post(book)).andExpect(MockMvcResultMatchers.status().isConflict()));
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    public void testReplaceBookUsesOneStatement() throws Exception {
+        Book book = new Book(9103L, "Book Three", "This is the description for Book Three", "Person Three", Genre.Fiction);
+        mockMvc.perform(post(book)).andExpect(MockMvcResultMatchers.status().isCreated());
+        Book updatedBook = new Book(9103L, "New Title", "New Description", "New Author", Genre.Fantasy);
+
+        long unconditional = countStatements(() -> mockMvc.perform(put(updatedBook)).andExpect(MockMvcResultMatchers.status().isOk()));
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9103"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        long conditional = countStatements(() -> mockMvc.perform(put(updatedBook).header(HttpHeaders.IF_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+
+        assertThat(unconditional).isEqualTo(1);
+        assertThat(conditional).isEqualTo(1);
+        cacheManager.getCache(BookManagerServiceImpl.BOOKS_CACHE).clear();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9103"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.genre").value("Fantasy"))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    public void testDeleteBookUsesOneStatement() throws Exception {
+        Book book = new Book(9104L, "Book Four", "This is the description for Book Four", "Person Four", Genre.Fiction);
+        mockMvc.perform(post(book)).andExpect(MockMvcResultMatchers.status().isCreated());
+
+        long found = countStatements(() -> mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/book/9104"))
+                .andExpect(MockMvcResultMatchers.status().isNoContent()));
+        long notFound = countStatements(() -> mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/book/9104"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound()));
+
+        assertThat(found).isEqualTo(1);
+        assertThat(notFound).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetBookByIdUsesOneStatementThenNone() throws Exception {
+        Book book = new Book(9105L, "Book Five", "This is the description for Book Five", "Person Five", Genre.Romance);
+        mockMvc.perform(post(book)).andExpect(MockMvcResultMatchers.status().isCreated());
+        cacheManager.getCache(BookManagerServiceImpl.BOOKS_CACHE).clear();
+
+        long coldRead = countStatements(() -> mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9105"))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+        long cachedRead = countStatements(() -> mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/book/9105"))
+                .andExpect(MockMvcResultMatchers.status().isOk()));
+
+        assertThat(coldRead).isEqualTo(1);
+        assertThat(cachedRead).isZero();
+    }
+
+    private MockHttpServletRequestBuilder post(Book book) throws Exception {
+        return MockMvcRequestBuilders.post("/api/v1/book")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(book));
+    }
+
+    private MockHttpServletRequestBuilder put(Book book) throws Exception {
+        return MockMvcRequestBuilders.put("/api/v1/book/" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(book));
+    }
+
+    private long countStatements(Request request) throws Exception {
+        executions.set(0);
+        countedThread = Thread.currentThread();
+        try {
+            request.perform();
+        } finally {
+            countedThread = null;
+        }
+        return executions.get();
+    }
+
+    private interface Request {
+        void perform() throws Exception;
+    }
+
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(Connection.class, super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(Connection.class, super.getConnection(username, password));
+        }
+
+        // Statements the connection creates are wrapped in turn; their executions are what gets counted
+        private static <T> T counting(Class<T> type, T target) {
+            Class<?> proxyType = target instanceof CallableStatement ? CallableStatement.class
+                    : target instanceof PreparedStatement ? PreparedStatement.class : type;
+            return type.cast(Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{proxyType},
+                    (proxy, method, args) -> {
+                        if (EXECUTE_METHODS.contains(method.getName()) && Thread.currentThread() == countedThread) {
+                            executions.incrementAndGet();
+                        }
+                        try {
+                            Object result = method.invoke(target, args);
+                            return STATEMENT_METHODS.contains(method.getName())
+                                    ? counting(Statement.class, (Statement) result)
+                                    : result;
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }));
+        }
+    }
+
+}
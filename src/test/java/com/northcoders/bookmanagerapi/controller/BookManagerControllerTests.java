@@ -1,27 +1,52 @@
 package com.northcoders.bookmanagerapi.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.northcoders.bookmanagerapi.exception.ChangesPurgedException;
+import com.northcoders.bookmanagerapi.exception.GlobalExceptionHandler;
+import com.northcoders.bookmanagerapi.exception.ResourceAlreadyExistsException;
+import com.northcoders.bookmanagerapi.exception.ResourceNotFoundException;
 import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookBatchResult;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSearchHit;
+import com.northcoders.bookmanagerapi.model.BookStats;
+import com.northcoders.bookmanagerapi.model.BookSummary;
 import com.northcoders.bookmanagerapi.model.Genre;
 import com.northcoders.bookmanagerapi.service.BookManagerServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @AutoConfigureMockMvc
@@ -31,6 +56,12 @@ public class BookManagerControllerTests {
     @Mock
     private BookManagerServiceImpl mockBookManagerServiceImpl;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private BookChangeNotifier bookChangeNotifier = new BookChangeNotifier();
+
     @InjectMocks
     private BookManagerController bookManagerController;
 
@@ -41,7 +72,12 @@ public class BookManagerControllerTests {
 
     @BeforeEach
     public void setup() {
-        mockMvcController = MockMvcBuilders.standaloneSetup(bookManagerController).build();
+        bookChangeNotifier.bookManagerService = mockBookManagerServiceImpl;
+        // Deliveries run on the polling thread, so a test sees the events as soon as poll() returns
+        bookChangeNotifier.deliveryExecutor = Runnable::run;
+        mockMvcController = MockMvcBuilders.standaloneSetup(bookManagerController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
         mapper = new ObjectMapper();
     }
 
@@ -116,13 +152,73 @@ public class BookManagerControllerTests {
                 .andExpect(MockMvcResultMatchers.jsonPath("$[1].genre").value(Genre.Fantasy.toString()));
     }
 
+    @Test
+    public void testGetAllBooks_ReturnsCborWhenAccepted() throws Exception {
+
+        List<Book> books = List.of(
+                new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education),
+                new Book(2L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fiction));
+        when(mockBookManagerServiceImpl.getAllBooks()).thenReturn(books);
+
+        MvcResult result = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        List<Book> decoded = new CBORMapper().readValue(result.getResponse().getContentAsByteArray(), new TypeReference<>() {});
+        assertThat(decoded).isEqualTo(books);
+        assertThat(result.getResponse().getContentAsByteArray().length).isLessThan(mapper.writeValueAsBytes(books).length);
+    }
+
+    @Test
+    public void testGetBookSummaries_ReturnsSummariesWithoutDescription() throws Exception {
+
+        when(mockBookManagerServiceImpl.getBookSummaries()).thenReturn(List.of(
+                new BookSummary(1L, "Book One", "Person One", Genre.Education),
+                new BookSummary(2L, "Book Two", "Person Two", Genre.Fiction)));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book?view=summary"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[*]", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("Book One"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].description").doesNotExist());
+
+        verify(mockBookManagerServiceImpl, never()).getAllBooks();
+    }
+
+    @Test
+    public void testGetBookSummaries_ReturnsSummariesWithGivenGenre() throws Exception {
+
+        when(mockBookManagerServiceImpl.getBookSummariesByGenre(Genre.Fantasy)).thenReturn(List.of(
+                new BookSummary(2L, "Book Two", "Person Two", Genre.Fantasy)));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book?view=summary&genre=Fantasy"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[*]", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].genre").value(Genre.Fantasy.toString()));
+
+        verify(mockBookManagerServiceImpl, never()).getBooksByGenre(any());
+    }
+
+    @Test
+    public void testGetBookSummaries_Returns400WithLimit() throws Exception {
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book?view=summary&limit=10"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        verify(mockBookManagerServiceImpl, never()).getBooksAfter(any(), any(), anyInt());
+    }
 
     @Test
     public void testPostMappingAddABook_ReturnsInsertedBookWithUniqueId() throws Exception {
 
         Book book = new Book(4L, "Book Four", "This is the description for Book Four", "Person Four", Genre.Fantasy);
 
-        when(mockBookManagerServiceImpl.insertBook(book)).thenReturn(Optional.of(book));
+        when(mockBookManagerServiceImpl.insertBook(book)).thenReturn(book);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.post("/api/v1/book/")
@@ -134,8 +230,20 @@ public class BookManagerControllerTests {
     }
 
     @Test
-    public void testPostMappingAddABook_Returns404WithExistingId() throws Exception {
+    public void testPostMappingAddABook_Returns409ProblemWithExistingId() throws Exception {
+
+        Book book = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
 
+        when(mockBookManagerServiceImpl.insertBook(book)).thenThrow(new ResourceAlreadyExistsException("Book", 1L));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/book/")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(book)))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value(409))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.detail").value("Book with ID 1 already exists"));
     }
 
     @Test
@@ -143,7 +251,7 @@ public class BookManagerControllerTests {
         List<Book> books = new ArrayList<>();
         books.add(new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education));
 
-        when(mockBookManagerServiceImpl.getBookById(1L)).thenReturn(Optional.ofNullable(books.getFirst()));
+        when(mockBookManagerServiceImpl.getBookById(1L)).thenReturn(books.getFirst());
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.get("/api/v1/book/1"))
@@ -158,20 +266,21 @@ public class BookManagerControllerTests {
         List<Book> books = new ArrayList<>();
         books.add(new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education));
 
-        when(mockBookManagerServiceImpl.getBookById(2L)).thenReturn(Optional.empty());
+        when(mockBookManagerServiceImpl.getBookById(2L)).thenThrow(new ResourceNotFoundException("Book", 2L));
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.get("/api/v1/book/2"))
-                .andExpect(MockMvcResultMatchers.status().isNotFound());
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.type").value("about:blank"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("Not Found"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value(404))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.detail").value("Book with ID 2 was not found"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.instance").value("/api/v1/book/2"));
     }
 
     @Test
     public void testDeleteBookById_Returns204WhenBookDeleted() throws Exception {
-        List<Book> books = new ArrayList<>();
-        books.add(new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education));
-
-        when(mockBookManagerServiceImpl.deleteBookById(1L)).thenReturn(Optional.of(books.get(0)));
-
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.delete("/api/v1/book/1"))
                 .andExpect(MockMvcResultMatchers.status().isNoContent());
@@ -182,7 +291,7 @@ public class BookManagerControllerTests {
     @Test
     public void testDeleteBookById_Returns404WhenBookNotFound() throws Exception {
 
-        when(mockBookManagerServiceImpl.deleteBookById(2L)).thenReturn(Optional.empty());
+        doThrow(new ResourceNotFoundException("Book", 2L)).when(mockBookManagerServiceImpl).deleteBookById(2L);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.delete("/api/v1/book/2"))
@@ -196,7 +305,7 @@ public class BookManagerControllerTests {
         Book existingBook = new Book(1L, "Old Title", "Old Description", "Old Author", Genre.Education);
         Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fiction);
 
-        when(mockBookManagerServiceImpl.replaceBook(1L, updatedBook)).thenReturn(Optional.of(updatedBook));
+        when(mockBookManagerServiceImpl.replaceBook(1L, updatedBook)).thenReturn(updatedBook);
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.put("/api/v1/book/1")
@@ -216,7 +325,7 @@ public class BookManagerControllerTests {
     public void testUpdateBookById_Returns404WhenBookNotFound() throws Exception {
         Book updatedBook = new Book(2L, "New Title", "New Description", "New Author", Genre.Fiction);
 
-        when(mockBookManagerServiceImpl.replaceBook(2L, updatedBook)).thenReturn(Optional.empty());
+        when(mockBookManagerServiceImpl.replaceBook(2L, updatedBook)).thenThrow(new ResourceNotFoundException("Book", 2L));
 
         this.mockMvcController.perform(
                         MockMvcRequestBuilders.put("/api/v1/book/2")
@@ -227,5 +336,493 @@ public class BookManagerControllerTests {
         verify(mockBookManagerServiceImpl, times(1)).replaceBook(2L, updatedBook);
     }
 
+    @Test
+    public void testFilterBooks_PassesCriteriaPagingAndSort() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(3L, "Book Three", "This is the description for Book Three", "Person Three", Genre.Fantasy));
+        BookFilter filter = new BookFilter(Set.of(Genre.Fantasy, Genre.Fiction), "Person", "book", null, 10L);
+        PageRequest pageRequest = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "title").and(Sort.by("id")));
+
+        when(mockBookManagerServiceImpl.filterBooks(filter, pageRequest))
+                .thenReturn(new SliceImpl<>(books, pageRequest, true));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/filter?genre=Fantasy&genre=Fiction&author=Person&title=book&maxId=10&page=1&size=2&sort=-title"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.page").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(true));
+
+        verify(mockBookManagerServiceImpl, times(1)).estimateBooks(filter);
+    }
+
+    @Test
+    public void testFilterBooks_Returns400WithUnknownSortOrDeepOffset() throws Exception {
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/filter?genre=Fantasy&sort=description"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/filter?genre=Fantasy&size=100&page=" + (BookManagerController.MAX_FILTER_OFFSET / 100 + 1)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        verify(mockBookManagerServiceImpl, never()).filterBooks(any(), any());
+    }
+
+    @Test
+    public void testFilterBooks_Returns400WhenIndexesMatchTooManyBooks() throws Exception {
+        BookFilter filter = new BookFilter(Set.of(Genre.Thriller, Genre.Romance, Genre.Fantasy, Genre.Fiction), "P", "book", 1L, null);
+        when(mockBookManagerServiceImpl.estimateBooks(filter)).thenReturn(bookManagerController.maxUnindexedScanRows + 1);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/filter?genre=Thriller&genre=Romance&genre=Fantasy&genre=Fiction&author=P&title=book&minId=1"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        verify(mockBookManagerServiceImpl, never()).filterBooks(any(), any());
+    }
+
+    @Test
+    public void testFilterBooks_AllowsFilterWhoseIndexesMatchUpToTheLimit() throws Exception {
+        when(mockBookManagerServiceImpl.estimateBooks(any())).thenReturn(bookManagerController.maxUnindexedScanRows);
+        when(mockBookManagerServiceImpl.filterBooks(any(), any()))
+                .thenReturn(new SliceImpl<>(new ArrayList<>(), PageRequest.of(0, 20), false));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/filter?title=book"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    public void testGetBooksPage_ReturnsFirstPageWithNextPageToken() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education));
+        books.add(new Book(2L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Education));
+
+        when(mockBookManagerServiceImpl.getBooksAfter(null, null, 2))
+                .thenReturn(new SliceImpl<>(books, PageRequest.of(0, 2), true));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book?limit=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextPageToken").value(BookManagerController.encodePageToken(2L)));
+    }
+
+    @Test
+    public void testGetBooksPage_UsesPageTokenAsCursor() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(3L, "Book Three", "This is the description for Book Three", "Person Three", Genre.Education));
+
+        when(mockBookManagerServiceImpl.getBooksAfter(null, 2L, 2))
+                .thenReturn(new SliceImpl<>(books, PageRequest.of(0, 2), false));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book?limit=2&after=" + BookManagerController.encodePageToken(2L)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books[0].id").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextPageToken").doesNotExist());
+    }
+
+    @Test
+    public void testGetBooksPage_Returns400WithInvalidPageTokenOrLimit() throws Exception {
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book?limit=2&after=not-a-token"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book?limit=" + (BookManagerController.MAX_PAGE_SIZE + 1)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        verify(mockBookManagerServiceImpl, never()).getBooksAfter(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testStreamAllBooks_WritesOneJsonDocumentPerLine() throws Exception {
+        Book bookOne = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+        Book bookTwo = new Book(2L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fiction);
+
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(bookOne);
+            consumer.accept(bookTwo);
+            return null;
+        }).when(mockBookManagerServiceImpl).streamAllBooks(any());
+
+        MvcResult result = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book").accept(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        mapper.writeValueAsString(bookOne) + "\n" + mapper.writeValueAsString(bookTwo) + "\n"));
+    }
+
+    @Test
+    public void testPostBatch_ReturnsPerItemReportForJsonArray() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(null, "Book One", "This is the description for Book One", "Person One", Genre.Education));
+        books.add(new Book(7L, "Book Seven", "This is the description for Book Seven", "Person Seven", Genre.Fiction));
+
+        when(mockBookManagerServiceImpl.insertBooks(any())).thenReturn(List.of(
+                new BookBatchResult(0, 1L, BookBatchResult.Status.CREATED),
+                new BookBatchResult(1, 7L, BookBatchResult.Status.CONFLICT)));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/book/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(books)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[*]", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("CONFLICT"));
+    }
+
+    @Test
+    public void testPostBatch_ParsesCborBody() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(null, "Book One", "This is the description for Book One", "Person One", Genre.Education));
+        books.add(new Book(null, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fiction));
+        List<Book> received = new ArrayList<>();
+
+        when(mockBookManagerServiceImpl.insertBooks(any())).thenAnswer(invocation -> {
+            Iterator<Book> iterator = invocation.getArgument(0);
+            iterator.forEachRemaining(received::add);
+            return List.of();
+        });
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/book/batch")
+                                .contentType(MediaType.APPLICATION_CBOR)
+                                .content(new CBORMapper().writeValueAsBytes(books)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        assertThat(received).isEqualTo(books);
+    }
+
+    @Test
+    public void testPostBatch_ParsesNdjsonBody() throws Exception {
+        Book bookOne = new Book(null, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+        Book bookTwo = new Book(null, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fiction);
+        List<Book> received = new ArrayList<>();
+
+        when(mockBookManagerServiceImpl.insertBooks(any())).thenAnswer(invocation -> {
+            Iterator<Book> books = invocation.getArgument(0);
+            books.forEachRemaining(received::add);
+            return List.of();
+        });
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.post("/api/v1/book/batch")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content(mapper.writeValueAsString(bookOne) + "\n" + mapper.writeValueAsString(bookTwo) + "\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        assertThat(received).containsExactly(bookOne, bookTwo);
+    }
+
+    @Test
+    public void testSearchBooks_ReturnsRankedHits() throws Exception {
+        BookSearchHit hit = new SpelAwareProxyProjectionFactory().createProjection(BookSearchHit.class, Map.of(
+                "id", 1L,
+                "title", "Dune",
+                "author", "Frank Herbert",
+                "genre", Genre.Fiction,
+                "rank", 0.6f,
+                "highlight", "a <mark>desert</mark> planet"));
+
+        when(mockBookManagerServiceImpl.searchBooks("desert", 0, 20)).thenReturn(List.of(hit));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/search?q=desert"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.[*]", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].highlight").value("a <mark>desert</mark> planet"));
+    }
+
+    @Test
+    public void testSearchBooks_Returns400WithBlankQueryOrOversizedPage() throws Exception {
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/search?q= "))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/search?q=desert&size=" + (BookManagerController.MAX_SEARCH_PAGE_SIZE + 1)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        verify(mockBookManagerServiceImpl, never()).searchBooks(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testGetBookById_ReturnsETagAnd304WhenUnchanged() throws Exception {
+        Book book = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+        book.setVersion(3L);
+
+        when(mockBookManagerServiceImpl.getBookById(1L)).thenReturn(book);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    @Test
+    public void testGetAllBooks_Returns304WithoutLoadingBooksWhenCatalogueUnchanged() throws Exception {
+        when(mockBookManagerServiceImpl.getCatalogueVersion()).thenReturn(42L);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book").header(HttpHeaders.IF_NONE_MATCH, "W/\"42\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        verify(mockBookManagerServiceImpl, never()).getAllBooks();
+    }
+
+    @Test
+    public void testGetStatistics_ReturnsCounters() throws Exception {
+        Map<Genre, Long> genres = new EnumMap<>(Genre.class);
+        genres.put(Genre.Fantasy, 2L);
+        when(mockBookManagerServiceImpl.getStatistics()).thenReturn(
+                new BookStats(2, genres, Map.of("Person One", 2L), 1, Instant.parse("2026-01-01T00:00:00Z")));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/stats"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.genres.Fantasy").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authors['Person One']").value(2));
+
+        verify(mockBookManagerServiceImpl, never()).getBooksByGenre(any());
+    }
+
+    @Test
+    public void testGetStatistics_LooksUpOneAuthor() throws Exception {
+        when(mockBookManagerServiceImpl.getStatistics("Person Nine")).thenReturn(
+                new BookStats(2, new EnumMap<>(Genre.class), Map.of("Person Nine", 1L), 2, Instant.parse("2026-01-01T00:00:00Z")));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/stats").param("author", "Person Nine"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authors['Person Nine']").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorCount").value(2));
+
+        verify(mockBookManagerServiceImpl, never()).getStatistics();
+    }
+
+    @Test
+    public void testGetChanges_ReturnsChangesAndTombstonesWithNextToken() throws Exception {
+        Book updatedBook = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+        updatedBook.setChangeSeq(8L);
+        Book deletedBook = new Book(2L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fiction);
+        deletedBook.setChangeSeq(9L);
+        deletedBook.setDeleted(true);
+
+        when(mockBookManagerServiceImpl.getChangesSince(7L, BookManagerController.DEFAULT_CHANGES_LIMIT))
+                .thenReturn(List.of(updatedBook, deletedBook));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/changes?since=" + BookManagerController.encodeChangeToken(7L)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes[0].book.title").value("Book One"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes[1].id").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes[1].deleted").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes[1].book").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextToken").value(BookManagerController.encodeChangeToken(9L)));
+    }
+
+    @Test
+    public void testGetChanges_KeepsTokenWhenNothingChanged() throws Exception {
+        when(mockBookManagerServiceImpl.getChangesSince(9L, BookManagerController.DEFAULT_CHANGES_LIMIT)).thenReturn(List.of());
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/changes?since=" + BookManagerController.encodeChangeToken(9L)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes", hasSize(0)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextToken").value(BookManagerController.encodeChangeToken(9L)));
+    }
+
+    @Test
+    public void testGetChanges_Returns410ForTokenBehindPurgedTombstones() throws Exception {
+        when(mockBookManagerServiceImpl.getChangesSince(3L, BookManagerController.DEFAULT_CHANGES_LIMIT))
+                .thenThrow(new ChangesPurgedException());
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/changes?since=" + BookManagerController.encodeChangeToken(3L)))
+                .andExpect(MockMvcResultMatchers.status().isGone())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value(410));
+    }
+
+    @Test
+    public void testStreamChanges_Returns410ForTokenBehindPurgedTombstones() throws Exception {
+        doThrow(new ChangesPurgedException()).when(mockBookManagerServiceImpl).checkChangesRetained(3L);
+
+        this.mockMvcController.perform(MockMvcRequestBuilders.get("/api/v1/book/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", BookManagerController.encodeChangeToken(3L)))
+                .andExpect(MockMvcResultMatchers.status().isGone());
+    }
+
+    @Test
+    public void testGetChanges_Returns400ForPageToken() throws Exception {
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/changes?since=" + BookManagerController.encodePageToken(9L)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        verify(mockBookManagerServiceImpl, never()).getChangesSince(anyLong(), anyInt());
+    }
+
+    @Test
+    public void testStreamChanges_PushesChangesPastLastEventId() throws Exception {
+        Book seenBook = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+        seenBook.setChangeSeq(8L);
+        Book newBook = new Book(2L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fiction);
+        newBook.setChangeSeq(9L);
+
+        when(mockBookManagerServiceImpl.getChangesSince(8L, BookChangeNotifier.POLL_BATCH_SIZE)).thenReturn(List.of(seenBook, newBook));
+
+        MvcResult result = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/changes")
+                                .accept(MediaType.TEXT_EVENT_STREAM)
+                                .header("Last-Event-ID", BookManagerController.encodeChangeToken(8L)))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        bookChangeNotifier.poll();
+
+        String events = result.getResponse().getContentAsString();
+        assertThat(events).contains("id:" + BookManagerController.encodeChangeToken(9L));
+        assertThat(events).contains("\"title\":\"Book Two\"");
+        assertThat(events).doesNotContain("Book One");
+    }
+
+    @Test
+    public void testStreamChanges_BackfillsNewSubscriberWithoutHoldingBackCaughtUpOnes() throws Exception {
+        Book oldBook = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+        oldBook.setChangeSeq(5L);
+        Book newBook = new Book(2L, "Book Two", "This is the description for Book Two", "Person Two", Genre.Fiction);
+        newBook.setChangeSeq(10L);
+
+        when(mockBookManagerServiceImpl.getChangesSince(9L, BookChangeNotifier.POLL_BATCH_SIZE)).thenReturn(List.of(), List.of(newBook));
+        when(mockBookManagerServiceImpl.getChangesSince(0L, BookChangeNotifier.POLL_BATCH_SIZE)).thenReturn(List.of(oldBook, newBook));
+
+        MvcResult caughtUp = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/changes")
+                                .accept(MediaType.TEXT_EVENT_STREAM)
+                                .header("Last-Event-ID", BookManagerController.encodeChangeToken(9L)))
+                .andReturn();
+        bookChangeNotifier.poll();
+        MvcResult fromStart = this.mockMvcController.perform(
+                        MockMvcRequestBuilders.get("/api/v1/book/changes")
+                                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andReturn();
+
+        bookChangeNotifier.poll();
+
+        assertThat(caughtUp.getResponse().getContentAsString())
+                .contains("id:" + BookManagerController.encodeChangeToken(10L))
+                .doesNotContain("Book One");
+        assertThat(fromStart.getResponse().getContentAsString())
+                .contains("id:" + BookManagerController.encodeChangeToken(5L), "id:" + BookManagerController.encodeChangeToken(10L));
+        verify(mockBookManagerServiceImpl, times(2)).getChangesSince(9L, BookChangeNotifier.POLL_BATCH_SIZE);
+        verify(mockBookManagerServiceImpl, times(1)).getChangesSince(0L, BookChangeNotifier.POLL_BATCH_SIZE);
+    }
+
+    @Test
+    public void testUpdateBookById_PassesIfMatchVersionToService() throws Exception {
+        Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fiction);
+
+        when(mockBookManagerServiceImpl.replaceBook(1L, updatedBook, Set.of(2L))).thenReturn(updatedBook);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/book/1")
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(updatedBook)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        verify(mockBookManagerServiceImpl, times(1)).replaceBook(1L, updatedBook, Set.of(2L));
+    }
+
+    @Test
+    public void testUpdateBookById_PassesEveryStrongIfMatchVersionToService() throws Exception {
+        Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fiction);
+
+        when(mockBookManagerServiceImpl.replaceBook(1L, updatedBook, Set.of(1L, 2L))).thenReturn(updatedBook);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/book/1")
+                                .header(HttpHeaders.IF_MATCH, "\"1\", W/\"3\",\"2\" ,")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(updatedBook)))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        verify(mockBookManagerServiceImpl, times(1)).replaceBook(1L, updatedBook, Set.of(1L, 2L));
+    }
+
+    @Test
+    public void testUpdateBookById_Returns412WithMalformedIfMatchList() throws Exception {
+        Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fiction);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/book/1")
+                                .header(HttpHeaders.IF_MATCH, "\"1\" \"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(updatedBook)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+
+        verify(mockBookManagerServiceImpl, never()).replaceBook(any(), any(), any());
+    }
+
+    @Test
+    public void testUpdateBookById_Returns412WithWeakIfMatch() throws Exception {
+        Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fiction);
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/book/1")
+                                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(updatedBook)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+
+        verify(mockBookManagerServiceImpl, never()).replaceBook(any(), any(), any());
+    }
+
+    @Test
+    public void testUpdateBookById_Returns412WithIfMatchAnyOnMissingBook() throws Exception {
+        Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fiction);
+
+        when(mockBookManagerServiceImpl.replaceBook(1L, updatedBook))
+                .thenThrow(new ResourceNotFoundException(Book.class.getSimpleName(), 1L));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/book/1")
+                                .header(HttpHeaders.IF_MATCH, "*")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(updatedBook)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testUpdateBookById_Returns404WithoutIfMatchOnMissingBook() throws Exception {
+        Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fiction);
+
+        when(mockBookManagerServiceImpl.replaceBook(1L, updatedBook))
+                .thenThrow(new ResourceNotFoundException(Book.class.getSimpleName(), 1L));
+
+        this.mockMvcController.perform(
+                        MockMvcRequestBuilders.put("/api/v1/book/1")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(updatedBook)))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
 
 }
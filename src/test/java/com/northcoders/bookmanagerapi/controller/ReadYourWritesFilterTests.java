@@ -0,0 +1,69 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import com.northcoders.bookmanagerapi.repository.ReadYourWrites;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadYourWritesFilterTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final ReadYourWritesFilter readYourWritesFilter = new ReadYourWritesFilter();
+
+    @Test
+    public void testRequestReadsNeedTheCookiesWriteTimeAndWritesMoveIt() throws Exception {
+
+        // Arrange
+        long cookieMillis = System.currentTimeMillis() - 10_000;
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/v1/book/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(cookieMillis)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicLong writtenAtBeforeWrite = new AtomicLong();
+        AtomicLong writtenAtAfterWrite = new AtomicLong();
+        AtomicLong writeNanos = new AtomicLong();
+
+        // Act
+        readYourWritesFilter.doFilter(request, response, (filteredRequest, filteredResponse) -> {
+            writtenAtBeforeWrite.set(ReadYourWrites.writtenAt());
+            writeNanos.set(System.nanoTime());
+            ReadYourWrites.noteWrite();
+            writtenAtAfterWrite.set(ReadYourWrites.writtenAt());
+        });
+
+        // Assert
+        // The cookie's time, ten seconds back, on this JVM's nanoTime clock
+        assertThat(writeNanos.get() - writtenAtBeforeWrite.get()).isBetween(9 * SECOND, 11 * SECOND);
+        assertThat(writtenAtAfterWrite.get()).isGreaterThanOrEqualTo(writeNanos.get());
+        String setCookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertThat(setCookie).startsWith(ReadYourWritesFilter.COOKIE + "=");
+        long newCookieMillis = Long.parseLong(setCookie.substring(ReadYourWritesFilter.COOKIE.length() + 1, setCookie.indexOf(';')));
+        assertThat(newCookieMillis).isBetween(cookieMillis + 9_000, System.currentTimeMillis());
+        // Nothing carries over to the thread's next request
+        assertThat(ReadYourWrites.writtenAt()).isEqualTo(ReadYourWrites.NOTHING_WRITTEN);
+    }
+
+    @Test
+    public void testReadsWithoutAUsableCookieNeedNothing() throws Exception {
+
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/book");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, "not-a-number"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicLong writtenAt = new AtomicLong();
+
+        // Act
+        readYourWritesFilter.doFilter(request, response,
+                (filteredRequest, filteredResponse) -> writtenAt.set(ReadYourWrites.writtenAt()));
+
+        // Assert
+        assertThat(writtenAt.get()).isEqualTo(ReadYourWrites.NOTHING_WRITTEN);
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+}
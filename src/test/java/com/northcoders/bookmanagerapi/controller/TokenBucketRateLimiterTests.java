@@ -0,0 +1,60 @@
+package com.northcoders.bookmanagerapi.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketRateLimiterTests {
+
+    private final AtomicLong nanos = new AtomicLong(5_000_000_000L);
+
+    private final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(100, Duration.ofMinutes(1), nanos::get);
+
+    @Test
+    public void testBurstIsAdmittedThenClientWaitsForRefill() {
+        // Act
+        long first = rateLimiter.tryAcquire("client", 2, 3);
+        long second = rateLimiter.tryAcquire("client", 2, 3);
+        long third = rateLimiter.tryAcquire("client", 2, 3);
+        long fourth = rateLimiter.tryAcquire("client", 2, 3);
+
+        // Assert: 2 per second refills a token every 500 ms
+        assertThat(first).isZero();
+        assertThat(second).isZero();
+        assertThat(third).isZero();
+        assertThat(fourth).isEqualTo(500_000_000L);
+    }
+
+    @Test
+    public void testTokensRefillAtTheConfiguredRate() {
+        // Arrange
+        rateLimiter.tryAcquire("client", 10, 1);
+
+        // Act
+        nanos.addAndGet(40_000_000L);
+        long early = rateLimiter.tryAcquire("client", 10, 1);
+        nanos.addAndGet(60_000_000L);
+        long onTime = rateLimiter.tryAcquire("client", 10, 1);
+
+        // Assert
+        assertThat(early).isEqualTo(60_000_000L);
+        assertThat(onTime).isZero();
+    }
+
+    @Test
+    public void testClientsHaveSeparateBuckets() {
+        // Arrange
+        rateLimiter.tryAcquire("client-one", 1, 1);
+
+        // Act
+        long clientOne = rateLimiter.tryAcquire("client-one", 1, 1);
+        long clientTwo = rateLimiter.tryAcquire("client-two", 1, 1);
+
+        // Assert
+        assertThat(clientOne).isPositive();
+        assertThat(clientTwo).isZero();
+    }
+}
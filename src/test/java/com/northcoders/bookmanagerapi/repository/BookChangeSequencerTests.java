@@ -0,0 +1,95 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookChangeSequencerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private BookChangeSequencer bookChangeSequencer;
+
+    @BeforeEach
+    public void setup() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:change-sequencer;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table book (id bigint primary key, change_seq bigint, updated_at timestamp, deleted boolean)");
+        jdbcTemplate.execute("create table book_change_clock (id integer primary key, purged_through bigint default 0 not null)");
+        jdbcTemplate.execute("insert into book_change_clock (id) values (1)");
+        jdbcTemplate.execute("create sequence book_change_seq start with 100");
+
+        bookChangeSequencer = new BookChangeSequencer();
+        bookChangeSequencer.jdbcTemplate = jdbcTemplate;
+        bookChangeSequencer.meterRegistry = meterRegistry;
+        bookChangeSequencer.setTransactionManager(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.execute("drop table book");
+        jdbcTemplate.execute("drop table if exists book_change_clock");
+        jdbcTemplate.execute("drop sequence book_change_seq");
+    }
+
+    @Test
+    public void testScheduledPassNumbersPendingChangesInOrder() {
+
+        // Arrange
+        jdbcTemplate.update("insert into book (id, change_seq) values (1, 1), (2, null), (3, null)");
+
+        // Act
+        bookChangeSequencer.sequence();
+
+        // Assert
+        assertThat(jdbcTemplate.queryForList("select change_seq from book order by change_seq", Long.class))
+                .containsExactly(1L, 100L, 101L);
+        assertThat(meterRegistry.find(BookChangeSequencer.FAILURES_METRIC).counter()).isNull();
+    }
+
+    @Test
+    public void testFailedPassIsCountedAndLeavesChangesPending() {
+
+        // Arrange
+        jdbcTemplate.update("insert into book (id, change_seq) values (1, null)");
+        jdbcTemplate.execute("drop table book_change_clock");
+
+        // Act
+        bookChangeSequencer.sequence();
+
+        // Assert
+        assertThat(jdbcTemplate.queryForObject("select count(*) from book where change_seq is null", Long.class)).isEqualTo(1);
+        assertThat(meterRegistry.get(BookChangeSequencer.FAILURES_METRIC).tag("shard", "0").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPurgeRemovesTombstonesPastRetentionAndRecordsTheHorizon() {
+
+        // Arrange
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp eightDaysAgo = Timestamp.from(Instant.now().minus(Duration.ofDays(8)));
+        jdbcTemplate.update("insert into book values (1, 1, ?, true), (2, 2, ?, false), (3, 3, ?, true), (4, 4, ?, true)",
+                eightDaysAgo, eightDaysAgo, eightDaysAgo, now);
+
+        // Act
+        bookChangeSequencer.purgeTombstones();
+
+        // Assert
+        // The live book and the recent tombstone stay
+        assertThat(jdbcTemplate.queryForList("select id from book order by id", Long.class)).containsExactly(2L, 4L);
+        assertThat(jdbcTemplate.queryForObject("select purged_through from book_change_clock", Long.class)).isEqualTo(3);
+    }
+}
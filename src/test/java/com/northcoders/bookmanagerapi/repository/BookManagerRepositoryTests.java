@@ -1,10 +1,25 @@
 package com.northcoders.bookmanagerapi.repository;
 
 import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookCatalogueVersion;
+import com.northcoders.bookmanagerapi.model.BookCount;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSummary;
 import com.northcoders.bookmanagerapi.model.Genre;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -14,6 +29,12 @@ public class BookManagerRepositoryTests {
     @Autowired
     private BookManagerRepository bookManagerRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Test
     public void testFindAllBooksReturnsBooks() {
 
@@ -29,4 +50,214 @@ public class BookManagerRepositoryTests {
 
     }
 
+    @Test
+    public void testFindByIdGreaterThanReturnsKeysetPages() {
+
+        // Arrange
+        Long firstId = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Education)).getId();
+        Long secondId = bookManagerRepository.save(new Book(null, "Book Two", "Description Two", "Person Two", Genre.Fiction)).getId();
+        Long thirdId = bookManagerRepository.save(new Book(null, "Book Three", "Description Three", "Person Three", Genre.Fantasy)).getId();
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by("id"));
+
+        // Act
+        Slice<Book> firstPage = bookManagerRepository.findByIdGreaterThan(Long.MIN_VALUE, pageRequest);
+        Slice<Book> secondPage = bookManagerRepository.findByIdGreaterThan(firstPage.getContent().getLast().getId(), pageRequest);
+
+        // Assert
+        assertThat(firstPage.getContent()).extracting(Book::getId).containsExactly(firstId, secondId);
+        assertThat(firstPage.hasNext()).isTrue();
+        assertThat(secondPage.getContent()).extracting(Book::getId).containsExactly(thirdId);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    @Test
+    public void testInsertBooksWithIdsKeepsClientIds() {
+
+        // Arrange
+        List<Book> books = List.of(
+                new Book(7001L, "Book One", "Description One", "Person One", Genre.Education),
+                new Book(7002L, "Book Two", null, "Person Two", null));
+
+        // Act
+        int inserted = bookManagerRepository.insertBooksWithIds(books);
+
+        // Assert
+        assertThat(inserted).isEqualTo(2);
+        assertThat(bookManagerRepository.findById(7001L)).get().extracting(Book::getGenre).isEqualTo(Genre.Education);
+        assertThat(bookManagerRepository.findById(7002L)).get().extracting(Book::getTitle).isEqualTo("Book Two");
+    }
+
+    @Test
+    public void testGenreIsStoredByName() {
+
+        // Arrange
+        Book book = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Fantasy));
+
+        // Act
+        bookManagerRepository.findAll(); // flushes the pending insert
+        String storedGenre = jdbcTemplate.queryForObject("select genre from book where id = ?", String.class, book.getId());
+
+        // Assert
+        assertThat(storedGenre).isEqualTo(Genre.Fantasy.name());
+    }
+
+    @Test
+    public void testSummaryProjectionsReturnListingColumns() {
+
+        // Arrange
+        Book fantasyBook = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Fantasy));
+        Book fictionBook = bookManagerRepository.save(new Book(null, "Book Two", "Description Two", "Person Two", Genre.Fiction));
+
+        // Act
+        List<BookSummary> allSummaries = bookManagerRepository.findAllProjectedBy();
+        List<BookSummary> fantasySummaries = bookManagerRepository.findByGenre(Genre.Fantasy, BookSummary.class);
+
+        // Assert
+        assertThat(allSummaries).extracting(BookSummary::id).containsExactlyInAnyOrder(fantasyBook.getId(), fictionBook.getId());
+        assertThat(fantasySummaries).containsExactly(
+                new BookSummary(fantasyBook.getId(), "Book One", "Person One", Genre.Fantasy));
+    }
+
+    @Test
+    public void testWritesAppearInChangeFeedWithTombstones() {
+
+        // Arrange
+        Long keptId = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Fantasy)).getId();
+        Long deletedId = bookManagerRepository.save(new Book(null, "Book Two", "Description Two", "Person Two", Genre.Fiction)).getId();
+        long since = sequencePendingChanges();
+
+        // Act
+        bookManagerRepository.updateBook(keptId, new Book(keptId, "New Title", "Description One", "Person One", Genre.Fantasy), null, 7L);
+        List<Book> unsequenced = bookManagerRepository.findChangesSince(since, Limit.of(10));
+        BookCatalogueVersion unsequencedVersion = bookManagerRepository.findCatalogueVersion();
+        sequencePendingChanges();
+        bookManagerRepository.deleteBookById(deletedId);
+        long latest = sequencePendingChanges();
+        entityManager.clear();
+        List<Book> changes = bookManagerRepository.findChangesSince(since, Limit.of(10));
+
+        // Assert
+        assertThat(unsequenced).isEmpty();
+        assertThat(changes).extracting(Book::getId).containsExactly(keptId, deletedId);
+        assertThat(changes).extracting(Book::isDeleted).containsExactly(false, true);
+        assertThat(changes.getFirst().getTitle()).isEqualTo("New Title");
+        assertThat(latest).isEqualTo(changes.getLast().getChangeSeq());
+        assertThat(unsequencedVersion.getLatestChangeSeq()).isEqualTo(since);
+        assertThat(unsequencedVersion.getPendingChanges()).isEqualTo(1);
+        assertThat(unsequencedVersion.getLastPendingWrite()).isNotNull();
+        assertThat(bookManagerRepository.findCatalogueVersion().value()).isEqualTo(latest);
+        entityManager.clear(); // the feed query loaded the tombstone into the persistence context
+        assertThat(bookManagerRepository.findById(deletedId)).isNotPresent();
+        assertThat(bookManagerRepository.findTakenIds(List.of(keptId, deletedId))).containsExactlyInAnyOrder(keptId, deletedId);
+    }
+
+    @Test
+    public void testReplaceAndDeleteReturnTheOverwrittenGenreAndAuthor() {
+
+        // Arrange
+        Long id = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Fantasy)).getId();
+
+        // Act
+        Optional<BookCountKey> replaced = bookManagerRepository.updateBook(id, new Book(id, "Book One", "Description One", "Person Two", Genre.Romance), null, 7L);
+        Optional<BookCountKey> staleVersion = bookManagerRepository.updateBook(id, new Book(id, "Book One", "Description One", "Person Three", null), Set.of(6L), 8L);
+        Optional<BookCountKey> anyOfVersions = bookManagerRepository.updateBook(id, new Book(id, "Book One", "Description One", "Person Two", Genre.Romance), Set.of(6L, 7L), 9L);
+        Optional<BookCountKey> deleted = bookManagerRepository.deleteBookById(id);
+        Optional<BookCountKey> deletedAgain = bookManagerRepository.deleteBookById(id);
+
+        // Assert
+        assertThat(replaced).contains(new BookCountKey(Genre.Fantasy, "Person One"));
+        assertThat(staleVersion).isEmpty();
+        assertThat(anyOfVersions).contains(new BookCountKey(Genre.Romance, "Person Two"));
+        assertThat(deleted).contains(new BookCountKey(Genre.Romance, "Person Two"));
+        assertThat(deletedAgain).isEmpty();
+    }
+
+    @Test
+    public void testCountByGenreAndAuthorGroupsLiveBooks() {
+
+        // Arrange
+        bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Fantasy));
+        bookManagerRepository.save(new Book(null, "Book Two", "Description Two", "Person One", Genre.Fantasy));
+        Long deletedId = bookManagerRepository.save(new Book(null, "Book Three", "Description Three", "Person Two", Genre.Fiction)).getId();
+        bookManagerRepository.findCatalogueVersion(); // flushes the pending inserts
+        bookManagerRepository.deleteBookById(deletedId);
+
+        // Act
+        List<BookCount> bookCounts = bookManagerRepository.countByGenreAndAuthor();
+
+        // Assert
+        assertThat(bookCounts).hasSize(1);
+        assertThat(bookCounts.getFirst().getGenre()).isEqualTo(Genre.Fantasy);
+        assertThat(bookCounts.getFirst().getAuthor()).isEqualTo("Person One");
+        assertThat(bookCounts.getFirst().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFindSliceCombinesFilterCriteria() {
+
+        // Arrange
+        Long firstId = bookManagerRepository.save(new Book(null, "The Colour of Magic", "Description One", "Terry Pratchett", Genre.Fantasy)).getId();
+        bookManagerRepository.save(new Book(null, "Mort", "Description Two", "Terry Pratchett", Genre.Fantasy));
+        Long thirdId = bookManagerRepository.save(new Book(null, "Magic Kingdom", "Description Three", "Terry Brooks", Genre.Fiction)).getId();
+        bookManagerRepository.save(new Book(null, "Magic 100%", "Description Four", "Terry_Brooks", Genre.Fiction));
+        bookManagerRepository.save(new Book(null, "Practical Magic", "Description Five", "Alice Hoffman", Genre.Fiction));
+        BookFilter filter = BookFilter.builder()
+                .genres(Set.of(Genre.Fantasy, Genre.Fiction))
+                .authorPrefix("Terry ")
+                .titleContains("magic")
+                .minId(firstId)
+                .build();
+
+        // Act
+        Slice<Book> firstPage = bookManagerRepository.findSlice(BookSpecifications.of(filter), PageRequest.of(0, 1, Sort.by("title")));
+        Slice<Book> secondPage = bookManagerRepository.findSlice(BookSpecifications.of(filter), PageRequest.of(1, 1, Sort.by("title")));
+
+        // Assert
+        assertThat(firstPage.getContent()).extracting(Book::getId).containsExactly(thirdId);
+        assertThat(firstPage.hasNext()).isTrue();
+        assertThat(secondPage.getContent()).extracting(Book::getId).containsExactly(firstId);
+        assertThat(secondPage.hasNext()).isFalse();
+    }
+
+    @Test
+    public void testFindSliceTreatsLikeWildcardsLiterally() {
+
+        // Arrange
+        Long literalId = bookManagerRepository.save(new Book(null, "Magic 100%", "Description One", "Terry_Brooks", Genre.Fiction)).getId();
+        bookManagerRepository.save(new Book(null, "Magic 1000", "Description Two", "TerryXBrooks", Genre.Fiction));
+
+        // Act
+        Slice<Book> byAuthor = bookManagerRepository.findSlice(BookSpecifications.authorStartsWith("Terry_"), PageRequest.of(0, 10));
+        Slice<Book> byTitle = bookManagerRepository.findSlice(BookSpecifications.titleContains("100%"), PageRequest.of(0, 10));
+
+        // Assert
+        assertThat(byAuthor.getContent()).extracting(Book::getId).containsExactly(literalId);
+        assertThat(byTitle.getContent()).extracting(Book::getId).containsExactly(literalId);
+    }
+
+    @Test
+    public void testAuthorPrefixFilterUsesAuthorIndex() {
+
+        // Act
+        String plan = jdbcTemplate.queryForObject("explain select * from book where author like 'Terry%'", String.class);
+
+        // Assert
+        assertThat(plan).containsIgnoringCase("idx_book_author");
+    }
+
+    @Test
+    public void testGenreFilterUsesGenreIndex() {
+
+        // Act
+        String plan = jdbcTemplate.queryForObject("explain select * from book where genre = 'Fantasy'", String.class);
+
+        // Assert
+        assertThat(plan).containsIgnoringCase("idx_book_genre");
+    }
+
+    // Runs in the test's transaction, which is the one holding the writes
+    private long sequencePendingChanges() {
+        entityManager.flush();
+        return BookChangeSequencer.sequencePendingChanges(jdbcTemplate);
+    }
 }
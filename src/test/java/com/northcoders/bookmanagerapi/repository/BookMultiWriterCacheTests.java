@@ -0,0 +1,60 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.service.BookStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The second instance's write is a plain JDBC update, which Hibernate never hears about
+@SpringBootTest(properties = "book.single-writer=false")
+public class BookMultiWriterCacheTests {
+
+    @Autowired
+    private BookManagerRepository bookManagerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private BookStatistics bookStatistics;
+
+    @BeforeEach
+    public void setup() {
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private Long savedId;
+
+    // The database and the JCache regions are shared with other test classes, which may insert the same ids
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.update("delete from book where id = ?", savedId);
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void testFindByGenreSeesAnotherInstancesWrite() {
+
+        // Arrange
+        savedId = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Education)).getId();
+        assertThat(bookManagerRepository.findByGenre(Genre.Education)).extracting(Book::getId).contains(savedId);
+
+        // Act
+        jdbcTemplate.update("update book set genre = 'Fiction' where id = ?", savedId);
+
+        // Assert
+        assertThat(bookManagerRepository.findByGenre(Genre.Education)).extracting(Book::getId).doesNotContain(savedId);
+    }
+}
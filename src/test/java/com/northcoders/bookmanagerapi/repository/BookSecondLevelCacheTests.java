@@ -0,0 +1,124 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.service.BookStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Each repository call below runs in its own transaction, so reads are served by the second-level cache
+// rather than by a shared persistence context
+@SpringBootTest
+public class BookSecondLevelCacheTests {
+
+    @Autowired
+    private BookManagerRepository bookManagerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Its scheduled GROUP BY would otherwise land in the statistics now and then
+    @MockBean
+    private BookStatistics bookStatistics;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    public void testFindByIdIsServedFromSecondLevelCache() {
+
+        // Arrange
+        Long id = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Education)).getId();
+        statistics.clear();
+
+        // Act
+        Book firstRead = bookManagerRepository.findById(id).orElseThrow();
+        Book secondRead = bookManagerRepository.findById(id).orElseThrow();
+
+        // Assert
+        assertThat(firstRead.getTitle()).isEqualTo("Book One");
+        assertThat(secondRead.getTitle()).isEqualTo("Book One");
+        assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getHitCount()).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    public void testFindByGenreIsServedFromQueryCache() {
+
+        // Arrange
+        bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Romance));
+        bookManagerRepository.save(new Book(null, "Book Two", "Description Two", "Person Two", Genre.Romance));
+        statistics.clear();
+
+        // Act
+        List<Book> firstRead = bookManagerRepository.findByGenre(Genre.Romance);
+        long firstReadStatements = statistics.getPrepareStatementCount();
+        List<Book> secondRead = bookManagerRepository.findByGenre(Genre.Romance);
+
+        // Assert
+        assertThat(secondRead).extracting(Book::getId).isEqualTo(firstRead.stream().map(Book::getId).toList());
+        assertThat(firstReadStatements).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getQueryRegionStatistics(Book.GENRE_QUERY_CACHE_REGION).getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testWritesInvalidateCachedBooksAndGenreQueries() {
+
+        // Arrange
+        Long updatedId = bookManagerRepository.save(new Book(null, "Book One", "Description One", "Person One", Genre.Thriller)).getId();
+        Long deletedId = bookManagerRepository.save(new Book(null, "Book Two", "Description Two", "Person Two", Genre.Thriller)).getId();
+        bookManagerRepository.findByGenre(Genre.Thriller);
+        bookManagerRepository.findById(updatedId);
+        bookManagerRepository.findById(deletedId);
+        Book updatedBook = new Book(updatedId, "New Title", "New Description", "New Author", Genre.Fantasy);
+
+        // Act
+        bookManagerRepository.updateBook(updatedId, updatedBook, null, 7L);
+        bookManagerRepository.deleteBookById(deletedId);
+        Long insertedId = 9301L;
+        bookManagerRepository.insertBookWithId(new Book(insertedId, "Book Three", "Description Three", "Person Three", Genre.Thriller));
+
+        // Assert
+        assertThat(bookManagerRepository.findById(updatedId).orElseThrow().getTitle()).isEqualTo("New Title");
+        assertThat(bookManagerRepository.findById(deletedId)).isNotPresent();
+        assertThat(bookManagerRepository.findByGenre(Genre.Thriller)).extracting(Book::getId).containsExactly(insertedId);
+    }
+
+    @Test
+    public void testRegionsAreSizedFromJCacheConfiguration() {
+
+        // Arrange
+        RegionFactory regionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(RegionFactory.class);
+
+        // Act
+        javax.cache.CacheManager cacheManager = ((JCacheRegionFactory) regionFactory).getCacheManager();
+
+        // Assert
+        assertThat(cacheManager.getCache(Book.CACHE_REGION).getConfiguration(CaffeineConfiguration.class).getMaximumSize())
+                .hasValue(100_000L);
+        assertThat(cacheManager.getCache(Book.GENRE_QUERY_CACHE_REGION).getConfiguration(CaffeineConfiguration.class).getMaximumSize())
+                .hasValue(100L);
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaLagMonitorTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @BeforeEach
+    public void setup() {
+        DataSource primaryDataSource = new DriverManagerDataSource("jdbc:h2:mem:lag-monitor-primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DataSource replicaDataSource = new DriverManagerDataSource("jdbc:h2:mem:lag-monitor-replica;DB_CLOSE_DELAY=-1", "sa", "");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        primary.execute("create table book (change_seq bigint)");
+        primary.execute("create table book_change_clock (id integer primary key)");
+        primary.execute("insert into book_change_clock values (1)");
+        primary.execute("create sequence book_change_seq start with 100");
+        replica.execute("create table book (change_seq bigint)");
+
+        replicaLagMonitor = new ReplicaLagMonitor(primaryDataSource, Map.of("replica-1", replicaDataSource),
+                Duration.ofSeconds(2), Duration.ofSeconds(1), clock::get);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        primary.execute("drop table if exists book");
+        primary.execute("drop table book_change_clock");
+        primary.execute("drop sequence book_change_seq");
+        replica.execute("drop table book");
+    }
+
+    @Test
+    public void testReplicaIsNotUsedBeforeFirstCheck() {
+        assertThat(replicaLagMonitor.isCaughtUp("replica-1")).isFalse();
+        assertThat(replicaLagMonitor.lagSeconds("replica-1")).isInfinite();
+    }
+
+    @Test
+    public void testReplicaBehindForLongerThanMaxLagIsSkippedUntilItCatchesUp() {
+
+        // Arrange
+        primary.update("insert into book values (1), (2), (3)");
+        replica.update("insert into book values (1), (2), (3)");
+        replicaLagMonitor.check();
+        primary.update("insert into book values (4)");
+
+        // Act
+        clock.addAndGet(SECOND);
+        replicaLagMonitor.check();
+        boolean caughtUpAfterOneSecond = replicaLagMonitor.isCaughtUp("replica-1");
+        clock.addAndGet(3 * SECOND);
+        replicaLagMonitor.check();
+        boolean caughtUpAfterFourSeconds = replicaLagMonitor.isCaughtUp("replica-1");
+        double lagAfterFourSeconds = replicaLagMonitor.lagSeconds("replica-1");
+        replica.update("insert into book values (4)");
+        replicaLagMonitor.check();
+
+        // Assert
+        assertThat(caughtUpAfterOneSecond).isTrue();
+        assertThat(caughtUpAfterFourSeconds).isFalse();
+        assertThat(lagAfterFourSeconds).isEqualTo(3.0);
+        assertThat(replicaLagMonitor.isCaughtUp("replica-1")).isTrue();
+        assertThat(replicaLagMonitor.lagSeconds("replica-1")).isZero();
+    }
+
+    @Test
+    public void testReplicaServesClientOnceItHasTheClientsWrite() {
+
+        // Arrange
+        primary.update("insert into book values (1)");
+        replica.update("insert into book values (1)");
+        replicaLagMonitor.check();
+
+        // Act
+        clock.addAndGet(SECOND);
+        long writtenAt = clock.get();
+        // Committed, but not yet sequenced
+        primary.update("insert into book values (null)");
+        boolean caughtUpBeforeCheck = replicaLagMonitor.isCaughtUp("replica-1", writtenAt);
+        replicaLagMonitor.check();
+        boolean caughtUpForWriter = replicaLagMonitor.isCaughtUp("replica-1", writtenAt);
+        boolean caughtUpForOthers = replicaLagMonitor.isCaughtUp("replica-1");
+        replica.update("insert into book values (100)");
+        replicaLagMonitor.check();
+
+        // Assert
+        // No check since the write, so nothing says which change_seq it got
+        assertThat(caughtUpBeforeCheck).isFalse();
+        // Within max lag, but missing the writer's change, which the check sequenced
+        assertThat(primary.queryForObject("select max(change_seq) from book", Long.class)).isEqualTo(100);
+        assertThat(caughtUpForWriter).isFalse();
+        assertThat(caughtUpForOthers).isTrue();
+        assertThat(replicaLagMonitor.isCaughtUp("replica-1", writtenAt)).isTrue();
+    }
+
+    @Test
+    public void testOnceReplicatedRunsWhenReplicasHaveTheChangeOrAreTooFarBehind() {
+
+        // Arrange
+        AtomicInteger replicatedActions = new AtomicInteger();
+        AtomicInteger lateActions = new AtomicInteger();
+        primary.update("insert into book values (1)");
+        replicaLagMonitor.check();
+
+        // Act
+        replicaLagMonitor.onceReplicated(replicatedActions::incrementAndGet);
+        replicaLagMonitor.check();
+        int replicatedBeforeReplication = replicatedActions.get();
+        replica.update("insert into book values (1)");
+        replicaLagMonitor.check();
+
+        primary.update("insert into book values (2)");
+        replicaLagMonitor.onceReplicated(lateActions::incrementAndGet);
+        replicaLagMonitor.check();
+        clock.addAndGet(SECOND);
+        replicaLagMonitor.check();
+        int lateWithinMaxLag = lateActions.get();
+        clock.addAndGet(2 * SECOND);
+        replicaLagMonitor.check();
+
+        // Assert
+        assertThat(replicatedBeforeReplication).isZero();
+        assertThat(replicatedActions.get()).isEqualTo(1);
+        assertThat(lateWithinMaxLag).isZero();
+        // The replica never got change 2, but no longer serves reads either
+        assertThat(lateActions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOnceReplicatedRunsAfterMaxLagWhileThePrimaryCannotBeRead() {
+
+        // Arrange
+        AtomicInteger actions = new AtomicInteger();
+        replicaLagMonitor.check();
+        primary.execute("drop table book");
+
+        // Act
+        replicaLagMonitor.onceReplicated(actions::incrementAndGet);
+        replicaLagMonitor.check();
+        int actionsWithinMaxLag = actions.get();
+        clock.addAndGet(3 * SECOND);
+        replicaLagMonitor.check();
+
+        // Assert
+        assertThat(actionsWithinMaxLag).isZero();
+        assertThat(actions.get()).isEqualTo(1);
+        assertThat(replicaLagMonitor.isCaughtUp("replica-1")).isFalse();
+    }
+
+    @Test
+    public void testUnreachableReplicaIsSkipped() {
+
+        // Arrange
+        replicaLagMonitor.check();
+        replica.execute("drop table book");
+
+        // Act
+        replicaLagMonitor.check();
+
+        // Assert
+        assertThat(replicaLagMonitor.isCaughtUp("replica-1")).isFalse();
+        assertThat(replicaLagMonitor.lagSeconds("replica-1")).isInfinite();
+        replica.execute("create table book (change_seq bigint)");
+    }
+
+    @Test
+    public void testReplicaThatDoesNotAnswerWithinTheTimeoutIsSkipped() {
+
+        // Arrange
+        replicaLagMonitor.check();
+        // A replica stuck on the lag query: the view takes far longer than the one-second timeout to aggregate
+        replica.execute("drop table book");
+        replica.execute("create view book as select x as change_seq from system_range(1, 1000000000000)");
+        long started = System.nanoTime();
+
+        // Act
+        replicaLagMonitor.check();
+
+        // Assert
+        assertThat(System.nanoTime() - started).isLessThan(10 * SECOND);
+        assertThat(replicaLagMonitor.isCaughtUp("replica-1")).isFalse();
+        assertThat(replicaLagMonitor.lagSeconds("replica-1")).isInfinite();
+        replica.execute("drop view book");
+        replica.execute("create table book (change_seq bigint)");
+    }
+}
@@ -0,0 +1,256 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.controller.BookManagerController;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.service.BookManagerService;
+import com.northcoders.bookmanagerapi.service.BookManagerServiceImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two in-memory H2 databases stand in for the primary and its replica; the tests copy rows across themselves, tagging
+// the titles, so every read shows which database served it
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-routing-primary;DB_CLOSE_DELAY=-1",
+        "book.replicas.enabled=true",
+        "book.replicas.replicas[0].url=" + ReplicaRoutingTests.REPLICA_URL,
+        "book.replicas.replicas[0].username=sa",
+        "book.replicas.max-lag=200ms",
+        // Checked and sequenced by the tests instead
+        "book.replicas.lag-check-interval=PT1H",
+        "book.changes.sequence-interval=PT1H"
+})
+public class ReplicaRoutingTests {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica-routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String REPLICATED = " (replica)";
+
+    @Autowired
+    private BookManagerService bookManagerService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private BookChangeSequencer bookChangeSequencer;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BookManagerController bookManagerController;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeAll
+    public static void migrateReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").locations("classpath:db/migration").load().migrate();
+    }
+
+    @BeforeEach
+    public void setup() {
+        // The caches would otherwise answer reads without asking either database
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    public void testReadOnlyTransactionsReadFromCaughtUpReplica() {
+
+        // Arrange
+        Long id = bookManagerService.insertBook(new Book(9401L, "Book One", "Description One", "Person One", Genre.Thriller)).getId();
+        replicate();
+        replicaLagMonitor.check();
+        double replicaReadsBefore = reads("replica-1");
+
+        // Act
+        String readOnlyTitle = titleOf(id, true);
+        List<Book> thrillers = bookManagerService.getBooksByGenre(Genre.Thriller);
+        double replicaReads = reads("replica-1") - replicaReadsBefore;
+        String readWriteTitle = titleOf(id, false);
+
+        // Assert
+        assertThat(readOnlyTitle).isEqualTo("Book One" + REPLICATED);
+        assertThat(readWriteTitle).isEqualTo("Book One");
+        assertThat(thrillers).extracting(Book::getTitle).contains("Book One" + REPLICATED);
+        assertThat(replicaReads).isEqualTo(2);
+    }
+
+    @Test
+    public void testReadsFallBackToPrimaryWhileReplicaLags() throws Exception {
+
+        // Arrange
+        Long id = bookManagerService.insertBook(new Book(9402L, "Book Two", "Description Two", "Person Two", Genre.Romance)).getId();
+        replicate();
+        replicaLagMonitor.check();
+        // Written by another instance, so only lag can keep the replica from serving reads
+        new JdbcTemplate(primaryDataSource).update("update book set title = 'Book Two, Revised', change_seq = nextval('book_change_seq') where id = ?", id);
+
+        // Act
+        replicaLagMonitor.check();
+        String titleWithinMaxLag = titleOf(id, true);
+        Thread.sleep(300);
+        replicaLagMonitor.check();
+        String titleBeyondMaxLag = titleOf(id, true);
+
+        // Assert
+        assertThat(titleWithinMaxLag).isEqualTo("Book Two" + REPLICATED);
+        assertThat(titleBeyondMaxLag).isEqualTo("Book Two, Revised");
+    }
+
+    @Test
+    public void testWritingClientReadsFromPrimaryUntilReplicaHasItsWrite() {
+
+        // Arrange
+        Long id = bookManagerService.insertBook(new Book(9403L, "Book Three", "Description Three", "Person Three", Genre.Fantasy)).getId();
+        replicate();
+        replicaLagMonitor.check();
+        AtomicInteger cookies = new AtomicInteger();
+        long writtenAt;
+
+        // Act
+        ReadYourWrites.begin(ReadYourWrites.NOTHING_WRITTEN, cookies::incrementAndGet);
+        try {
+            bookManagerService.replaceBook(id, new Book(id, "Book Three, Revised", "Description Three", "Person Three", Genre.Fantasy));
+            writtenAt = ReadYourWrites.writtenAt();
+        } finally {
+            ReadYourWrites.end();
+        }
+        String writerTitleBeforeCheck = titleFor(writtenAt, id);
+        replicaLagMonitor.check();
+        String writerTitle = titleFor(writtenAt, id);
+        String otherClientTitle = titleFor(ReadYourWrites.NOTHING_WRITTEN, id);
+        replicate();
+        replicaLagMonitor.check();
+        String writerTitleAfterReplication = titleFor(writtenAt, id);
+
+        // Assert
+        assertThat(cookies.get()).isEqualTo(1);
+        assertThat(writerTitleBeforeCheck).isEqualTo("Book Three, Revised");
+        assertThat(writerTitle).isEqualTo("Book Three, Revised");
+        // Other clients are not sent to the primary by someone else's write
+        assertThat(otherClientTitle).isEqualTo("Book Three" + REPLICATED);
+        assertThat(writerTitleAfterReplication).isEqualTo("Book Three, Revised" + REPLICATED);
+    }
+
+    @Test
+    public void testBookReadFromReplicaBeforeItHadTheWriteIsEvictedOnceReplicated() {
+
+        // Arrange
+        Long id = bookManagerService.insertBook(new Book(9404L, "Book Four", "Description Four", "Person Four", Genre.Education)).getId();
+        replicate();
+        replicaLagMonitor.check();
+        bookManagerService.replaceBook(id, new Book(id, "Book Four, Revised", "Description Four", "Person Four", Genre.Education));
+        replicaLagMonitor.check();
+
+        // Act
+        // Another client's read, served by the replica that does not have the write yet, refills the cache
+        cacheManager.getCache(BookManagerServiceImpl.BOOKS_CACHE).evict(id);
+        String staleTitle = bookManagerService.getBookById(id).getTitle();
+        replicate();
+        replicaLagMonitor.check();
+
+        // Assert
+        assertThat(staleTitle).isEqualTo("Book Four" + REPLICATED);
+        assertThat(bookManagerService.getBookById(id).getTitle()).isEqualTo("Book Four, Revised" + REPLICATED);
+    }
+
+    @Test
+    public void testCatalogueETagIsReadFromTheDatabaseThatServesTheListing() {
+
+        // Arrange
+        bookManagerService.insertBook(new Book(9405L, "Book Five", "Description Five", "Person Five", Genre.Thriller));
+        replicate();
+        replicaLagMonitor.check();
+        long replicatedVersion = replica.queryForObject("select max(change_seq) from book", Long.class);
+        // Ahead of the replica, within max-lag
+        bookManagerService.insertBook(new Book(9406L, "Book Six", "Description Six", "Person Six", Genre.Thriller));
+        replicaLagMonitor.check();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        double primaryReadsBefore = reads(ReplicaRoutingDataSource.PRIMARY);
+        double replicaReadsBefore = reads("replica-1");
+
+        // Act
+        List<Book> books = bookManagerController.getAllBooks(null,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/api/v1/book"), response)).getBody();
+
+        // Assert
+        assertThat(books).extracting(Book::getTitle).contains("Book Five" + REPLICATED).doesNotContain("Book Six");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"" + replicatedVersion + "\"");
+        assertThat(reads(ReplicaRoutingDataSource.PRIMARY) - primaryReadsBefore).isZero();
+        assertThat(reads("replica-1") - replicaReadsBefore).isEqualTo(1);
+    }
+
+    private String titleFor(long writtenAt, Long id) {
+        ReadYourWrites.begin(writtenAt, () -> { });
+        try {
+            return titleOf(id, true);
+        } finally {
+            ReadYourWrites.end();
+        }
+    }
+
+    private String titleOf(Long id, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("select title from book where id = ?", String.class, id));
+    }
+
+    // Copies every row from the primary to the replica, as replication would, tagging the titles. Sequences first, so
+    // the replica gets the change_seq values the primary's rows have from then on.
+    private void replicate() {
+        bookChangeSequencer.sequence();
+        JdbcTemplate primary = new JdbcTemplate(primaryDataSource);
+        for (Map<String, Object> row : primary.queryForList("select * from book")) {
+            row.put("TITLE", row.get("TITLE") + REPLICATED);
+            List<String> columns = new ArrayList<>(row.keySet());
+            replica.update("merge into book (" + String.join(", ", columns) + ") key (id) values ("
+                    + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", row.values().toArray());
+        }
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get(ReplicaRoutingDataSource.READS_METRIC).tag("target", target).counter().count();
+    }
+}
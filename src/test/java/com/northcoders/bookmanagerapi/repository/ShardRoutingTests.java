@@ -0,0 +1,216 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import com.northcoders.bookmanagerapi.config.ShardProperties;
+import com.northcoders.bookmanagerapi.config.ShardRoutingConfig;
+import com.northcoders.bookmanagerapi.exception.ResourceNotFoundException;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookBatchResult;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.service.BookManagerService;
+import com.northcoders.bookmanagerapi.service.BookManagerServiceImpl;
+import com.northcoders.bookmanagerapi.service.BookStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Three in-memory H2 databases stand in for the shards. The assertions read the shards directly, so they show where
+// each book was actually stored.
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ShardRoutingTests.SHARD_0_URL,
+        "book.shards.enabled=true",
+        "book.shards.databases[0].url=" + ShardRoutingTests.SHARD_1_URL,
+        "book.shards.databases[0].username=sa",
+        "book.shards.databases[1].url=" + ShardRoutingTests.SHARD_2_URL,
+        "book.shards.databases[1].username=sa",
+        "book.shards.worker-id=0"
+})
+public class ShardRoutingTests {
+
+    static final String SHARD_0_URL = "jdbc:h2:mem:shard-routing-0;DB_CLOSE_DELAY=-1";
+
+    static final String SHARD_1_URL = "jdbc:h2:mem:shard-routing-1;DB_CLOSE_DELAY=-1";
+
+    static final String SHARD_2_URL = "jdbc:h2:mem:shard-routing-2;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private BookManagerService bookManagerService;
+
+    @Autowired
+    private BookStatistics bookStatistics;
+
+    @Autowired
+    private BookShards bookShards;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final List<JdbcTemplate> shards = List.of(
+            new JdbcTemplate(new DriverManagerDataSource(SHARD_0_URL, "sa", "")),
+            new JdbcTemplate(new DriverManagerDataSource(SHARD_1_URL, "sa", "")),
+            new JdbcTemplate(new DriverManagerDataSource(SHARD_2_URL, "sa", "")));
+
+    @BeforeEach
+    public void setup() {
+        // Reads should reach the shards rather than the caches
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        cacheManager.getCache(BookManagerServiceImpl.BOOKS_CACHE).clear();
+    }
+
+    @Test
+    public void testBooksAreStoredOnTheShardTheirIdHashesTo() {
+
+        // Arrange
+        List<Book> books = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 40; i++) {
+            books.add(bookManagerService.insertBook(new Book(null, "Book " + i, "Description " + i, "Person " + i, Genre.Thriller)));
+        }
+        setup();
+
+        // Assert
+        for (Book book : books) {
+            int shard = bookShards.shardOf(book.getId());
+            for (int other = 0; other < shards.size(); other++) {
+                assertThat(countOn(other, book.getId())).isEqualTo(other == shard ? 1 : 0);
+            }
+            assertThat(bookManagerService.getBookById(book.getId()).getTitle()).isEqualTo(book.getTitle());
+        }
+        assertThat(books).extracting(book -> bookShards.shardOf(book.getId())).containsOnly(0, 1, 2);
+    }
+
+    @Test
+    public void testListingsGatherEveryShardInIdOrder() {
+
+        // Arrange
+        List<Book> books = IntStream.rangeClosed(9501, 9506)
+                .mapToObj(id -> new Book((long) id, "Book " + id, "Description " + id, "Person " + id,
+                        id % 2 == 0 ? Genre.Fantasy : Genre.Romance))
+                .toList();
+
+        // Act
+        List<BookBatchResult> results = bookManagerService.insertBooks(books.iterator());
+        List<Book> allBooks = bookManagerService.getAllBooks();
+        List<Book> fantasyBooks = bookManagerService.getBooksByGenre(Genre.Fantasy);
+        List<Long> pagedIds = new ArrayList<>();
+        Long cursor = 9500L;
+        Slice<Book> page;
+        do {
+            page = bookManagerService.getBooksAfter(Genre.Romance, cursor, 2);
+            page.forEach(book -> pagedIds.add(book.getId()));
+            cursor = page.getContent().isEmpty() ? cursor : page.getContent().get(page.getNumberOfElements() - 1).getId();
+        } while (page.hasNext());
+
+        // Assert
+        assertThat(results).extracting(BookBatchResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(results).extracting(BookBatchResult::getStatus).containsOnly(BookBatchResult.Status.CREATED);
+        assertThat(books.stream().map(book -> bookShards.shardOf(book.getId())).distinct().count()).isGreaterThan(1);
+        assertThat(allBooks).isSortedAccordingTo(Comparator.comparing(Book::getId))
+                .extracting(Book::getId).contains(9501L, 9502L, 9503L, 9504L, 9505L, 9506L);
+        assertThat(fantasyBooks).extracting(Book::getId).contains(9502L, 9504L, 9506L).doesNotContain(9501L);
+        assertThat(pagedIds).filteredOn(id -> id <= 9506).containsExactly(9501L, 9503L, 9505L);
+    }
+
+    @Test
+    public void testReplaceAndDeleteRunOnTheBooksShard() {
+
+        // Arrange
+        Long id = bookManagerService.insertBook(new Book(null, "Book Seven", "Description Seven", "Person Seven", Genre.Education)).getId();
+        JdbcTemplate shard = shards.get(bookShards.shardOf(id));
+
+        // Act
+        bookManagerService.replaceBook(id, new Book(null, "Book Seven, Revised", "Description Seven", "Person Seven", Genre.Education));
+        String storedTitle = shard.queryForObject("select title from book where id = ?", String.class, id);
+        bookManagerService.deleteBookById(id);
+
+        // Assert
+        assertThat(storedTitle).isEqualTo("Book Seven, Revised");
+        assertThat(shard.queryForObject("select deleted from book where id = ?", Boolean.class, id)).isTrue();
+        assertThatThrownBy(() -> bookManagerService.getBookById(id)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    public void testStatisticsAndCatalogueVersionCoverEveryShard() {
+
+        // Arrange
+        long versionBefore = bookManagerService.getCatalogueVersion();
+        bookManagerService.insertBook(new Book(null, "Book Eight", "Description Eight", "Person Eight", Genre.Fiction));
+
+        // Act
+        long versionAfter = bookManagerService.getCatalogueVersion();
+        bookStatistics.reconcile();
+
+        // Assert
+        long storedBooks = shards.stream()
+                .mapToLong(shard -> shard.queryForObject("select count(*) from book where deleted = false", Long.class))
+                .sum();
+        assertThat(versionAfter).isNotEqualTo(versionBefore);
+        assertThat(bookManagerService.countBooks()).isEqualTo(storedBooks);
+    }
+
+    @Test
+    public void testFilterPagesMergeEveryShardInSortOrder() {
+
+        // Arrange
+        List<Book> books = IntStream.rangeClosed(9511, 9518)
+                .mapToObj(id -> new Book((long) id, "Book " + (char) ('A' + 9518 - id), "Description " + id, "Filter Person", Genre.Fiction))
+                .toList();
+        bookManagerService.insertBooks(books.iterator());
+        BookFilter filter = new BookFilter(null, "Filter Person", null, null, null);
+
+        // Act
+        List<String> pagedTitles = new ArrayList<>();
+        List<Boolean> hasNext = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            Slice<Book> slice = bookManagerService.filterBooks(filter, PageRequest.of(page, 3, Sort.by("title").and(Sort.by("id"))));
+            slice.forEach(book -> pagedTitles.add(book.getTitle()));
+            hasNext.add(slice.hasNext());
+        }
+        List<Long> descendingIds = bookManagerService.filterBooks(filter, PageRequest.of(0, 4, Sort.by(Sort.Direction.DESC, "id")))
+                .map(Book::getId).getContent();
+
+        // Assert
+        assertThat(books.stream().map(book -> bookShards.shardOf(book.getId())).distinct().count()).isGreaterThan(1);
+        assertThat(pagedTitles).containsExactly("Book A", "Book B", "Book C", "Book D", "Book E", "Book F", "Book G", "Book H");
+        assertThat(hasNext).containsExactly(true, true, false);
+        assertThat(descendingIds).containsExactly(9518L, 9517L, 9516L, 9515L);
+    }
+
+    @Test
+    public void testFeaturesWithoutACrossShardOrderAreRefused() {
+        assertThatThrownBy(() -> bookManagerService.getChangesSince(0, 10))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testWorkerIdMustBeSet() {
+        assertThatThrownBy(() -> new ShardRoutingConfig().bookShards(null, new ShardProperties(), null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("book.shards.worker-id");
+    }
+
+    private int countOn(int shard, long id) {
+        return shards.get(shard).queryForObject("select count(*) from book where id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,68 @@
+package com.northcoders.bookmanagerapi.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnowflakeIdGeneratorTests {
+
+    private final AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS + 1_000);
+
+    @Test
+    public void testIdsKeepIncreasingPastAFullMillisecondSequence() {
+
+        // Arrange
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, clock::get);
+
+        // Act
+        long[] ids = new long[5_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = generator.nextId();
+        }
+
+        // Assert
+        for (int i = 1; i < ids.length; i++) {
+            assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+        }
+        assertThat(ids[0] >>> (SnowflakeIdGenerator.WORKER_ID_BITS + SnowflakeIdGenerator.SEQUENCE_BITS)).isEqualTo(1_000);
+        assertThat((ids[0] >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_WORKER_ID).isEqualTo(7);
+    }
+
+    @Test
+    public void testClockSteppingBackDoesNotRepeatIds() {
+
+        // Arrange
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, clock::get);
+        long beforeStep = generator.nextId();
+
+        // Act
+        clock.addAndGet(-500);
+        long afterStep = generator.nextId();
+        clock.addAndGet(1_000);
+        long afterCatchUp = generator.nextId();
+
+        // Assert
+        assertThat(afterStep).isGreaterThan(beforeStep);
+        assertThat(afterCatchUp).isGreaterThan(afterStep);
+    }
+
+    @Test
+    public void testWorkersGenerateDistinctIdsInTheSameMillisecond() {
+
+        // Arrange
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(1, clock::get);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(2, clock::get);
+
+        // Act & Assert
+        assertThat(first.nextId()).isNotEqualTo(second.nextId());
+    }
+
+    @Test
+    public void testWorkerIdOutOfRangeIsRejected() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1, clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,181 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSummary;
+import com.northcoders.bookmanagerapi.model.Genre;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookColumnStoreTests {
+
+    @Test
+    public void testPutStoresEveryColumnAndReplacesById() {
+
+        // Arrange
+        BookColumnStore store = new BookColumnStore();
+        store.put(new Book(1L, "Book One", "Description One", "Person One", Genre.Fantasy, 5L));
+
+        // Act
+        store.put(new Book(1L, "Book One, Revised", null, "Person Two", Genre.Romance, 6L));
+        store.put(new Book(2L, "Book Two", "Description Two", null, null, 0L));
+
+        // Assert
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.findAll()).containsExactly(
+                new Book(1L, "Book One, Revised", null, "Person Two", Genre.Romance, 6L),
+                new Book(2L, "Book Two", "Description Two", null, null, 0L));
+        assertThat(store.findByGenre(Genre.Fantasy)).isEmpty();
+        assertThat(store.findSummariesByGenre(Genre.Romance))
+                .containsExactly(new BookSummary(1L, "Book One, Revised", "Person Two", Genre.Romance));
+    }
+
+    @Test
+    public void testRemoveDropsTheBookFromEveryIndex() {
+
+        // Arrange
+        BookColumnStore store = new BookColumnStore();
+        LongStream.rangeClosed(1, 100).forEach(id -> store.put(book(id)));
+
+        // Act
+        boolean removed = store.remove(42L);
+        boolean removedAgain = store.remove(42L);
+        for (long id = 1; id <= 100; id += 3) {
+            store.remove(id);
+        }
+
+        // Assert
+        assertThat(removed).isTrue();
+        assertThat(removedAgain).isFalse();
+        assertThat(store.findAll()).extracting(Book::getId)
+                .doesNotContain(1L, 4L, 42L, 100L)
+                .contains(2L, 3L, 99L)
+                .hasSize(store.size());
+        assertThat(store.findByGenre(Genre.values()[42 % Genre.values().length])).extracting(Book::getId).doesNotContain(42L);
+        assertThat(store.findAllSummaries()).hasSize(store.size());
+    }
+
+    @Test
+    public void testFilterCombinesGenresAuthorPrefixTitleAndIdRange() {
+
+        // Arrange
+        BookColumnStore store = new BookColumnStore();
+        store.put(new Book(1L, "The Hobbit", "Description", "Tolkien", Genre.Fantasy));
+        store.put(new Book(2L, "The Silmarillion", "Description", "Tolkien", Genre.Fantasy));
+        store.put(new Book(3L, "Emma", "Description", "Austen", Genre.Romance));
+        store.put(new Book(4L, "The Two Towers", "Description", "Tolkien", Genre.Fiction));
+        store.put(new Book(5L, "Hobbit Stories", "Description", "tolkien", Genre.Fantasy));
+        store.put(new Book(6L, "Unfinished Tales", "Description", "Tolkien", Genre.Romance));
+        BookFilter filter = new BookFilter();
+        filter.setGenres(Set.of(Genre.Fantasy, Genre.Fiction));
+        filter.setAuthorPrefix("Tolk");
+
+        // Act
+        Slice<Book> byTitle = store.filter(filter, PageRequest.of(0, 10, Sort.by("title")));
+        filter.setTitleContains("HOBBIT");
+        Slice<Book> hobbits = store.filter(filter, Pageable.unpaged());
+        filter.setTitleContains(null);
+        filter.setMinId(2L);
+        filter.setMaxId(4L);
+        Slice<Book> inRange = store.filter(filter, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id")));
+
+        // Assert
+        assertThat(byTitle).extracting(Book::getId).containsExactly(1L, 2L, 4L);
+        assertThat(hobbits).extracting(Book::getId).containsExactly(1L);
+        assertThat(inRange).extracting(Book::getId).containsExactly(4L, 2L);
+    }
+
+    @Test
+    public void testFilterPagesAndSortsNullsLast() {
+
+        // Arrange
+        BookColumnStore store = new BookColumnStore();
+        store.put(new Book(1L, "Book One", "Description", null, Genre.Fiction));
+        store.put(new Book(2L, "Book Two", "Description", "Person B", Genre.Fiction));
+        store.put(new Book(3L, "Book Three", "Description", "Person A", Genre.Fiction));
+        store.put(new Book(4L, "Book Four", "Description", "Person A", Genre.Fiction));
+
+        // Act
+        Sort sort = Sort.by("author").and(Sort.by(Sort.Direction.DESC, "id"));
+        Slice<Book> first = store.filter(new BookFilter(), PageRequest.of(0, 3, sort));
+        Slice<Book> second = store.filter(new BookFilter(), PageRequest.of(1, 3, sort));
+
+        // Assert
+        assertThat(first).extracting(Book::getId).containsExactly(4L, 3L, 2L);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second).extracting(Book::getId).containsExactly(1L);
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void testCompactedKeepsOnlyLiveBooks() {
+
+        // Arrange
+        BookColumnStore store = new BookColumnStore();
+        LongStream.rangeClosed(1, 5000).forEach(id -> store.put(book(id)));
+        LongStream.rangeClosed(1, 4000).forEach(store::remove);
+
+        // Act
+        boolean needed = store.needsCompaction();
+        BookColumnStore compacted = store.compacted();
+
+        // Assert
+        assertThat(needed).isTrue();
+        assertThat(compacted.needsCompaction()).isFalse();
+        assertThat(compacted.findAll()).isEqualTo(store.findAll()).hasSize(1000);
+        assertThat(compacted.estimatedBytes()).isLessThan(store.estimatedBytes());
+    }
+
+    @Test
+    public void testReusedIdsAfterRemovalAreFoundAgainInIdOrder() {
+
+        // Arrange
+        BookColumnStore store = new BookColumnStore();
+        List<Long> ids = LongStream.rangeClosed(1, 3000).map(id -> id * 1024).boxed().toList();
+        ids.forEach(id -> store.put(book(id)));
+
+        // Act
+        ids.stream().filter(id -> id % 3 == 0).forEach(store::remove);
+        ids.stream().filter(id -> id % 3 == 0).forEach(id -> store.put(book(id)));
+
+        // Assert
+        assertThat(store.size()).isEqualTo(ids.size());
+        assertThat(store.findAll()).extracting(Book::getId).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    public void testOutOfOrderIdsStillComeBackInIdOrder() {
+
+        // Arrange
+        BookColumnStore store = new BookColumnStore();
+        List<Long> ids = LongStream.rangeClosed(1, 2000).map(id -> (id * 7919) % 2003).boxed().toList();
+
+        // Act
+        ids.forEach(id -> store.put(book(id)));
+        ids.stream().filter(id -> id % 5 == 0).forEach(store::remove);
+        store.put(book(5));
+
+        // Assert
+        List<Long> expectedIds = ids.stream().filter(id -> id % 5 != 0 || id == 5).sorted().toList();
+        assertThat(store.findAll()).extracting(Book::getId).containsExactlyElementsOf(expectedIds);
+        assertThat(store.findAllSummaries()).extracting(BookSummary::id).containsExactlyElementsOf(expectedIds);
+        assertThat(store.findByGenre(Genre.Fantasy)).extracting(Book::getId)
+                .containsExactlyElementsOf(expectedIds.stream().filter(id -> book(id).getGenre() == Genre.Fantasy).toList());
+        assertThat(store.filter(new BookFilter(), PageRequest.of(1, 10, Sort.by("id"))))
+                .extracting(Book::getId).containsExactlyElementsOf(expectedIds.subList(10, 20));
+        assertThat(store.filter(new BookFilter(), Pageable.unpaged())).extracting(Book::getId).containsExactlyElementsOf(expectedIds);
+    }
+
+    private static Book book(long id) {
+        return new Book(id, "Book " + id, "Description " + id, "Person " + (id % 10), Genre.values()[(int) (id % Genre.values().length)]);
+    }
+}
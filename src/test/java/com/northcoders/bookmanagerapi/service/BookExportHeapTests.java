@@ -0,0 +1,147 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.BookExportSnapshot;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Exports a table of books and checks that the heap retained along the way does not grow with them. The default run
+// uses 200,000 books: growth measured there is a fixed overhead of a few tens of MB whatever the size, while an
+// export holding its rows would add well over the limit on top. The full-size run takes minutes and a few GB of disk:
+//   mvn test -Dtest=BookExportHeapTests -Dbook.export.heap-test.rows=5000000
+@SpringBootTest(properties = {
+        // On disk, so the table itself is not part of the heap being measured, with a small page cache (in KB) so
+        // the database's own buffers stay out of the growth too
+        "spring.datasource.url=jdbc:h2:file:${java.io.tmpdir}/book-export-heap-test/books;CACHE_SIZE=4096",
+        "spring.datasource.username=sa"
+})
+public class BookExportHeapTests {
+
+    private static final int ROWS = Integer.getInteger("book.export.heap-test.rows", 200_000);
+
+    private static final int INSERT_BATCH_ROWS = 500_000;
+
+    // An export that kept its rows would retain a few hundred bytes per book, past this at the default size
+    private static final long MAX_RETAINED_GROWTH_BYTES = 64L * 1024 * 1024;
+
+    @Autowired
+    private BookExportServiceImpl bookExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanup() {
+        jdbcTemplate.execute("drop all objects delete files");
+    }
+
+    @Test
+    public void testExportsKeepRetainedHeapFlat() throws Exception {
+
+        // Arrange
+        jdbcTemplate.execute("truncate table book");
+        for (int first = 1; first <= ROWS; first += INSERT_BATCH_ROWS) {
+            jdbcTemplate.update("""
+                    insert into book (id, title, description, author, genre)
+                    select x, 'Book ' || x, 'This is the description for Book ' || x, 'Person ' || mod(x, 1000),
+                           case mod(x, 5) when 0 then 'Thriller' when 1 then 'Romance' when 2 then 'Fantasy'
+                                          when 3 then 'Fiction' else 'Education' end
+                    from system_range(?, ?)
+                    """, first, Math.min(ROWS, first + INSERT_BATCH_ROWS - 1));
+        }
+        CountingOutputStream csv = new CountingOutputStream();
+        CountingOutputStream ndjson = new CountingOutputStream();
+
+        // Act
+        long baseline = retainedHeap();
+        long csvPeak = peakRetainedHeap(() -> bookExportService.exportBooks(BookImportJob.Format.CSV, csv));
+        long ndjsonPeak = peakRetainedHeap(() -> bookExportService.exportBooks(BookImportJob.Format.NDJSON, ndjson));
+        BookExportSnapshot[] snapshot = new BookExportSnapshot[1];
+        long snapshotPeak = peakRetainedHeap(() -> snapshot[0] = bookExportService.writeSnapshot());
+        Files.delete(bookExportService.snapshotDir.resolve(snapshot[0].getFile()));
+
+        // Assert
+        System.out.printf("%n%d books, baseline %d MB retained; peak growth: csv %d MB (%d MB written),"
+                        + " ndjson %d MB (%d MB written), snapshot %d MB (%d MB written)%n",
+                ROWS, mb(baseline), mb(csvPeak - baseline), mb(csv.bytes), mb(ndjsonPeak - baseline), mb(ndjson.bytes),
+                mb(snapshotPeak - baseline), mb(snapshot[0].getBytes()));
+
+        assertThat(csv.lines).isEqualTo(ROWS + 1);
+        assertThat(ndjson.lines).isEqualTo(ROWS);
+        assertThat(snapshot[0].getRows()).isEqualTo(ROWS);
+        assertThat(csvPeak - baseline).isLessThan(MAX_RETAINED_GROWTH_BYTES);
+        assertThat(ndjsonPeak - baseline).isLessThan(MAX_RETAINED_GROWTH_BYTES);
+        assertThat(snapshotPeak - baseline).isLessThan(MAX_RETAINED_GROWTH_BYTES);
+    }
+
+    // Samples the heap left after a full collection, twice a second while the export runs
+    private static long peakRetainedHeap(Export export) throws Exception {
+        AtomicLong peak = new AtomicLong();
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(retainedHeap(), Math::max);
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        try {
+            export.run();
+        } finally {
+            sampler.interrupt();
+            sampler.join();
+        }
+        return peak.get();
+    }
+
+    private static long retainedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long mb(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    private interface Export {
+        void run() throws Exception;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long bytes;
+
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookExportSnapshot;
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Exports cover the whole table, which other tests share, so the assertions only look at this class's id range
+@SpringBootTest
+public class BookExportServiceTests {
+
+    private static final long FIRST_ID = 50001;
+
+    private static final long LAST_ID = 50004;
+
+    @Autowired
+    private BookExportServiceImpl bookExportService;
+
+    @Autowired
+    private BookManagerRepository bookManagerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<Book> books;
+
+    @BeforeEach
+    public void setup() {
+        books = List.of(
+                new Book(50001L, "Book One, \"Annotated\"", "Spans\ntwo lines", "Person One", Genre.Fiction),
+                new Book(50002L, "Book Two", null, "Person Two", Genre.Romance),
+                new Book(50004L, "Book Four", "This is the description for Book Four", "Person Four", Genre.Education));
+
+        if (bookManagerRepository.findTakenIds(List.of(FIRST_ID)).isEmpty()) {
+            bookManagerRepository.insertBooksWithIds(books);
+            bookManagerRepository.insertBooksWithIds(List.of(new Book(50003L, "Book Three", "Deleted", "Person Three", Genre.Fantasy)));
+            bookManagerRepository.deleteBookById(50003L);
+        }
+    }
+
+    @Test
+    public void testCsvExportWritesHeaderAndLiveBooksInIdOrder() throws Exception {
+
+        // Arrange
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Act
+        bookExportService.exportBooks(BookImportJob.Format.CSV, outputStream);
+
+        // Assert
+        String csv = outputStream.toString(StandardCharsets.UTF_8);
+        assertThat(csv).startsWith("id,title,description,author,genre\n");
+
+        List<Book> exported = new CsvMapper().readerFor(Book.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .<Book>readValues(csv)
+                .readAll();
+        // CSV has no null, so the missing description reads back as empty
+        assertThat(inRange(exported)).containsExactly(books.get(0),
+                new Book(50002L, "Book Two", "", "Person Two", Genre.Romance), books.get(2));
+    }
+
+    @Test
+    public void testNdjsonExportWritesOneBookPerLine() throws Exception {
+
+        // Arrange
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Act
+        bookExportService.exportBooks(BookImportJob.Format.NDJSON, outputStream);
+
+        // Assert
+        String ndjson = outputStream.toString(StandardCharsets.UTF_8);
+        assertThat(ndjson).endsWith("}\n");
+
+        List<Book> exported = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            exported.add(objectMapper.readValue(line, Book.class));
+        }
+        assertThat(inRange(exported)).containsExactlyElementsOf(books);
+    }
+
+    @Test
+    public void testSnapshotRoundTripsThroughColumnarFile() throws Exception {
+
+        // Act
+        BookExportSnapshot snapshot = bookExportService.writeSnapshot();
+
+        // Assert
+        Path snapshotFile = bookExportService.snapshotDir.resolve(snapshot.getFile());
+        List<Book> snapshotBooks = new ArrayList<>();
+        long rows = BookColumnarSnapshot.read(snapshotFile, snapshotBooks::add);
+
+        assertThat(snapshot.getFile()).endsWith(BookColumnarSnapshot.FILE_EXTENSION);
+        assertThat(snapshot.getBytes()).isEqualTo(Files.size(snapshotFile));
+        assertThat(rows).isEqualTo(snapshot.getRows()).isEqualTo(snapshotBooks.size());
+        assertThat(inRange(snapshotBooks)).containsExactlyElementsOf(books);
+        try (Stream<Path> files = Files.list(bookExportService.snapshotDir)) {
+            assertThat(files).noneMatch(file -> file.toString().endsWith(".part"));
+        }
+
+        Files.delete(snapshotFile);
+    }
+
+    private static List<Book> inRange(List<Book> exported) {
+        return exported.stream().filter(book -> book.getId() >= FIRST_ID && book.getId() <= LAST_ID).toList();
+    }
+}
@@ -0,0 +1,126 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.BookImportJob;
+import com.northcoders.bookmanagerapi.model.BookImportProgress;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookImportJobRepository;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs real imports against the embedded database and waits for the background job to finish
+@SpringBootTest
+public class BookImportServiceTests {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookImportJobRepository bookImportJobRepository;
+
+    @Autowired
+    private BookManagerRepository bookManagerRepository;
+
+    @Test
+    public void testNdjsonImportWritesChunksAndReportsRejectedRows() throws Exception {
+
+        // Arrange
+        String ndjson = LongStream.rangeClosed(1, 1200)
+                .mapToObj(i -> i == 600
+                        ? "{\"id\": 20600, \"genre\": \"Poetry\"}"
+                        : "{\"id\": " + (20000 + i) + ", \"title\": \"Book " + i + "\", \"author\": \"Person\", \"genre\": \"Fiction\"}")
+                .collect(Collectors.joining("\n"));
+
+        // Act
+        BookImportProgress started = bookImportService.startImport(BookImportJob.Format.NDJSON, stream(ndjson));
+        BookImportProgress finished = awaitFinished(started.getId());
+
+        // Assert
+        assertThat(finished.getStatus()).isEqualTo(BookImportJob.Status.COMPLETED);
+        assertThat(finished.getChunksCommitted()).isEqualTo(3);
+        assertThat(finished.getRowsImported()).isEqualTo(1199);
+        assertThat(finished.getRowsFailed()).isEqualTo(1);
+        assertThat(finished.getTotalRows()).isEqualTo(1200);
+        assertThat(finished.getErrors()).singleElement().satisfies(error -> assertThat(error.getSourceRow()).isEqualTo(600));
+        assertThat(bookManagerRepository.findById(21200L)).isPresent();
+        assertThat(bookManagerRepository.findById(20600L)).isNotPresent();
+    }
+
+    @Test
+    public void testCsvImportMatchesColumnsByHeaderAndReportsConflicts() throws Exception {
+
+        // Arrange
+        String csv = """
+                genre,author,title,id
+                Fantasy,Person One,Book One,30001
+                Fantasy,Person Two,"Book Two, Part 1",
+                Romance,Person Three,Book Three,30001
+                """;
+
+        // Act
+        BookImportProgress started = bookImportService.startImport(BookImportJob.Format.CSV, stream(csv));
+        BookImportProgress finished = awaitFinished(started.getId());
+
+        // Assert
+        assertThat(finished.getStatus()).isEqualTo(BookImportJob.Status.COMPLETED);
+        assertThat(finished.getRowsImported()).isEqualTo(2);
+        assertThat(finished.getRowsConflicted()).isEqualTo(1);
+        assertThat(bookManagerRepository.findById(30001L).orElseThrow().getGenre()).isEqualTo(Genre.Fantasy);
+        assertThat(bookManagerRepository.findByGenre(Genre.Fantasy)).anySatisfy(book -> assertThat(book.getTitle()).isEqualTo("Book Two, Part 1"));
+    }
+
+    @Test
+    public void testResumeSkipsCommittedChunks() throws Exception {
+
+        // Arrange: a job that failed after committing its first chunk
+        Path spoolFile = Files.createTempFile("import-", ".ndjson");
+        Files.writeString(spoolFile, LongStream.rangeClosed(1, 700)
+                .mapToObj(i -> "{\"id\": " + (40000 + i) + ", \"title\": \"Book " + i + "\", \"genre\": \"Thriller\"}")
+                .collect(Collectors.joining("\n")));
+        Instant failedAt = Instant.now();
+        BookImportJob job = bookImportJobRepository.save(new BookImportJob(null, BookImportJob.Format.NDJSON,
+                BookImportJob.Status.FAILED, spoolFile.toString(), null, "Connection reset", failedAt, failedAt, failedAt));
+        bookImportJobRepository.recordChunk(job.getId(), 0, 500, 0, 0);
+
+        // Act
+        assertThat(bookImportService.resumeImport(job.getId())).isPresent();
+        BookImportProgress finished = awaitFinished(job.getId());
+
+        // Assert
+        assertThat(finished.getStatus()).isEqualTo(BookImportJob.Status.COMPLETED);
+        assertThat(finished.getChunksCommitted()).isEqualTo(2);
+        assertThat(finished.getRowsImported()).isEqualTo(700);
+        assertThat(finished.getError()).isNull();
+        assertThat(bookManagerRepository.findById(40001L)).isNotPresent();
+        assertThat(bookManagerRepository.findById(40501L)).isPresent();
+        assertThat(Files.exists(spoolFile)).isFalse();
+        assertThat(bookImportService.resumeImport(job.getId())).isEmpty();
+    }
+
+    private BookImportProgress awaitFinished(Long id) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        BookImportProgress progress = bookImportService.getImport(id).orElseThrow();
+
+        while (progress.getStatus() == BookImportJob.Status.RUNNING && Instant.now().isBefore(deadline)) {
+            Thread.sleep(50);
+            progress = bookImportService.getImport(id).orElseThrow();
+        }
+        return progress;
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
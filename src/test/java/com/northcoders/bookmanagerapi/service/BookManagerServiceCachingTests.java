@@ -0,0 +1,146 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.exception.ResourceNotFoundException;
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+public class BookManagerServiceCachingTests {
+
+    // The genre and author the repository reports for the row a replace or delete overwrote
+    private static final BookCountKey PREVIOUS = new BookCountKey(Genre.Education, "Person One");
+
+    @MockBean
+    private BookManagerRepository mockBookManagerRepository;
+
+    @Autowired
+    private BookManagerService bookManagerService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        cacheManager.getCache(BookManagerServiceImpl.BOOKS_CACHE).clear();
+    }
+
+    @Test
+    public void testGetBookByIdIsServedFromCacheAfterFirstRead() {
+        // Arrange
+        Book book = new Book(1L, "Book One", "This is the description for Book One", "Author One", Genre.Education);
+        when(mockBookManagerRepository.findById(1L)).thenReturn(Optional.of(book));
+        double hitsBefore = cacheGets("hit");
+
+        // Act
+        Book firstRead = bookManagerService.getBookById(1L);
+        Book secondRead = bookManagerService.getBookById(1L);
+
+        // Assert
+        assertThat(firstRead).isEqualTo(book);
+        assertThat(secondRead).isEqualTo(book);
+        verify(mockBookManagerRepository, times(1)).findById(1L);
+        assertThat(cacheGets("hit") - hitsBefore).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetBookByIdDoesNotCacheMissingBooks() {
+        // Arrange
+        when(mockBookManagerRepository.findById(2L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerService.getBookById(2L)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> bookManagerService.getBookById(2L)).isInstanceOf(ResourceNotFoundException.class);
+        verify(mockBookManagerRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    public void testReplaceBookRefreshesCachedBook() {
+        // Arrange
+        Book existingBook = new Book(3L, "Old Title", "Old Description", "Old Author", Genre.Education);
+        Book updatedBook = new Book(3L, "New Title", "New Description", "New Author", Genre.Fantasy);
+        when(mockBookManagerRepository.findById(3L)).thenReturn(Optional.of(existingBook));
+        when(mockBookManagerRepository.updateBook(eq(3L), eq(updatedBook), isNull(), anyLong())).thenReturn(Optional.of(PREVIOUS));
+        bookManagerService.getBookById(3L);
+
+        // Act
+        bookManagerService.replaceBook(3L, updatedBook);
+        Book cachedRead = bookManagerService.getBookById(3L);
+
+        // Assert
+        assertThat(cachedRead.getTitle()).isEqualTo("New Title");
+        verify(mockBookManagerRepository, times(1)).findById(3L);
+    }
+
+    @Test
+    public void testDeleteBookByIdEvictsCachedBook() {
+        // Arrange
+        Book book = new Book(4L, "Book Four", "This is the description for Book Four", "Author Four", Genre.Fiction);
+        when(mockBookManagerRepository.findById(4L)).thenReturn(Optional.of(book));
+        when(mockBookManagerRepository.deleteBookById(4L)).thenReturn(Optional.of(PREVIOUS));
+        bookManagerService.getBookById(4L);
+
+        // Act
+        bookManagerService.deleteBookById(4L);
+        when(mockBookManagerRepository.findById(4L)).thenReturn(Optional.empty());
+
+        // Assert
+        assertThatThrownBy(() -> bookManagerService.getBookById(4L)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    public void testDeleteBookByIdEvictsCachedBookAlreadyDeletedElsewhere() {
+        // Arrange
+        Book book = new Book(6L, "Book Six", "This is the description for Book Six", "Author Six", Genre.Fiction);
+        when(mockBookManagerRepository.findById(6L)).thenReturn(Optional.of(book));
+        when(mockBookManagerRepository.deleteBookById(6L)).thenReturn(Optional.empty());
+        bookManagerService.getBookById(6L);
+
+        // Act
+        assertThatThrownBy(() -> bookManagerService.deleteBookById(6L)).isInstanceOf(ResourceNotFoundException.class);
+
+        // Assert
+        assertThat(cacheManager.getCache(BookManagerServiceImpl.BOOKS_CACHE).get(6L)).isNull();
+    }
+
+    @Test
+    public void testInsertBookPopulatesCache() {
+        // Arrange
+        Book book = new Book(5L, "Book Five", "This is the description for Book Five", "Author Five", Genre.Romance);
+        when(mockBookManagerRepository.insertBookWithId(book)).thenReturn(1);
+
+        // Act
+        bookManagerService.insertBook(book);
+        Book cachedRead = bookManagerService.getBookById(5L);
+
+        // Assert
+        assertThat(cachedRead).isEqualTo(book);
+        verify(mockBookManagerRepository, times(0)).findById(5L);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", BookManagerServiceImpl.BOOKS_CACHE)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+}
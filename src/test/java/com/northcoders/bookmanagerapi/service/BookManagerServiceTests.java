@@ -1,26 +1,64 @@
 package com.northcoders.bookmanagerapi.service;
 
+import com.northcoders.bookmanagerapi.exception.ChangesPurgedException;
+import com.northcoders.bookmanagerapi.exception.ResourceAlreadyExistsException;
+import com.northcoders.bookmanagerapi.exception.ResourceNotFoundException;
+import com.northcoders.bookmanagerapi.exception.ResourceVersionMismatchException;
 import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookBatchResult;
+import com.northcoders.bookmanagerapi.model.BookCatalogueVersion;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookSearchHit;
+import com.northcoders.bookmanagerapi.model.BookSummary;
 import com.northcoders.bookmanagerapi.model.Genre;
 import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import com.northcoders.bookmanagerapi.repository.BookShards;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @DataJpaTest
 public class BookManagerServiceTests {
 
+    // The genre and author the repository reports for the row a replace or delete overwrote
+    private static final BookCountKey PREVIOUS = new BookCountKey(Genre.Education, "Person One");
+
     @Mock
     private BookManagerRepository mockBookManagerRepository;
 
+    @Mock
+    private EntityManager mockEntityManager;
+
+    @Mock
+    private TransactionTemplate mockTransactionTemplate;
+
+    @Mock
+    private BookStatistics mockBookStatistics;
+
     @InjectMocks
     private BookManagerServiceImpl bookManagerServiceImpl;
 
@@ -51,11 +89,11 @@ public class BookManagerServiceTests {
 
         var book = new Book(4L, "Book Four", "This is the description for Book Four", "Person Four", Genre.Fantasy);
 
-        when(mockBookManagerRepository.save(book)).thenReturn(book);
+        when(mockBookManagerRepository.insertBookWithId(book)).thenReturn(1);
 
-        Optional<Book> actualResult = bookManagerServiceImpl.insertBook(book);
+        Book actualResult = bookManagerServiceImpl.insertBook(book);
 
-        assertThat(actualResult.get()).isEqualTo(book);
+        assertThat(actualResult).isEqualTo(book);
     }
 
     @Test
@@ -112,6 +150,25 @@ public class BookManagerServiceTests {
     }
 
 
+    @Test
+    public void testFilterBooksReturnsSliceFromRepository() {
+
+        // Arrange
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Fantasy));
+        BookFilter filter = BookFilter.builder().genres(Set.of(Genre.Fantasy)).authorPrefix("Person").build();
+        PageRequest pageRequest = PageRequest.of(0, 1, Sort.by("title"));
+
+        when(mockBookManagerRepository.findSlice(any(), eq(pageRequest))).thenReturn(new SliceImpl<>(books, pageRequest, true));
+
+        // Act
+        Slice<Book> actualResult = bookManagerServiceImpl.filterBooks(filter, pageRequest);
+
+        // Assert
+        assertThat(actualResult.getContent()).isEqualTo(books);
+        assertThat(actualResult.hasNext()).isTrue();
+    }
+
     @Test
     public void testGetBookByIdReturnsBookWhenFound() {
         // Arrange
@@ -122,27 +179,25 @@ public class BookManagerServiceTests {
         when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.of(book));
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.getBookById(bookId);
+        Book actualResult = bookManagerServiceImpl.getBookById(bookId);
 
         // Assert
-        assertThat(actualResult).isPresent();
-        assertThat(actualResult.get()).isEqualTo(book);
+        assertThat(actualResult).isEqualTo(book);
         verify(mockBookManagerRepository, times(1)).findById(bookId);
     }
 
     @Test
-    public void testGetBookByIdReturnsEmptyWhenNotFound() {
+    public void testGetBookByIdThrowsWhenNotFound() {
         // Arrange
         Long bookId = 2L;
 
         // Stub the repository's findById method to return an empty Optional when the book ID is not found
         when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.empty());
 
-        // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.getBookById(bookId);
-
-        // Assert
-        assertThat(actualResult).isNotPresent();
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.getBookById(bookId))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Book with ID 2 was not found");
         verify(mockBookManagerRepository, times(1)).findById(bookId);
     }
 
@@ -154,11 +209,9 @@ public class BookManagerServiceTests {
         // Stub the repository's findById method to handle a null ID gracefully, returning an empty Optional
         when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.empty());
 
-        // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.getBookById(bookId);
-
-        // Assert
-        assertThat(actualResult).isNotPresent();
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.getBookById(bookId))
+                .isInstanceOf(ResourceNotFoundException.class);
         verify(mockBookManagerRepository, times(1)).findById(bookId);
     }
 
@@ -167,44 +220,36 @@ public class BookManagerServiceTests {
     public void testReplaceBookReturnsUpdatedBookWhenFound() {
         // Arrange
         Long bookId = 1L;
-        Book existingBook = new Book(bookId, "Old Title", "Old Description", "Old Author", Genre.Education);
         Book updatedBook = new Book(bookId, "New Title", "New Description", "New Author", Genre.Fantasy);
 
-        // Stub the repository's findById method to return the existing book
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.of(existingBook));
-
-        // Stub the repository's save method to return the updated book
-        when(mockBookManagerRepository.save(existingBook)).thenReturn(existingBook);
+        // Stub the repository's update to report one affected row
+        when(mockBookManagerRepository.updateBook(eq(bookId), eq(updatedBook), isNull(), anyLong())).thenReturn(Optional.of(PREVIOUS));
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.replaceBook(bookId, updatedBook);
+        Book actualResult = bookManagerServiceImpl.replaceBook(bookId, updatedBook);
 
         // Assert
-        assertThat(actualResult).isPresent();
-        assertThat(actualResult.get().getTitle()).isEqualTo(updatedBook.getTitle());
-        assertThat(actualResult.get().getDescription()).isEqualTo(updatedBook.getDescription());
-        assertThat(actualResult.get().getAuthor()).isEqualTo(updatedBook.getAuthor());
-        assertThat(actualResult.get().getGenre()).isEqualTo(updatedBook.getGenre());
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(1)).save(existingBook);
+        assertThat(actualResult.getTitle()).isEqualTo(updatedBook.getTitle());
+        assertThat(actualResult.getDescription()).isEqualTo(updatedBook.getDescription());
+        assertThat(actualResult.getAuthor()).isEqualTo(updatedBook.getAuthor());
+        assertThat(actualResult.getGenre()).isEqualTo(updatedBook.getGenre());
+        verify(mockBookManagerRepository, times(1)).updateBook(eq(bookId), eq(updatedBook), isNull(), anyLong());
+        verify(mockBookManagerRepository, times(0)).findById(any());  // Ensure the row is not read first
     }
 
     @Test
-    public void testReplaceBookReturnsEmptyWhenBookNotFound() {
+    public void testReplaceBookThrowsWhenBookNotFound() {
         // Arrange
         Long bookId = 2L;
         Book updatedBook = new Book(bookId, "New Title", "New Description", "New Author", Genre.Fantasy);
 
-        // Stub the repository's findById method to return an empty Optional when the book ID is not found
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.empty());
-
-        // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.replaceBook(bookId, updatedBook);
+        // Stub the repository's update to report no affected rows when the book ID is not found
+        when(mockBookManagerRepository.updateBook(eq(bookId), eq(updatedBook), isNull(), anyLong())).thenReturn(Optional.empty());
 
-        // Assert
-        assertThat(actualResult).isNotPresent();
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(0)).save(any(Book.class));  // Ensure save is not called
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.replaceBook(bookId, updatedBook))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(mockBookManagerRepository, times(0)).existsById(any());  // Unconditional replace needs no lookup
     }
 
     @Test
@@ -213,113 +258,389 @@ public class BookManagerServiceTests {
         Long bookId = null;
         Book updatedBook = new Book(bookId, "New Title", "New Description", "New Author", Genre.Fantasy);
 
-        // Stub the repository's findById method to handle a null ID gracefully, returning an empty Optional
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.empty());
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.replaceBook(bookId, updatedBook))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    public void testReplaceBookDoesNotChangeId() {
+        // Arrange
+        Long bookId = 1L;
+        Book updatedBook = new Book(2L, "New Title", "New Description", "New Author", Genre.Fantasy);  // Different ID
+
+        when(mockBookManagerRepository.updateBook(eq(bookId), eq(updatedBook), isNull(), anyLong())).thenReturn(Optional.of(PREVIOUS));
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.replaceBook(bookId, updatedBook);
+        Book actualResult = bookManagerServiceImpl.replaceBook(bookId, updatedBook);
 
         // Assert
-        assertThat(actualResult).isNotPresent();
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(0)).save(any(Book.class));  // Ensure save is not called
+        assertThat(actualResult.getId()).isEqualTo(bookId);  // Ensure ID remains unchanged
     }
 
+
     @Test
-    public void testReplaceBookDoesNotChangeId() {
+    public void testDeleteBookByIdDeletesWhenFound() {
         // Arrange
         Long bookId = 1L;
-        Book existingBook = new Book(bookId, "Old Title", "Old Description", "Old Author", Genre.Education);
-        Book updatedBook = new Book(2L, "New Title", "New Description", "New Author", Genre.Fantasy);  // Different ID
 
-        // Stub the repository's findById method to return the existing book
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.of(existingBook));
+        // Stub the repository's delete to report one affected row
+        when(mockBookManagerRepository.deleteBookById(bookId)).thenReturn(Optional.of(PREVIOUS));
+
+        // Act
+        bookManagerServiceImpl.deleteBookById(bookId);
+
+        // Assert
+        verify(mockBookManagerRepository, times(1)).deleteBookById(bookId);
+        verify(mockBookManagerRepository, times(0)).findById(any());  // Ensure the row is not read first
+    }
+
+    @Test
+    public void testDeleteBookByIdThrowsWhenBookNotFound() {
+        // Arrange
+        Long bookId = 2L;
+
+        // Stub the repository's delete to report no affected rows when the book ID is not found
+        when(mockBookManagerRepository.deleteBookById(bookId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.deleteBookById(bookId))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(mockBookManagerRepository, times(1)).deleteBookById(bookId);
+    }
+
+    @Test
+    public void testDeleteBookByIdHandlesNullIdGracefully() {
+        // Arrange
+        Long bookId = null;
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.deleteBookById(bookId))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
 
-        // Stub the repository's save method
-        when(mockBookManagerRepository.save(existingBook)).thenReturn(existingBook);
+    @Test
+    public void testGetBooksAfterStartsFromFirstIdWhenNoCursorGiven() {
+        // Arrange
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(1L, "Book One", "This is the description for Book One", "Author One", Genre.Education));
+        PageRequest pageRequest = PageRequest.of(0, 1, Sort.by("id"));
+
+        when(mockBookManagerRepository.findByIdGreaterThan(Long.MIN_VALUE, pageRequest))
+                .thenReturn(new SliceImpl<>(books, pageRequest, true));
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.replaceBook(bookId, updatedBook);
+        Slice<Book> actualResult = bookManagerServiceImpl.getBooksAfter(null, null, 1);
 
         // Assert
-        assertThat(actualResult).isPresent();
-        assertThat(actualResult.get().getId()).isEqualTo(bookId);  // Ensure ID remains unchanged
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(1)).save(existingBook);
+        assertThat(actualResult.getContent()).isEqualTo(books);
+        assertThat(actualResult.hasNext()).isTrue();
+    }
+
+    @Test
+    public void testGetBooksAfterFiltersByGenreFromCursor() {
+        // Arrange
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("id"));
+
+        when(mockBookManagerRepository.findByGenreAndIdGreaterThan(Genre.Fantasy, 5L, pageRequest))
+                .thenReturn(new SliceImpl<>(new ArrayList<>(), pageRequest, false));
+
+        // Act
+        Slice<Book> actualResult = bookManagerServiceImpl.getBooksAfter(Genre.Fantasy, 5L, 10);
+
+        // Assert
+        assertThat(actualResult.getContent()).isEmpty();
+        verify(mockBookManagerRepository, times(1)).findByGenreAndIdGreaterThan(Genre.Fantasy, 5L, pageRequest);
+        verify(mockBookManagerRepository, times(0)).findByIdGreaterThan(anyLong(), any());
     }
 
+    @Test
+    public void testStreamAllBooksHandsEachBookToConsumerAndDetachesIt() {
+        // Arrange
+        Book bookOne = new Book(1L, "Book One", "This is the description for Book One", "Author One", Genre.Education);
+        Book bookTwo = new Book(2L, "Book Two", "This is the description for Book Two", "Author Two", Genre.Fiction);
+
+        when(mockBookManagerRepository.streamAllBy()).thenReturn(Stream.of(bookOne, bookTwo));
+
+        // Act
+        List<Book> streamed = new ArrayList<>();
+        bookManagerServiceImpl.streamAllBooks(streamed::add);
+
+        // Assert
+        assertThat(streamed).containsExactly(bookOne, bookTwo);
+        verify(mockEntityManager, times(1)).detach(bookOne);
+        verify(mockEntityManager, times(1)).detach(bookTwo);
+    }
 
     @Test
-    public void testDeleteBookByIdDeletesAndReturnsBookWhenFound() {
+    public void testInsertBooksReportsConflictsForExistingAndRepeatedIds() {
+        // Arrange
+        Book existing = new Book(1L, "Existing", "Description", "Author", Genre.Education);
+        Book fresh = new Book(null, "Fresh", "Description", "Author", Genre.Fiction);
+        Book withNewId = new Book(5L, "New Id", "Description", "Author", Genre.Fantasy);
+        Book repeatedId = new Book(5L, "Repeated Id", "Description", "Author", Genre.Fantasy);
+        Book savedFresh = new Book(51L, "Fresh", "Description", "Author", Genre.Fiction);
+
+        when(mockTransactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(mockBookManagerRepository.findTakenIds(Set.of(1L, 5L))).thenReturn(List.of(existing.getId()));
+        when(mockBookManagerRepository.saveAll(List.of(fresh))).thenReturn(List.of(savedFresh));
+
+        // Act
+        List<BookBatchResult> actualResult = bookManagerServiceImpl.insertBooks(
+                List.of(existing, fresh, withNewId, repeatedId).iterator());
+
+        // Assert
+        assertThat(actualResult).containsExactly(
+                new BookBatchResult(0, 1L, BookBatchResult.Status.CONFLICT),
+                new BookBatchResult(1, 51L, BookBatchResult.Status.CREATED),
+                new BookBatchResult(2, 5L, BookBatchResult.Status.CREATED),
+                new BookBatchResult(3, 5L, BookBatchResult.Status.CONFLICT));
+        verify(mockBookManagerRepository, times(1)).findTakenIds(Set.of(1L, 5L));
+        verify(mockBookManagerRepository, times(1)).insertBooksWithIds(List.of(withNewId));
+        verify(mockBookManagerRepository, times(0)).findById(anyLong());
+    }
+
+    @Test
+    public void testInsertBooksWritesOneTransactionPerChunk() {
+        // Arrange
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BookManagerServiceImpl.BATCH_CHUNK_SIZE + 1; i++) {
+            books.add(new Book(null, "Book " + i, "Description", "Author", Genre.Education));
+        }
+
+        when(mockTransactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(mockBookManagerRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        List<BookBatchResult> actualResult = bookManagerServiceImpl.insertBooks(books.iterator());
+
+        // Assert
+        assertThat(actualResult).hasSize(books.size());
+        assertThat(actualResult.getLast().getIndex()).isEqualTo(BookManagerServiceImpl.BATCH_CHUNK_SIZE);
+        verify(mockTransactionTemplate, times(2)).execute(any());
+        verify(mockEntityManager, times(2)).clear();
+        verify(mockBookManagerRepository, times(0)).findTakenIds(any());
+    }
+
+    @Test
+    public void testSearchBooksRequestsGivenPage() {
+        // Arrange
+        when(mockBookManagerRepository.searchBooks("desert", PageRequest.of(2, 10))).thenReturn(new ArrayList<>());
+
+        // Act
+        bookManagerServiceImpl.searchBooks("desert", 2, 10);
+
+        // Assert
+        verify(mockBookManagerRepository, times(1)).searchBooks("desert", PageRequest.of(2, 10));
+    }
+
+    @Test
+    public void testShardedSearchMergesEveryShardByRank() {
+        // Arrange
+        BookShards bookShards = mock(BookShards.class, CALLS_REAL_METHODS);
+        doReturn(true).when(bookShards).isSharded();
+        doAnswer(invocation -> {
+            Supplier<?> query = invocation.getArgument(0);
+            return List.of(query.get(), query.get());
+        }).when(bookShards).scatter(any());
+        bookManagerServiceImpl.bookShards = bookShards;
+        List<BookSearchHit> shardOneHits = List.of(searchHit(1L, 0.9f), searchHit(3L, 0.5f), searchHit(5L, 0.3f), searchHit(7L, 0.1f));
+        List<BookSearchHit> shardTwoHits = List.of(searchHit(2L, 0.8f), searchHit(4L, 0.5f), searchHit(6L, 0.2f));
+        // Each shard is asked for its best (page + 1) * size hits
+        when(mockBookManagerRepository.searchBooks("desert", PageRequest.of(0, 4))).thenReturn(shardOneHits, shardTwoHits);
+
+        // Act
+        List<BookSearchHit> actualResult = bookManagerServiceImpl.searchBooks("desert", 1, 2);
+
+        // Assert
+        // Ranked 0.9, 0.8, then 0.5 twice with ties broken by id: the second page starts at the tie
+        assertThat(actualResult).extracting(BookSearchHit::getId).containsExactly(3L, 4L);
+    }
+
+    @Test
+    public void testInsertBookWithoutIdSkipsExistenceCheck() {
+        // Arrange
+        Book book = new Book(null, "Book Five", "This is the description for Book Five", "Person Five", Genre.Fiction);
+        Book savedBook = new Book(51L, "Book Five", "This is the description for Book Five", "Person Five", Genre.Fiction);
+
+        when(mockBookManagerRepository.save(book)).thenReturn(savedBook);
+
+        // Act
+        Book actualResult = bookManagerServiceImpl.insertBook(book);
+
+        // Assert
+        assertThat(actualResult).isEqualTo(savedBook);
+        verify(mockBookManagerRepository, times(0)).findById(any());
+    }
+
+    @Test
+    public void testGetBookSummariesByGenreUsesProjection() {
+        // Arrange
+        List<BookSummary> summaries = List.of(new BookSummary(1L, "Book One", "Person One", Genre.Fantasy));
+        when(mockBookManagerRepository.findByGenre(Genre.Fantasy, BookSummary.class)).thenReturn(summaries);
+
+        // Act
+        List<BookSummary> actualResult = bookManagerServiceImpl.getBookSummariesByGenre(Genre.Fantasy);
+
+        // Assert
+        assertThat(actualResult).isEqualTo(summaries);
+        verify(mockBookManagerRepository, times(0)).findByGenre(Genre.Fantasy);
+    }
+
+    @Test
+    public void testInsertBookWithTakenIdThrows() {
+        // Arrange
+        Book book = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+
+        // The primary key rejects the insert instead of a findById beforehand
+        when(mockBookManagerRepository.insertBookWithId(book)).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.insertBook(book))
+                .isInstanceOf(ResourceAlreadyExistsException.class)
+                .hasMessage("Book with ID 1 already exists");
+        verify(mockBookManagerRepository, times(0)).findById(any());
+    }
+
+    @Test
+    public void testReplaceBookRejectsStaleExpectedVersion() {
         // Arrange
         Long bookId = 1L;
-        Book existingBook = new Book(bookId, "Book to be Deleted", "Description", "Author", Genre.Education);
+        Book updatedBook = new Book(bookId, "New Title", "New Description", "New Author", Genre.Fantasy);
+
+        // No row matched the id and version, but the book exists
+        when(mockBookManagerRepository.updateBook(eq(bookId), eq(updatedBook), eq(Set.of(2L)), anyLong())).thenReturn(Optional.empty());
+        when(mockBookManagerRepository.existsById(bookId)).thenReturn(true);
+        when(mockTransactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookManagerServiceImpl.replaceBook(bookId, updatedBook, Set.of(2L)))
+                .isInstanceOf(ResourceVersionMismatchException.class);
+    }
 
-        // Stub the repository's findById method to return the existing book
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.of(existingBook));
+    @Test
+    public void testReplaceBookAcceptsCurrentExpectedVersion() {
+        // Arrange
+        Long bookId = 1L;
+        Book updatedBook = new Book(bookId, "New Title", "New Description", "New Author", Genre.Fantasy);
 
-        // Do nothing when deleteById is called
-        doNothing().when(mockBookManagerRepository).deleteById(bookId);
+        when(mockBookManagerRepository.updateBook(eq(bookId), eq(updatedBook), eq(Set.of(3L)), anyLong())).thenReturn(Optional.of(PREVIOUS));
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.deleteBookById(bookId);
+        Book actualResult = bookManagerServiceImpl.replaceBook(bookId, updatedBook, Set.of(3L));
 
         // Assert
-        assertThat(actualResult).isPresent();
-        assertThat(actualResult.get()).isEqualTo(existingBook);
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(1)).deleteById(bookId);
+        assertThat(actualResult.getTitle()).isEqualTo("New Title");
+        assertThat(actualResult.getVersion()).isNotEqualTo(3L);
+        verify(mockBookManagerRepository, times(0)).existsById(any());
     }
 
     @Test
-    public void testDeleteBookByIdReturnsEmptyWhenBookNotFound() {
+    public void testGetCatalogueVersionIsLatestChangeSeqOnceEverythingIsSequenced() {
         // Arrange
-        Long bookId = 2L;
+        BookCatalogueVersion sequenced = catalogueVersion(42L, 0, null);
+        when(mockBookManagerRepository.findCatalogueVersion()).thenReturn(sequenced);
 
-        // Stub the repository's findById method to return an empty Optional when the book ID is not found
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.empty());
+        // Act
+        long actualResult = bookManagerServiceImpl.getCatalogueVersion();
+
+        // Assert
+        assertThat(actualResult).isEqualTo(42L);
+    }
+
+    @Test
+    public void testGetCatalogueVersionMovesWithWritesNotYetSequenced() {
+        // Arrange
+        OffsetDateTime written = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        BookCatalogueVersion oneWrite = catalogueVersion(42L, 1, written);
+        BookCatalogueVersion rewritten = catalogueVersion(42L, 1, written.plusNanos(1000));
+        BookCatalogueVersion twoWrites = catalogueVersion(42L, 2, written.plusNanos(1000));
+        when(mockBookManagerRepository.findCatalogueVersion()).thenReturn(oneWrite, rewritten, twoWrites);
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.deleteBookById(bookId);
+        List<Long> versions = List.of(bookManagerServiceImpl.getCatalogueVersion(),
+                bookManagerServiceImpl.getCatalogueVersion(), bookManagerServiceImpl.getCatalogueVersion());
 
         // Assert
-        assertThat(actualResult).isNotPresent();
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(0)).deleteById(anyLong());  // Ensure deleteById is not called
+        assertThat(versions).doesNotHaveDuplicates().doesNotContain(42L, 43L);
     }
 
     @Test
-    public void testDeleteBookByIdHandlesNullIdGracefully() {
+    public void testGetChangesSinceReadsSequencedChanges() {
         // Arrange
-        Long bookId = null;
+        Book changedBook = new Book(1L, "Book One", "This is the description for Book One", "Person One", Genre.Education);
+        changedBook.setChangeSeq(8L);
+        when(mockBookManagerRepository.findChangesSince(7L, Limit.of(100))).thenReturn(List.of(changedBook));
 
-        // Stub the repository's findById method to handle a null ID gracefully, returning an empty Optional
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.empty());
+        // Act
+        List<Book> actualResult = bookManagerServiceImpl.getChangesSince(7L, 100);
+
+        // Assert
+        assertThat(actualResult).containsExactly(changedBook);
+    }
+
+    @Test
+    public void testGetChangesSinceRefusesTokenBehindPurgedTombstones() {
+        // Arrange
+        when(mockBookManagerRepository.findChangesPurgedThrough()).thenReturn(5L);
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.deleteBookById(bookId);
+        List<Book> fromTheStart = bookManagerServiceImpl.getChangesSince(0L, 100);
+        List<Book> fromThePurgeHorizon = bookManagerServiceImpl.getChangesSince(5L, 100);
 
         // Assert
-        assertThat(actualResult).isNotPresent();
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(0)).deleteById(anyLong());  // Ensure deleteById is not called
+        assertThat(fromTheStart).isEmpty();
+        assertThat(fromThePurgeHorizon).isEmpty();
+        assertThatThrownBy(() -> bookManagerServiceImpl.getChangesSince(4L, 100)).isInstanceOf(ChangesPurgedException.class);
     }
 
     @Test
-    public void testDeleteBookByIdDoesNotDeleteIfBookNotFound() {
+    public void testInsertBookIsCountedInStatistics() {
         // Arrange
-        Long bookId = 3L;
+        Book book = new Book(4L, "Book Four", "This is the description for Book Four", "Person Four", Genre.Fantasy);
+        when(mockBookManagerRepository.insertBookWithId(book)).thenReturn(1);
 
-        // Stub the repository's findById method to return an empty Optional when the book is not found
-        when(mockBookManagerRepository.findById(bookId)).thenReturn(Optional.empty());
+        // Act
+        bookManagerServiceImpl.insertBook(book);
+
+        // Assert
+        verify(mockBookStatistics, times(1)).recordInsert(book);
+    }
+
+    @Test
+    public void testReplaceAndDeleteMoveBooksInStatistics() {
+        // Arrange
+        Book updatedBook = new Book(1L, "New Title", "New Description", "New Author", Genre.Fantasy);
+        when(mockBookManagerRepository.updateBook(eq(1L), eq(updatedBook), isNull(), anyLong())).thenReturn(Optional.of(PREVIOUS));
+        when(mockBookManagerRepository.deleteBookById(2L)).thenReturn(Optional.of(PREVIOUS));
+        when(mockBookManagerRepository.deleteBookById(3L)).thenReturn(Optional.empty());
 
         // Act
-        Optional<Book> actualResult = bookManagerServiceImpl.deleteBookById(bookId);
+        bookManagerServiceImpl.replaceBook(1L, updatedBook);
+        bookManagerServiceImpl.deleteBookById(2L);
+        assertThatThrownBy(() -> bookManagerServiceImpl.deleteBookById(3L)).isInstanceOf(ResourceNotFoundException.class);
 
         // Assert
-        assertThat(actualResult).isNotPresent();
-        verify(mockBookManagerRepository, times(1)).findById(bookId);
-        verify(mockBookManagerRepository, times(0)).deleteById(anyLong());  // Ensure deleteById is not called
+        verify(mockBookStatistics, times(1)).recordReplace(eq(PREVIOUS), argThat(book -> book.getGenre() == Genre.Fantasy));
+        verify(mockBookStatistics, times(1)).recordDelete(PREVIOUS);
+    }
+
+    private static BookCatalogueVersion catalogueVersion(long latestChangeSeq, long pendingChanges, OffsetDateTime lastPendingWrite) {
+        BookCatalogueVersion catalogueVersion = mock(BookCatalogueVersion.class, CALLS_REAL_METHODS);
+        doReturn(latestChangeSeq).when(catalogueVersion).getLatestChangeSeq();
+        doReturn(pendingChanges).when(catalogueVersion).getPendingChanges();
+        doReturn(lastPendingWrite).when(catalogueVersion).getLastPendingWrite();
+        return catalogueVersion;
+    }
+
+    private static BookSearchHit searchHit(Long id, float rank) {
+        BookSearchHit searchHit = mock(BookSearchHit.class);
+        when(searchHit.getId()).thenReturn(id);
+        when(searchHit.getRank()).thenReturn(rank);
+        return searchHit;
     }
 
 }
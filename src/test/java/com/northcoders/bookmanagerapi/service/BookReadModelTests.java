@@ -0,0 +1,202 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookChangeSequencer;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+// The intervals are long enough that changes are only sequenced and read when a test asks for it
+@SpringBootTest(properties = {
+        "book.read-model.enabled=true",
+        "book.read-model.refresh-interval=PT1H",
+        "book.changes.sequence-interval=PT1H"
+})
+public class BookReadModelTests {
+
+    @Autowired
+    private BookManagerService bookManagerService;
+
+    @SpyBean
+    private BookManagerRepository bookManagerRepository;
+
+    @Autowired
+    private BookReadModel bookReadModel;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookChangeSequencer bookChangeSequencer;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Its scheduled GROUP BY would otherwise land in the statement counts now and then
+    @MockBean
+    private BookStatistics bookStatistics;
+
+    @Test
+    public void testServiceWritesShowUpInTheReadModel() {
+
+        // Arrange
+        bookManagerService.insertBook(new Book(9601L, "Book One", "Description One", "Person One", Genre.Thriller));
+        bookManagerService.insertBooks(List.of(
+                new Book(9602L, "Book Two", "Description Two", "Person Two", Genre.Thriller),
+                new Book(9603L, "Book Three", "Description Three", "Person Three", Genre.Thriller)).iterator());
+
+        // Act
+        Book replaced = bookManagerService.replaceBook(9602L, new Book(null, "Book Two, Revised", "Description Two", "Person Two", Genre.Education));
+        bookManagerService.deleteBookById(9603L);
+
+        // Assert
+        assertThat(bookReadModel.findByGenre(Genre.Thriller)).extracting(Book::getId).contains(9601L).doesNotContain(9602L, 9603L);
+        assertThat(bookReadModel.findByGenre(Genre.Education)).contains(replaced);
+        assertThat(bookReadModel.findAll()).extracting(Book::getId).contains(9601L, 9602L).doesNotContain(9603L);
+    }
+
+    @Test
+    public void testCatchUpAppliesWritesFromOtherInstances() {
+
+        // Arrange
+        jdbcTemplate.update("insert into book (id, title, description, author, genre, version) values (9604, 'Book Four', 'Description Four', 'Person Four', 'Romance', 0)");
+        jdbcTemplate.update("insert into book (id, title, description, author, genre, version) values (9605, 'Book Five', 'Description Five', 'Person Five', 'Romance', 0)");
+        bookChangeSequencer.sequence();
+        bookReadModel.catchUp();
+        jdbcTemplate.update("update book set deleted = true, change_seq = null, updated_at = current_timestamp where id = 9605");
+
+        // Act
+        bookChangeSequencer.sequence();
+        bookReadModel.catchUp();
+
+        // Assert
+        assertThat(bookReadModel.findByGenre(Genre.Romance)).extracting(Book::getId).contains(9604L).doesNotContain(9605L);
+    }
+
+    @Test
+    public void testCatalogueVersionMovesWithTheReadModel() {
+
+        // Arrange
+        bookChangeSequencer.sequence();
+        bookReadModel.catchUp();
+        long caughtUpVersion = bookManagerService.getCatalogueVersion();
+        jdbcTemplate.update("insert into book (id, title, description, author, genre, version) values (9607, 'Book Seven', 'Description Seven', 'Person Seven', 'Fiction', 0)");
+        bookChangeSequencer.sequence();
+
+        // Act
+        long versionBeforeCatchUp = bookManagerService.getCatalogueVersion();
+        bookReadModel.catchUp();
+        long versionAfterCatchUp = bookManagerService.getCatalogueVersion();
+        bookManagerService.insertBook(new Book(9608L, "Book Eight", "Description Eight", "Person Eight", Genre.Fiction));
+        long versionAfterLocalWrite = bookManagerService.getCatalogueVersion();
+
+        // Assert
+        // The database already has Book Seven, but a listing from the read model would not
+        assertThat(versionBeforeCatchUp).isEqualTo(caughtUpVersion);
+        assertThat(versionAfterCatchUp).isNotEqualTo(versionBeforeCatchUp);
+        assertThat(versionAfterLocalWrite).isNotEqualTo(versionAfterCatchUp);
+    }
+
+    @Test
+    public void testListingsAndFiltersRunNoStatements() {
+
+        // Arrange
+        bookManagerService.insertBook(new Book(9606L, "Book Six", "Description Six", "Person Six", Genre.Fantasy));
+        BookFilter filter = new BookFilter();
+        filter.setGenres(Set.of(Genre.Fantasy));
+        filter.setAuthorPrefix("Person S");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        bookManagerService.getCatalogueVersion();
+        List<Book> fantasyBooks = bookManagerService.getBooksByGenre(Genre.Fantasy);
+        List<Book> filtered = bookManagerService.filterBooks(filter, PageRequest.of(0, 10, Sort.by("id"))).getContent();
+        bookManagerService.getBookSummaries();
+
+        // Assert
+        assertThat(fantasyBooks).extracting(Book::getId).contains(9606L);
+        assertThat(filtered).extracting(Book::getId).contains(9606L);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    public void testVersionIsTheFeedPositionOnceTheFeedReturnsLocalWrites() {
+
+        // Arrange
+        bookChangeSequencer.sequence();
+        bookReadModel.catchUp();
+        bookManagerService.insertBook(new Book(9609L, "Book Nine", "Description Nine", "Person Nine", Genre.Fiction));
+        long versionWithLocalWrite = bookManagerService.getCatalogueVersion();
+
+        // Act
+        bookChangeSequencer.sequence();
+        bookReadModel.catchUp();
+        long versionOnceReturned = bookManagerService.getCatalogueVersion();
+
+        // Assert
+        long feedPosition = jdbcTemplate.queryForObject("select max(change_seq) from book", Long.class);
+        assertThat(versionWithLocalWrite).isNegative();
+        assertThat(versionOnceReturned).isEqualTo(feedPosition);
+    }
+
+    @Test
+    public void testCatchUpKeepsALocalWriteAppliedWhileItReadTheFeed() {
+
+        // Arrange
+        bookManagerService.insertBook(new Book(9610L, "Book Ten", "Description Ten", "Person Ten", Genre.Fiction));
+        bookChangeSequencer.sequence();
+        AtomicBoolean raced = new AtomicBoolean();
+        // A spied repository is an interface proxy; its default answer forwards to the real one
+        Answer<?> realRepository = mockingDetails(bookManagerRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            Object changes = realRepository.answer(invocation);
+            // Another request replaces the book between the feed read and its rows being applied
+            if (raced.compareAndSet(false, true)) {
+                Thread writer = Thread.ofVirtual().start(() -> {
+                    jdbcTemplate.update("update book set title = 'Book Ten, Revised', version = 7, change_seq = null where id = 9610");
+                    bookReadModel.put(new Book(9610L, "Book Ten, Revised", "Description Ten", "Person Ten", Genre.Fiction, 7));
+                });
+                writer.join();
+            }
+            return changes;
+        }).when(bookManagerRepository).findChangesSince(anyLong(), any());
+
+        // Act
+        bookReadModel.catchUp();
+        String titleAfterRace = titleInReadModel(9610L);
+        bookChangeSequencer.sequence();
+        bookReadModel.catchUp();
+
+        // Assert
+        assertThat(raced).isTrue();
+        assertThat(titleAfterRace).isEqualTo("Book Ten, Revised");
+        assertThat(titleInReadModel(9610L)).isEqualTo("Book Ten, Revised");
+    }
+
+    private String titleInReadModel(long id) {
+        return bookReadModel.findAll().stream().filter(book -> book.getId() == id).findFirst().orElseThrow().getTitle();
+    }
+}
@@ -0,0 +1,217 @@
+package com.northcoders.bookmanagerapi.service;
+
+import com.northcoders.bookmanagerapi.model.Book;
+import com.northcoders.bookmanagerapi.model.BookCount;
+import com.northcoders.bookmanagerapi.model.BookCountKey;
+import com.northcoders.bookmanagerapi.model.BookFilter;
+import com.northcoders.bookmanagerapi.model.BookStats;
+import com.northcoders.bookmanagerapi.model.Genre;
+import com.northcoders.bookmanagerapi.repository.BookManagerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookStatisticsTests {
+
+    @Mock
+    private BookManagerRepository mockBookManagerRepository;
+
+    @InjectMocks
+    private BookStatistics bookStatistics;
+
+    @Test
+    public void testReconcileRebuildsCountsFromGroupBy() {
+        // Arrange
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenReturn(List.of(
+                bookCount(Genre.Fantasy, "Person One", 3),
+                bookCount(Genre.Fiction, "Person One", 2),
+                bookCount(Genre.Fiction, "Person Two", 1)));
+
+        // Act
+        bookStatistics.reconcile();
+        BookStats stats = bookStatistics.snapshot();
+
+        // Assert
+        assertThat(stats.getTotal()).isEqualTo(6);
+        assertThat(stats.getGenres()).containsEntry(Genre.Fantasy, 3L).containsEntry(Genre.Fiction, 3L).containsEntry(Genre.Education, 0L);
+        assertThat(stats.getAuthors()).isEqualTo(Map.of("Person One", 5L, "Person Two", 1L));
+    }
+
+    @Test
+    public void testInsertsAreCountedWithoutQuerying() {
+        // Arrange
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenReturn(List.of(bookCount(Genre.Fantasy, "Person One", 1)));
+        bookStatistics.reconcile();
+
+        // Act
+        bookStatistics.recordInsert(new Book(null, "Book Two", "Description Two", "Person Two", Genre.Fantasy));
+        BookStats stats = bookStatistics.snapshot();
+
+        // Assert
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getGenres()).containsEntry(Genre.Fantasy, 2L);
+        assertThat(stats.getAuthors()).containsEntry("Person Two", 1L);
+        verify(mockBookManagerRepository, times(1)).countByGenreAndAuthor();
+    }
+
+    @Test
+    public void testReplaceAndDeleteMoveBooksWithoutQuerying() {
+        // Arrange
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenReturn(List.of(
+                bookCount(Genre.Fantasy, "Person One", 2),
+                bookCount(Genre.Fiction, "Person Two", 1)));
+        bookStatistics.reconcile();
+
+        // Act
+        bookStatistics.recordReplace(new BookCountKey(Genre.Fantasy, "Person One"),
+                new Book(1L, "Book One", "Description One", "Person Three", Genre.Romance));
+        bookStatistics.recordDelete(new BookCountKey(Genre.Fiction, "Person Two"));
+        BookStats stats = bookStatistics.snapshot();
+
+        // Assert
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getGenres()).containsEntry(Genre.Fantasy, 1L).containsEntry(Genre.Romance, 1L).containsEntry(Genre.Fiction, 0L);
+        assertThat(stats.getAuthors()).isEqualTo(Map.of("Person One", 1L, "Person Three", 1L));
+        verify(mockBookManagerRepository, times(1)).countByGenreAndAuthor();
+    }
+
+    @Test
+    public void testReconcileKeepsWritesRecordedWhileItsQueryRuns() {
+        // Arrange
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenAnswer(invocation -> {
+            bookStatistics.recordInsert(new Book(2L, "Book Two", "Description Two", "Person Two", Genre.Fiction));
+            return List.of(bookCount(Genre.Fantasy, "Person One", 1));
+        });
+
+        // Act
+        bookStatistics.reconcile();
+        BookStats stats = bookStatistics.snapshot();
+
+        // Assert
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getAuthors()).isEqualTo(Map.of("Person One", 1L, "Person Two", 1L));
+    }
+
+    @Test
+    public void testSnapshotListsTopAuthorsAndLooksUpTheRest() {
+        // Arrange
+        bookStatistics.topAuthors = 2;
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenReturn(List.of(
+                bookCount(Genre.Fantasy, "Person One", 1),
+                bookCount(Genre.Fantasy, "Person Two", 3),
+                bookCount(Genre.Fiction, "Person Three", 2),
+                bookCount(Genre.Fiction, "Person Four", 2)));
+        bookStatistics.reconcile();
+
+        // Act
+        BookStats stats = bookStatistics.snapshot();
+        BookStats personOne = bookStatistics.snapshot("Person One");
+        BookStats nobody = bookStatistics.snapshot("Nobody");
+
+        // Assert
+        assertThat(stats.getTotal()).isEqualTo(8);
+        assertThat(stats.getAuthorCount()).isEqualTo(4);
+        // Most books first; the tie at two goes alphabetically
+        assertThat(stats.getAuthors().keySet()).containsExactly("Person Two", "Person Four");
+        assertThat(personOne.getAuthors()).isEqualTo(Map.of("Person One", 1L));
+        assertThat(personOne.getTotal()).isEqualTo(8);
+        assertThat(nobody.getAuthors()).isEmpty();
+    }
+
+    @Test
+    public void testSnapshotIsKeptUntilTheCountersChange() {
+        // Arrange
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenReturn(List.of(bookCount(Genre.Fantasy, "Person One", 1)));
+        bookStatistics.reconcile();
+
+        // Act
+        BookStats first = bookStatistics.snapshot();
+        BookStats unchanged = bookStatistics.snapshot();
+        bookStatistics.recordInsert(new Book(null, "Book Two", "Description Two", "Person Two", Genre.Fantasy));
+        BookStats afterInsert = bookStatistics.snapshot();
+
+        // Assert
+        assertThat(unchanged).isSameAs(first);
+        assertThat(afterInsert).isNotSameAs(first);
+        assertThat(afterInsert.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    public void testTotalIsUnknownUntilTheFirstReconcile() {
+        // Arrange
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenReturn(List.of(bookCount(Genre.Fantasy, "Person One", 1)));
+
+        // Act
+        long beforeReconcile = bookStatistics.total();
+        bookStatistics.reconcile();
+
+        // Assert
+        assertThat(beforeReconcile).isEqualTo(Long.MAX_VALUE);
+        assertThat(bookStatistics.total()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEstimateWeighsGenresAndAuthorPrefixesByTheirCounts() {
+        // Arrange
+        when(mockBookManagerRepository.countByGenreAndAuthor()).thenReturn(List.of(
+                bookCount(Genre.Fantasy, "Person One", 400),
+                bookCount(Genre.Fiction, "Person Two", 400),
+                bookCount(Genre.Thriller, "Person Three", 100),
+                bookCount(Genre.Romance, "Someone Else", 99),
+                bookCount(Genre.Education, "Someone Else", 1)));
+        bookStatistics.reconcile();
+
+        // Act
+        long allButOneGenre = bookStatistics.estimateRows(new BookFilter(
+                Set.of(Genre.Fantasy, Genre.Fiction, Genre.Thriller, Genre.Romance), null, null, null, null));
+        long rareGenres = bookStatistics.estimateRows(new BookFilter(Set.of(Genre.Romance, Genre.Education), null, null, null, null));
+        long oneLetterPrefix = bookStatistics.estimateRows(new BookFilter(null, "P", null, null, null));
+        long narrowPrefix = bookStatistics.estimateRows(new BookFilter(null, "Some", null, null, null));
+        long narrowestCriterion = bookStatistics.estimateRows(new BookFilter(Set.of(Genre.Fantasy), "Person T", null, 1L, 50L));
+        long titleOnly = bookStatistics.estimateRows(new BookFilter(null, null, "book", null, null));
+
+        // Assert
+        assertThat(allButOneGenre).isEqualTo(999);
+        assertThat(rareGenres).isEqualTo(100);
+        assertThat(oneLetterPrefix).isEqualTo(900);
+        assertThat(narrowPrefix).isEqualTo(100);
+        assertThat(narrowestCriterion).isEqualTo(50);
+        assertThat(titleOnly).isEqualTo(1000);
+    }
+
+    @Test
+    public void testEstimateOnlyTrustsIdRangesUntilTheFirstReconcile() {
+        // Arrange
+        BookFilter genreAndIdRange = new BookFilter(Set.of(Genre.Fantasy), "Person", null, 1L, 5000L);
+
+        // Act
+        long genreOnly = bookStatistics.estimateRows(new BookFilter(Set.of(Genre.Fantasy), "Person", null, null, null));
+        long withIdRange = bookStatistics.estimateRows(genreAndIdRange);
+        long emptyRange = bookStatistics.estimateRows(new BookFilter(null, null, null, 10L, 9L));
+        long overflowingRange = bookStatistics.estimateRows(new BookFilter(null, null, null, Long.MIN_VALUE, Long.MAX_VALUE));
+
+        // Assert
+        assertThat(genreOnly).isEqualTo(Long.MAX_VALUE);
+        assertThat(withIdRange).isEqualTo(5000);
+        assertThat(emptyRange).isZero();
+        assertThat(overflowingRange).isEqualTo(Long.MAX_VALUE);
+    }
+
+    private static BookCount bookCount(Genre genre, String author, long count) {
+        return new SpelAwareProxyProjectionFactory().createProjection(BookCount.class, Map.of(
+                "genre", genre,
+                "author", author,
+                "count", count));
+    }
+}